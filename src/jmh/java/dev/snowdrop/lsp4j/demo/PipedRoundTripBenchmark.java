@@ -0,0 +1,151 @@
+package dev.snowdrop.lsp4j.demo;
+
+import dev.snowdrop.lsp4j.demo.client.JdtLsClient;
+import dev.snowdrop.lsp4j.demo.client.JdtLsClientEndpoint;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServer;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServerEndpoint;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import org.eclipse.lsp4j.jsonrpc.Endpoint;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.jsonrpc.json.JsonRpcMethod;
+import org.eclipse.lsp4j.jsonrpc.services.ServiceEndpoints;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.eclipse.lsp4j.services.LanguageServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures request/response round trips between a client and the server connected through pipes, as
+ * {@link LauncherApp} sets them up: the server serves a session of the endpoint and both launchers deserialize the
+ * parameters and results of the {@link JdtLsServer} and {@link JdtLsClient} methods into their types. The default
+ * sample.txt is loaded. Results are written to
+ * {@code target/jmh-result.json}:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PipedRoundTripBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipedRoundTripBenchmark {
+
+    private PipedInputStream inClient;
+    private PipedOutputStream outClient;
+    private PipedInputStream inServer;
+    private PipedOutputStream outServer;
+    private ExecutorService executor;
+    private Endpoint remoteEndpoint;
+    private JdtLsServer server;
+    private SearchParams searchParams;
+
+    @Setup
+    public void setUp() throws IOException {
+        // The launchers' own threads would keep the forked JVM running
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        JdtLsServerEndpoint jdtLsServerEndpoint = new JdtLsServerEndpoint();
+        inClient = new PipedInputStream();
+        outClient = new PipedOutputStream();
+        inServer = new PipedInputStream();
+        outServer = new PipedOutputStream();
+        inClient.connect(outServer);
+        outClient.connect(inServer);
+
+        JdtLsServerEndpoint.Session session = jdtLsServerEndpoint.openSession();
+        Launcher<LanguageClient> serverLauncher = new LSPLauncher.Builder<LanguageClient>() {
+                @Override
+                protected Map<String, JsonRpcMethod> getSupportedMethods() {
+                    Map<String, JsonRpcMethod> methods = new LinkedHashMap<>(super.getSupportedMethods());
+                    methods.putAll(ServiceEndpoints.getSupportedMethods(LanguageServer.class));
+                    methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsServer.class));
+                    return methods;
+                }
+            }
+            .setLocalService(session)
+            .setRemoteInterface(LanguageClient.class)
+            .setInput(inServer)
+            .setOutput(outServer)
+            .setExecutorService(executor)
+            .create();
+        serverLauncher.startListening();
+        session.connect(serverLauncher.getRemoteEndpoint());
+
+        Launcher<LanguageServer> clientLauncher = new LSPLauncher.Builder<LanguageServer>() {
+                @Override
+                protected Map<String, JsonRpcMethod> getSupportedMethods() {
+                    Map<String, JsonRpcMethod> methods = new LinkedHashMap<>(super.getSupportedMethods());
+                    methods.putAll(ServiceEndpoints.getSupportedMethods(LanguageClient.class));
+                    methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsClient.class));
+                    methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsServer.class));
+                    return methods;
+                }
+            }
+            .setLocalService(new JdtLsClientEndpoint().asEndpoint())
+            .setRemoteInterface(LanguageServer.class)
+            .setInput(inClient)
+            .setOutput(outClient)
+            .setExecutorService(executor)
+            .create();
+        clientLauncher.startListening();
+        remoteEndpoint = clientLauncher.getRemoteEndpoint();
+        server = ServiceEndpoints.toServiceObject(remoteEndpoint, JdtLsServer.class);
+
+        searchParams = new SearchParams("server", false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        outClient.close();
+        outServer.close();
+    }
+
+    /**
+     * A request answered on the thread reading the messages
+     */
+    @Benchmark
+    public Object getRequestStats() {
+        return remoteEndpoint.request("server/getRequestStats", null).join();
+    }
+
+    /**
+     * A request answered by the dispatcher, returning the whole sample document
+     */
+    @Benchmark
+    public Object getTextContent() {
+        return server.getTextContent().join();
+    }
+
+    /**
+     * A search, served from the result cache after the first iteration
+     */
+    @Benchmark
+    public Object searchText() {
+        return server.searchText(searchParams).join();
+    }
+}
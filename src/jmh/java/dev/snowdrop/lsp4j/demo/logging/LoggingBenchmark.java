@@ -0,0 +1,76 @@
+package dev.snowdrop.lsp4j.demo.logging;
+
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServerEndpoint;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the logging on the request paths of the server, with the log level of its classes
+ * set to {@code off}, {@code info} (the default, where the per-request tracing is disabled) and
+ * {@code debug}. Each level runs in a fork of its own, as the level is read when the loggers are created.
+ * The log is written to a temporary file rather than to the console:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="LoggingBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"off", "info", "debug"})
+    public String level;
+
+    private File logFile;
+    private JdtLsServerEndpoint endpoint;
+    private UserMessage message;
+    private SearchParams search;
+
+    @Setup
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("logging-benchmark", ".log");
+        System.setProperty("org.slf4j.simpleLogger.logFile", logFile.getPath());
+        System.setProperty("org.slf4j.simpleLogger.log.dev.snowdrop", level);
+        endpoint = new JdtLsServerEndpoint();
+        message = new UserMessage("benchmark", "Hello from the benchmark");
+        search = new SearchParams("server", false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        AsyncLogger.flush(10, TimeUnit.SECONDS);
+        System.out.println("Dropped log events: " + AsyncLogger.getDroppedCount());
+        System.out.println("Log size: " + logFile.length());
+        logFile.delete();
+    }
+
+    @Benchmark
+    public void postMessage() {
+        endpoint.notify("server/postMessage", message);
+    }
+
+    @Benchmark
+    public JsonObject searchText() {
+        return endpoint.searchText(search).join();
+    }
+}
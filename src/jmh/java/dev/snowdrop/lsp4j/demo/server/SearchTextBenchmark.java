@@ -0,0 +1,72 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.server.search.MatchEngineBenchmark;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures `server/searchText` on synthetic documents of increasing size, from the request to the JSON
+ * result. The result cache is emptied before each search, so that every search scans the document. Results
+ * are written to {@code target/jmh-result.json}:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="SearchTextBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchTextBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int lines;
+
+    /**
+     * A word found on about half of the lines, and a word found nowhere
+     */
+    @Param({"Needle", "missing"})
+    public String query;
+
+    private Path file;
+    private JdtLsServerEndpoint endpoint;
+    private SearchParams params;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("search-benchmark", ".txt");
+        Files.writeString(file, MatchEngineBenchmark.generate(lines));
+        endpoint = new JdtLsServerEndpoint(file.toString());
+        endpoint.setRequestDispatcher(RequestDispatcher.inline());
+        params = new SearchParams(query, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public JsonObject searchText() {
+        endpoint.getSearchResultCache().invalidate();
+        return endpoint.searchText(params).join();
+    }
+}
@@ -0,0 +1,110 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the match engines with the original implementation of {@code searchTextInFile}, which split
+ * the document and lowercased every line per query. Run with the GC profiler to compare the garbage
+ * produced per search:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="MatchEngineBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchEngineBenchmark {
+
+    private static final String[] WORDS = {
+        "server", "client", "request", "Notification", "message", "LSP4J", "launcher", "endpoint",
+        "ERROR", "warning", "info", "debug", "Needle", "haystack", "json", "rpc"
+    };
+
+    @Param({"10000", "100000"})
+    public int lines;
+
+    @Param({"needle", "notification message"})
+    public String query;
+
+    @Param({"false", "true"})
+    public boolean caseSensitive;
+
+    private String content;
+    private TextDocument regionMatches;
+    private TextDocument horspool;
+
+    @Setup
+    public void setUp() {
+        content = generate(lines);
+        TextDocument document = new TextDocument(content);
+        regionMatches = document.withMatchEngine(MatchEngine.REGION_MATCHES);
+        horspool = document.withMatchEngine(MatchEngine.HORSPOOL);
+    }
+
+    public static String generate(int lines) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(lines * 64);
+        for (int line = 0; line < lines; line++) {
+            int words = 4 + random.nextInt(8);
+            for (int word = 0; word < words; word++) {
+                builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The search as it was originally implemented, counting matches instead of building JSON
+     */
+    @Benchmark
+    public int splitAndLowerCase() {
+        String[] split = content.split("\\r?\\n");
+        String searchQuery = caseSensitive ? query : query.toLowerCase();
+        int matches = 0;
+        for (String line : split) {
+            String searchLine = caseSensitive ? line : line.toLowerCase();
+            int index = 0;
+            while ((index = searchLine.indexOf(searchQuery, index)) != -1) {
+                matches++;
+                index += query.length();
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int regionMatches() {
+        return count(regionMatches);
+    }
+
+    @Benchmark
+    public int horspool() {
+        return count(horspool);
+    }
+
+    private int count(TextDocument document) {
+        int[] matches = {0};
+        document.search(query, caseSensitive, 0, (line, offset, column, length) -> {
+            matches[0]++;
+            return true;
+        });
+        return matches[0];
+    }
+}
@@ -0,0 +1,76 @@
+package dev.snowdrop.parser.maven;
+
+import org.apache.maven.model.InputLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PomParser#findDependencyLocation} on the test fixtures, looking up a dependency declared in
+ * the parent of a child module and one declared in a Spring Boot project, and
+ * {@link PomParser#findDependencyLocations} looking up a batch of 100 artifacts, most of them missing. The parents and BOMs are downloaded
+ * to the local repository during the first warmup iteration. Run from the project directory, as the fixtures
+ * are read from {@code src/test/resources}; results are written to {@code target/jmh-result.json}:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="PomParserBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PomParserBenchmark {
+
+    @Param({"quarkus-parent-child", "spring-boot"})
+    public String fixture;
+
+    private PomParser pomParser;
+    private String pomPath;
+    private String groupId;
+    private String artifactId;
+    private List<Gav> batch;
+
+    @Setup
+    public void setUp() {
+        pomParser = new PomParser();
+        pomPath = String.format("src/test/resources/%s/pom.xml", fixture);
+        if (fixture.equals("spring-boot")) {
+            groupId = "org.springframework.boot";
+            artifactId = "spring-boot-starter-data-jpa";
+        } else {
+            groupId = "com.github.freva";
+            artifactId = "ascii-table";
+        }
+        batch = new ArrayList<>();
+        batch.add(new Gav(groupId, artifactId, ""));
+        for (int i = 1; i < 100; i++) {
+            batch.add(new Gav("org.example", "artifact-" + i, "1.0." + i));
+        }
+    }
+
+    @Benchmark
+    public Optional<InputLocation> findDependencyLocation() {
+        return pomParser.findDependencyLocation(pomPath, groupId, artifactId, "");
+    }
+
+    @Benchmark
+    public Map<Gav, InputLocation> findDependencyLocations() {
+        return pomParser.findDependencyLocations(pomPath, batch);
+    }
+}
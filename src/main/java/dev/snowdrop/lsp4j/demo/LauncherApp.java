@@ -4,18 +4,27 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.client.JdtLsClient;
 import dev.snowdrop.lsp4j.demo.client.JdtLsClientEndpoint;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServer;
 import dev.snowdrop.lsp4j.demo.server.JdtLsServerEndpoint;
+import dev.snowdrop.lsp4j.demo.server.SocketServer;
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.Endpoint;
 import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.jsonrpc.json.JsonRpcMethod;
 import org.eclipse.lsp4j.jsonrpc.services.ServiceEndpoints;
 import org.eclipse.lsp4j.launch.LSPLauncher;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.LanguageServer;
 
+import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -40,7 +49,52 @@ public class LauncherApp {
         }
     }
 
-    public static void main(String[] args) throws ExecutionException {
+    /**
+     * Runs the server alone, serving the clients connecting to the given TCP port and/or Unix domain socket
+     * until the JVM is stopped. Usage: {@code --tcp=<port> --unix=<path> [textFile]}.
+     */
+    private static void serve(String[] args) throws IOException, InterruptedException {
+        String textFilePath = null;
+        Integer port = null;
+        String socketPath = null;
+        for (String arg : args) {
+            if (arg.startsWith("--tcp=")) {
+                port = Integer.parseInt(arg.substring("--tcp=".length()));
+            } else if (arg.startsWith("--unix=")) {
+                socketPath = arg.substring("--unix=".length());
+            } else {
+                textFilePath = arg;
+            }
+        }
+
+        JdtLsServerEndpoint jdtLsServerEndpoint = textFilePath != null ? new JdtLsServerEndpoint(textFilePath) : new JdtLsServerEndpoint();
+        SocketServer server = new SocketServer(jdtLsServerEndpoint);
+        if (port != null) {
+            System.out.println("Listening on TCP " + server.bindTcp(new InetSocketAddress(port)));
+        }
+        if (socketPath != null) {
+            server.bindUnix(Paths.get(socketPath));
+            System.out.println("Listening on Unix domain socket " + socketPath);
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Error closing the server: " + e.getMessage());
+            }
+        }));
+        Thread.currentThread().join();
+    }
+
+    public static void main(String[] args) throws ExecutionException, IOException, InterruptedException {
+        for (String arg : args) {
+            if (arg.startsWith("--tcp=") || arg.startsWith("--unix=")) {
+                serve(args);
+                return;
+            }
+        }
+
         System.out.println("=== Enhanced LSP4J Demo Application ===");
         System.out.println("This demo shows JSON client requests and text file reading capabilities.\n");
 
@@ -64,14 +118,46 @@ public class LauncherApp {
             inClient.connect(outServer);
             outClient.connect(inServer);
 
-            Launcher<LanguageClient> serverLauncher = LSPLauncher.createServerLauncher(
-                ServiceEndpoints.toServiceObject(jdtLsServerEndpoint, LanguageServer.class), inServer, outServer);
+            // Served through a session, like SocketServer does: the session routes every method through the handler
+            // table of the endpoint, while the parameters of the methods of JdtLsServer and LanguageServer are
+            // deserialized into their types
+            JdtLsServerEndpoint.Session session = jdtLsServerEndpoint.openSession();
+            Launcher<LanguageClient> serverLauncher = new LSPLauncher.Builder<LanguageClient>() {
+                    @Override
+                    protected Map<String, JsonRpcMethod> getSupportedMethods() {
+                        Map<String, JsonRpcMethod> methods = new LinkedHashMap<>(super.getSupportedMethods());
+                        methods.putAll(ServiceEndpoints.getSupportedMethods(LanguageServer.class));
+                        methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsServer.class));
+                        return methods;
+                    }
+                }
+                .setLocalService(session)
+                .setRemoteInterface(LanguageClient.class)
+                .setInput(inServer)
+                .setOutput(outServer)
+                .create();
             Future<Void> serverListening = serverLauncher.startListening();
+            session.connect(serverLauncher.getRemoteEndpoint());
             System.out.println("✓ Language Server started with text file support");
 
             JdtLsClientEndpoint jdtLsClientEndpoint = new JdtLsClientEndpoint();
-            Launcher<LanguageServer> clientLauncher = LSPLauncher.createClientLauncher(
-                ServiceEndpoints.toServiceObject(jdtLsClientEndpoint, LanguageClient.class), inClient, outClient);
+            // The parameters of the notifications of JdtLsClient and the results of the requests of JdtLsServer are
+            // deserialized into their types
+            Launcher<LanguageServer> clientLauncher = new LSPLauncher.Builder<LanguageServer>() {
+                    @Override
+                    protected Map<String, JsonRpcMethod> getSupportedMethods() {
+                        Map<String, JsonRpcMethod> methods = new LinkedHashMap<>(super.getSupportedMethods());
+                        methods.putAll(ServiceEndpoints.getSupportedMethods(LanguageClient.class));
+                        methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsClient.class));
+                        methods.putAll(ServiceEndpoints.getSupportedMethods(JdtLsServer.class));
+                        return methods;
+                    }
+                }
+                .setLocalService(jdtLsClientEndpoint.asEndpoint())
+                .setRemoteInterface(LanguageServer.class)
+                .setInput(inClient)
+                .setOutput(outClient)
+                .create();
             clientLauncher.startListening();
             System.out.println("✓ Language Client started with JSON request support\n");
 
@@ -83,8 +169,8 @@ public class LauncherApp {
 
             System.out.println("=== Demonstrating JSON Requests ===\n");
 
-            // First, try the LSP proxy approach (this will fail)
-            System.out.println("1a. Trying LSP proxy approach (likely to fail)...");
+            // First, through the client launcher, whose results of the JdtLsServer requests are typed
+            System.out.println("1a. Requesting the text content through the client launcher...");
             try {
                 System.out.println("   Sending request to remoteEndpoint...");
                 CompletableFuture<?> textContentFuture = remoteEndpoint.request("server/getTextContent", null);
@@ -94,14 +180,14 @@ public class LauncherApp {
                 if (textResult != null) {
                     printResponse("   LSP Response:", textResult);
                 } else {
-                    System.out.println("   LSP Response: null (as expected - proxy doesn't route custom methods)\n");
+                    System.out.println("   LSP Response: null\n");
                 }
             } catch (Exception e) {
                 e.printStackTrace();
             }
 
             // Now try direct endpoint access to prove it works
-            System.out.println("=== Using direct endpoint access instead of the server proxy ...");
+            System.out.println("=== Using direct endpoint access ...");
             try {
                 CompletableFuture<?> directResult = jdtLsServerEndpoint.request("server/getTextContent", null);
                 Object textResult = directResult.get();
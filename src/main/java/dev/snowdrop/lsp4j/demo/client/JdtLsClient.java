@@ -1,9 +1,16 @@
 package dev.snowdrop.lsp4j.demo.client;
 
+import dev.snowdrop.lsp4j.demo.shared.LogMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchResultsParams;
+import dev.snowdrop.lsp4j.demo.shared.ShowMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.TextContentParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
 import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.jsonrpc.services.JsonSegment;
 
+import java.util.concurrent.CompletableFuture;
+
 @JsonSegment("client")
 public interface JdtLsClient {
 
@@ -14,4 +21,28 @@ public interface JdtLsClient {
     @JsonNotification
     void didPostMessage(UserMessage message);
 
-}
\ No newline at end of file
+    /**
+     * The `client/searchResults` notification carries a batch of the matches of a streamed `server/searchText`.
+     */
+    @JsonNotification
+    void searchResults(SearchResultsParams params);
+
+    /**
+     * The `client/logMessage` notification asks the client to log a message.
+     */
+    @JsonNotification
+    void logMessage(LogMessageParams params);
+
+    /**
+     * The `client/showMessage` request asks the client to show a message.
+     */
+    @JsonRequest
+    CompletableFuture<String> showMessage(ShowMessageParams params);
+
+    /**
+     * The `client/showTextContent` request asks the client to show a text content.
+     */
+    @JsonRequest
+    CompletableFuture<String> showTextContent(TextContentParams params);
+
+}
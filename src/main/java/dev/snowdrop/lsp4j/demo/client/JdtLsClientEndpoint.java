@@ -1,89 +1,144 @@
 package dev.snowdrop.lsp4j.demo.client;
 
-import com.google.gson.JsonObject;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+import dev.snowdrop.lsp4j.demo.shared.LogMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchResultsParams;
+import dev.snowdrop.lsp4j.demo.shared.ShowMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.TextContentParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
 import org.eclipse.lsp4j.jsonrpc.Endpoint;
 
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
-public class JdtLsClientEndpoint implements Endpoint {
+/**
+ * The client side of the demo. The parameters of the methods of {@link JdtLsClient} are used as typed by a launcher
+ * knowing them, or converted from a JSON tree otherwise.
+ */
+public class JdtLsClientEndpoint implements Endpoint, JdtLsClient {
+
+    private static final Gson GSON = new Gson();
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(JdtLsClientEndpoint.class);
+
+    /**
+     * The handlers of the requests, looked up by method name
+     */
+    private static final Map<String, BiFunction<JdtLsClientEndpoint, Object, CompletableFuture<?>>> REQUESTS = Map.of(
+        "client/getTextContent", (client, parameter) -> client.showMessage(params(parameter, ShowMessageParams.class)),
+        "client/showMessage", (client, parameter) -> client.showMessage(params(parameter, ShowMessageParams.class)),
+        "client/showTextContent", (client, parameter) -> client.showTextContent(params(parameter, TextContentParams.class)));
+
+    /**
+     * The handlers of the notifications, looked up by method name
+     */
+    private static final Map<String, BiConsumer<JdtLsClientEndpoint, Object>> NOTIFICATIONS = Map.of(
+        "client/logMessage", (client, parameter) -> client.logMessage(params(parameter, LogMessageParams.class)),
+        "client/didPostMessage", (client, parameter) -> client.didPostMessage(params(parameter, UserMessage.class)),
+        "client/messagePosted", (client, parameter) -> client.didPostMessage(params(parameter, UserMessage.class)),
+        "client/searchResults", (client, parameter) -> client.searchResults(params(parameter, SearchResultsParams.class)));
+
+    /**
+     * @return the parameter as the given type, converting a JSON tree, or {@code null} if it is neither
+     */
+    private static <T> T params(Object parameter, Class<T> type) {
+        if (type.isInstance(parameter)) {
+            return type.cast(parameter);
+        }
+        return parameter instanceof JsonElement ? GSON.fromJson((JsonElement) parameter, type) : null;
+    }
+
+    /**
+     * @return this endpoint as a plain {@link Endpoint}, to serve from a launcher: lsp4j would otherwise invoke the
+     * methods of {@link JdtLsClient} reflectively instead of going through the handler tables
+     */
+    public Endpoint asEndpoint() {
+        JdtLsClientEndpoint client = this;
+        return new Endpoint() {
+            @Override
+            public CompletableFuture<?> request(String method, Object parameter) {
+                return client.request(method, parameter);
+            }
+
+            @Override
+            public void notify(String method, Object parameter) {
+                client.notify(method, parameter);
+            }
+        };
+    }
 
     @Override
     public CompletableFuture<?> request(String method, Object parameter) {
-        System.out.println("Client request called - Method: " + method);
+        LOG.debug("Client request called - Method: {}", method);
 
+        BiFunction<JdtLsClientEndpoint, Object, CompletableFuture<?>> handler = REQUESTS.get(method);
+        if (handler == null) {
+            LOG.warn("Client: Unknown request method: {}", method);
+            return CompletableFuture.completedFuture(null);
+        }
         try {
-            switch (method) {
-                case "client/getTextContent":
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String message = jsonParam.get("message").getAsString();
-                        System.out.println("Client received message: " + message);
-                    }
-                    return CompletableFuture.completedFuture("Message received");
-
-                case "client/showMessage":
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String message = jsonParam.get("message").getAsString();
-                        System.out.println("Client received message: " + message);
-                    }
-                    return CompletableFuture.completedFuture("Message received");
-
-                case "client/showTextContent":
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String content = jsonParam.get("content").getAsString();
-                        int length = jsonParam.get("length").getAsInt();
-                        System.out.println("Client received text content (" + length + " chars): " +
-                            (content.length() > 100 ? content.substring(0, 100) + "..." : content));
-                    }
-                    return CompletableFuture.completedFuture("Text content received");
-
-                default:
-                    System.out.println("Client: Unknown request method: " + method);
-                    return CompletableFuture.completedFuture(null);
-            }
+            return handler.apply(this, parameter);
         } catch (Exception e) {
-            System.err.println("Client error handling request: " + e.getMessage());
+            LOG.error("Client error handling request: {}", e.getMessage());
             return CompletableFuture.completedFuture(null);
         }
     }
 
+    @Override
+    public CompletableFuture<String> showMessage(ShowMessageParams params) {
+        if (params != null) {
+            LOG.info("Client received message: {}", params.getMessage());
+        }
+        return CompletableFuture.completedFuture("Message received");
+    }
+
+    @Override
+    public CompletableFuture<String> showTextContent(TextContentParams params) {
+        if (params != null && params.getContent() != null && LOG.isInfoEnabled()) {
+            String content = params.getContent();
+            LOG.info("Client received text content ({} chars): {}", params.getLength(), content.length() > 100 ? content.substring(0, 100) + "..." : content);
+        }
+        return CompletableFuture.completedFuture("Text content received");
+    }
+
     @Override
     public void notify(String method, Object parameter) {
-        System.out.println("Client notify called - Method: " + method);
+        LOG.debug("Client notify called - Method: {}", method);
 
+        BiConsumer<JdtLsClientEndpoint, Object> handler = NOTIFICATIONS.get(method);
+        if (handler == null) {
+            LOG.warn("Client: Unknown notify method: {}", method);
+            return;
+        }
         try {
-            switch (method) {
-                case "client/logMessage":
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String message = jsonParam.get("message").getAsString();
-                        String level = jsonParam.has("level") ? jsonParam.get("level").getAsString() : "INFO";
-                        System.out.println("[" + level + "] " + message);
-                    } else {
-                        System.out.println("Client log: " + parameter);
-                    }
-                    break;
-
-                case "client/messagePosted":
-                    if (parameter instanceof UserMessage) {
-                        UserMessage msg = (UserMessage) parameter;
-                        System.out.println("New message posted by " + msg.getUser() + ": " + msg.getContent());
-                    } else if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String user = jsonParam.get("user").getAsString();
-                        String content = jsonParam.get("content").getAsString();
-                        System.out.println("New message posted by " + user + ": " + content);
-                    }
-                    break;
-
-                default:
-                    System.out.println("Client: Unknown notify method: " + method);
-            }
+            handler.accept(this, parameter);
         } catch (Exception e) {
-            System.err.println("Client error handling notification: " + e.getMessage());
+            LOG.error("Client error handling notification: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void logMessage(LogMessageParams params) {
+        if (params != null) {
+            LOG.info("[{}] {}", params.getLevel() != null ? params.getLevel() : "INFO", params.getMessage());
+        }
+    }
+
+    @Override
+    public void didPostMessage(UserMessage message) {
+        if (message != null) {
+            LOG.info("New message posted by {}: {}", message.getUser(), message.getContent());
+        }
+    }
+
+    @Override
+    public void searchResults(SearchResultsParams params) {
+        if (params != null) {
+            int count = params.getMatches() != null ? params.getMatches().size() : 0;
+            LOG.debug("Search {} - received batch {} with {} matches", params.getPartialResultToken(), params.getBatch(), count);
         }
     }
 }
@@ -1,10 +1,41 @@
 package dev.snowdrop.lsp4j.demo.client;
 
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+import dev.snowdrop.lsp4j.demo.shared.LogMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchResultsParams;
+import dev.snowdrop.lsp4j.demo.shared.ShowMessageParams;
+import dev.snowdrop.lsp4j.demo.shared.TextContentParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
 
+import java.util.concurrent.CompletableFuture;
+
 public class JdtLsClientImpl implements JdtLsClient {
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(JdtLsClientImpl.class);
+
     @Override
     public void didPostMessage(UserMessage message) {
-        System.out.println("Did post called with : " + message.getUser() + ": " + message.getContent());
+        LOG.info("Did post called with : {}: {}", message.getUser(), message.getContent());
+    }
+
+    @Override
+    public void searchResults(SearchResultsParams params) {
+        LOG.debug("Search {} - received batch {}", params.getPartialResultToken(), params.getBatch());
+    }
+
+    @Override
+    public void logMessage(LogMessageParams params) {
+        LOG.info("[{}] {}", params.getLevel() != null ? params.getLevel() : "INFO", params.getMessage());
+    }
+
+    @Override
+    public CompletableFuture<String> showMessage(ShowMessageParams params) {
+        LOG.info("Client received message: {}", params.getMessage());
+        return CompletableFuture.completedFuture("Message received");
+    }
+
+    @Override
+    public CompletableFuture<String> showTextContent(TextContentParams params) {
+        LOG.info("Client received text content ({} chars)", params.getLength());
+        return CompletableFuture.completedFuture("Text content received");
     }
 }
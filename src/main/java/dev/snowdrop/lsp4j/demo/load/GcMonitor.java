@@ -0,0 +1,97 @@
+package dev.snowdrop.lsp4j.demo.load;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import dev.snowdrop.metrics.Histogram;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Records the garbage collections of this JVM, as reported by the collectors: the duration of each pause and
+ * the heap still used after each collection, which grows steadily when something leaks. The cycles of
+ * concurrent collectors run alongside the application and aren't counted as pauses.
+ */
+final class GcMonitor implements NotificationListener, AutoCloseable {
+
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .map(MemoryPoolMXBean::getName)
+        .collect(Collectors.toSet());
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final AtomicReference<Histogram> pausesMillis = new AtomicReference<>(new Histogram());
+    private final AtomicLong heapAfterGc = new AtomicLong(-1);
+
+    GcMonitor() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                NotificationEmitter emitter = (NotificationEmitter) collector;
+                emitter.addNotificationListener(this, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (!isConcurrent(info.getGcName())) {
+            pausesMillis.get().record(info.getGcInfo().getDuration());
+        }
+        long used = 0;
+        for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet()) {
+            if (heapPools.contains(pool.getKey())) {
+                used += pool.getValue().getUsed();
+            }
+        }
+        heapAfterGc.set(used);
+    }
+
+    private static boolean isConcurrent(String collector) {
+        // G1 Concurrent GC, ZGC Cycles, Shenandoah Cycles
+        return collector.contains("Concurrent") || collector.contains("Cycles");
+    }
+
+    /**
+     * @return the pauses since the previous call, in milliseconds
+     */
+    Histogram takePauses() {
+        return pausesMillis.getAndSet(new Histogram());
+    }
+
+    /**
+     * @return the heap used after the latest collection, or the heap currently used when there was none
+     */
+    long getHeapAfterGc() {
+        long used = heapAfterGc.get();
+        return used >= 0 ? used : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // Already removed
+            }
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package dev.snowdrop.lsp4j.demo.load;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServer;
+import dev.snowdrop.lsp4j.demo.server.JdtLsServerEndpoint;
+import dev.snowdrop.lsp4j.demo.server.SocketServer;
+import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+import dev.snowdrop.metrics.Histogram;
+import org.eclipse.lsp4j.jsonrpc.Endpoint;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of requests against a {@link JdtLsServerEndpoint} started in this JVM, from clients calling it
+ * in-process or connected over loopback TCP, to measure its capacity and to check that long runs stay stable.
+ * Nothing leaves the machine.
+ * <p>
+ * The load is open-loop: each client sends at a fixed rate whatever the response times, and latencies are
+ * measured from the time a request was scheduled rather than sent, so that a stalled server shows in the
+ * percentiles instead of slowing the load down. Posted messages are also timed until the server broadcasts
+ * them back to their sender. Every report interval, and at the end of the run, the throughput, latency
+ * percentiles, GC pauses and heap used after GC are printed.
+ * <pre>
+ * mvn exec:java -Dexec.mainClass=dev.snowdrop.lsp4j.demo.load.LoadGenerator \
+ *     -Dexec.args="--clients=8 --rate=2000 --duration=10m --mix=search=70,content=10,post=20"
+ * </pre>
+ * Options:
+ * <ul>
+ *     <li>{@code --clients=N}: number of clients, 4 by default</li>
+ *     <li>{@code --transport=inprocess|loopback}: how clients reach the server, in-process by default</li>
+ *     <li>{@code --rate=R}: requests per second of all the clients together, 0 for each client to send its next
+ *     request once the previous one completes. 1000 by default</li>
+ *     <li>{@code --duration=D}, {@code --warmup=D}, {@code --report-interval=D}: durations such as
+ *     {@code 500ms}, {@code 30s} or {@code 10m}. 60s, 10s and 10s by default</li>
+ *     <li>{@code --mix=search=W,content=W,post=W}: relative weights of the requests, 70/10/20 by default</li>
+ *     <li>{@code --queries=a,b,c}: the words searched in turn</li>
+ *     <li>{@code --max-outstanding=N}: requests a client waits for before it stops sending, 1000 by default</li>
+ *     <li>{@code --file=path}: the document loaded by the server, sample.txt by default</li>
+ * </ul>
+ */
+public final class LoadGenerator {
+
+    /**
+     * The requests sent by the clients.
+     */
+    public enum Operation {
+        SEARCH("search", "server/searchText"),
+        CONTENT("content", "server/getTextContent"),
+        POST("post", "server/postMessage");
+
+        private final String option;
+        private final String method;
+
+        Operation(String option, String method) {
+            this.option = option;
+            this.method = method;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    /**
+     * The name under which the time from posting a message until its broadcast reaches its sender is reported
+     */
+    public static final String DELIVERY = "postMessage delivery";
+
+    private static final String ALL = "all requests";
+    private static final String MESSAGE_PREFIX = "load ";
+
+    private final Options options;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong broadcastsReceived = new AtomicLong();
+    private volatile boolean stopped;
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation.getMethod(), new Recorder());
+        }
+        recorders.put(DELIVERY, new Recorder());
+        recorders.put(ALL, new Recorder());
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadGenerator(Options.parse(args)).run(System.out);
+        System.exit(0);
+    }
+
+    /**
+     * Runs the load for the configured warmup and duration, printing the reports to the given stream.
+     */
+    public void run(PrintStream out) throws IOException, InterruptedException {
+        JdtLsServerEndpoint endpoint = options.file != null ? new JdtLsServerEndpoint(options.file) : new JdtLsServerEndpoint();
+        SocketServer socketServer = null;
+        ExecutorService launcherExecutor = Executors.newCachedThreadPool(daemonThreads("load-launcher"));
+        List<AutoCloseable> connections = new ArrayList<>();
+        List<Socket> sockets = new ArrayList<>();
+        List<Future<Void>> listening = new ArrayList<>();
+        List<Client> clients = new ArrayList<>();
+        try (GcMonitor gcMonitor = new GcMonitor()) {
+            InetSocketAddress address = null;
+            if (options.loopback) {
+                socketServer = new SocketServer(endpoint);
+                address = socketServer.bindTcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+                socketServer.start();
+            }
+            for (int i = 0; i < options.clients; i++) {
+                String id = "client-" + i;
+                ClientEndpoint clientEndpoint = new ClientEndpoint(id);
+                Endpoint server;
+                if (options.loopback) {
+                    Socket socket = new Socket(address.getAddress(), address.getPort());
+                    socket.setTcpNoDelay(true);
+                    sockets.add(socket);
+                    Launcher<JdtLsServer> launcher = new Launcher.Builder<JdtLsServer>()
+                        .setLocalService(clientEndpoint)
+                        .setRemoteInterface(JdtLsServer.class)
+                        .setInput(socket.getInputStream())
+                        .setOutput(socket.getOutputStream())
+                        .setExecutorService(launcherExecutor)
+                        .create();
+                    listening.add(launcher.startListening());
+                    server = launcher.getRemoteEndpoint();
+                } else {
+                    JdtLsServerEndpoint.Session session = endpoint.openSession();
+                    session.connect(clientEndpoint);
+                    connections.add(session::close);
+                    server = session;
+                }
+                clients.add(new Client(id, server, options.rate > 0 ? options.maxOutstanding : 1));
+            }
+
+            out.printf(Locale.ROOT, "Running %d %s clients at %s for %ds after a %ds warmup%n", options.clients,
+                options.loopback ? "loopback" : "in-process", options.rate > 0 ? options.rate + " requests/s" : "full speed",
+                TimeUnit.NANOSECONDS.toSeconds(options.durationNanos), TimeUnit.NANOSECONDS.toSeconds(options.warmupNanos));
+            long start = System.nanoTime();
+            long end = start + options.warmupNanos + options.durationNanos;
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                long intervalNanos = options.rate > 0 ? (long) (1e9 * options.clients / options.rate) : 0;
+                // Spread the clients over the interval rather than sending in bursts
+                long first = start + intervalNanos * i / clients.size();
+                Random random = new Random(i);
+                Thread thread = new Thread(() -> drive(client, first, end, intervalNanos, random), "load-" + client.id);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+
+            sleepUntil(start + options.warmupNanos);
+            // Not collecting here, which would stall the requests being measured
+            long heapAtStart = gcMonitor.getHeapAfterGc();
+            reset();
+            gcMonitor.takePauses();
+            Histogram pauses = new Histogram();
+            long measuring = System.nanoTime();
+            long lastReport = measuring;
+            while (lastReport < end) {
+                long nextReport = Math.min(end, lastReport + options.reportIntervalNanos);
+                sleepUntil(nextReport);
+                long now = System.nanoTime();
+                Histogram intervalPauses = gcMonitor.takePauses();
+                pauses.add(intervalPauses);
+                reportInterval(out, now - measuring, now - lastReport, intervalPauses, gcMonitor.getHeapAfterGc());
+                lastReport = now;
+            }
+            stopped = true;
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            }
+            for (Client client : clients) {
+                // Wait for the responses still expected
+                if (client.outstanding.tryAcquire(client.maxOutstanding, 10, TimeUnit.SECONDS)) {
+                    client.outstanding.release(client.maxOutstanding);
+                }
+            }
+            long elapsed = System.nanoTime() - measuring;
+            pauses.add(gcMonitor.takePauses());
+            // The load is over: collect to see what the server retains
+            System.gc();
+            long heapAtEnd = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            reportSummary(out, elapsed, pauses, heapAtStart, heapAtEnd);
+        } finally {
+            // Disconnect the clients the way the server expects, then let them read the end of their connection
+            for (Socket socket : sockets) {
+                socket.shutdownOutput();
+            }
+            for (Future<Void> future : listening) {
+                try {
+                    future.get(1, TimeUnit.SECONDS);
+                } catch (ExecutionException | TimeoutException e) {
+                    // Closing anyway
+                }
+            }
+            for (AutoCloseable connection : connections) {
+                try {
+                    connection.close();
+                } catch (Exception e) {
+                    // Closing anyway
+                }
+            }
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            if (socketServer != null) {
+                socketServer.close();
+            }
+            launcherExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of requests of the given method, or of {@link #DELIVERY}, completed since the warmup
+     */
+    public long getCompleted(String operation) {
+        return recorders.get(operation).total.getCount();
+    }
+
+    /**
+     * @return the number of requests of the given method which failed since the warmup
+     */
+    public long getErrors(String operation) {
+        return recorders.get(operation).errors.get();
+    }
+
+    public long getBroadcastsReceived() {
+        return broadcastsReceived.get();
+    }
+
+    private void drive(Client client, long first, long end, long intervalNanos, Random random) {
+        long next = first;
+        while (!stopped) {
+            long intended;
+            if (intervalNanos > 0) {
+                sleepUntil(next);
+                intended = next;
+                next += intervalNanos;
+            } else {
+                intended = System.nanoTime();
+            }
+            if (intended >= end) {
+                return;
+            }
+            try {
+                // Waiting for a permit delays the next requests, but their latency still counts from their schedule
+                client.outstanding.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            send(client, pick(random), intended, random);
+        }
+    }
+
+    private Operation pick(Random random) {
+        int value = random.nextInt(options.totalWeight);
+        for (Operation operation : Operation.values()) {
+            value -= options.weights.get(operation);
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return Operation.SEARCH;
+    }
+
+    private void send(Client client, Operation operation, long intended, Random random) {
+        Recorder recorder = recorders.get(operation.getMethod());
+        if (operation == Operation.POST) {
+            boolean failed = false;
+            try {
+                client.server.notify(operation.getMethod(), new UserMessage(client.id, MESSAGE_PREFIX + intended));
+            } catch (RuntimeException e) {
+                failed = true;
+            }
+            record(recorder, System.nanoTime() - intended, failed);
+            client.outstanding.release();
+            return;
+        }
+        JsonObject params = null;
+        if (operation == Operation.SEARCH) {
+            params = new JsonObject();
+            params.addProperty("query", options.queries[random.nextInt(options.queries.length)]);
+            params.addProperty("caseSensitive", false);
+        }
+        CompletableFuture<?> response;
+        try {
+            response = client.server.request(operation.getMethod(), params);
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((result, error) -> {
+            boolean failed = error != null || (result instanceof JsonObject && ((JsonObject) result).has("error"));
+            record(recorder, System.nanoTime() - intended, failed);
+            client.outstanding.release();
+        });
+    }
+
+    private void record(Recorder recorder, long nanos, boolean failed) {
+        recorder.record(nanos, failed);
+        recorders.get(ALL).record(nanos, failed);
+    }
+
+    private void reset() {
+        for (Recorder recorder : recorders.values()) {
+            recorder.reset();
+        }
+    }
+
+    private void reportInterval(PrintStream out, long elapsed, long interval, Histogram pauses, long heap) {
+        Recorder all = recorders.get(ALL);
+        Histogram latencies = all.takeInterval();
+        out.printf(Locale.ROOT, "[%7.1fs] %9.1f req/s  errors %d  latency ms p50 %s p99 %s p999 %s max %s  gc %d pauses, max %d ms  heap %.1f MB%n",
+            elapsed / 1e9, latencies.getCount() * 1e9 / interval, all.intervalErrors.getAndSet(0),
+            millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+            millis(latencies.getValueAtPercentile(99.9)), millis(latencies.getMax()), pauses.getCount(), pauses.getMax(),
+            megabytes(heap));
+        for (Recorder recorder : recorders.values()) {
+            recorder.takeInterval();
+            recorder.intervalErrors.set(0);
+        }
+    }
+
+    private void reportSummary(PrintStream out, long elapsed, Histogram pauses, long heapAtStart, long heapAtEnd) {
+        out.printf(Locale.ROOT, "%nSummary over %.1fs%n", elapsed / 1e9);
+        out.printf(Locale.ROOT, "%-22s %10s %10s %8s %9s %9s %9s %9s%n", "operation", "count", "req/s", "errors",
+            "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Histogram total = entry.getValue().total;
+            out.printf(Locale.ROOT, "%-22s %10d %10.1f %8d %9s %9s %9s %9s%n", entry.getKey(), total.getCount(),
+                total.getCount() * 1e9 / elapsed, entry.getValue().errors.get(), millis(total.getValueAtPercentile(50)),
+                millis(total.getValueAtPercentile(99)), millis(total.getValueAtPercentile(99.9)), millis(total.getMax()));
+        }
+        out.printf(Locale.ROOT, "Broadcasts received: %d%n", broadcastsReceived.get());
+        out.printf(Locale.ROOT, "GC pauses: %d, total %d ms, p99 %d ms, max %d ms%n", pauses.getCount(), pauses.getSum(),
+            pauses.getValueAtPercentile(99), pauses.getMax());
+        out.printf(Locale.ROOT, "Heap after GC: %.1f MB at start, %.1f MB at end (%+.1f MB)%n", megabytes(heapAtStart),
+            megabytes(heapAtEnd), megabytes(heapAtEnd - heapAtStart));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    private static double megabytes(long bytes) {
+        return bytes / (1024.0 * 1024);
+    }
+
+    private static void sleepUntil(long deadline) {
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            LockSupport.parkNanos(deadline - now);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The latencies of one operation, in nanoseconds, over the whole run and since the previous report.
+     */
+    private static final class Recorder {
+        private volatile Histogram total = new Histogram();
+        private final AtomicReference<Histogram> interval = new AtomicReference<>(new Histogram());
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong intervalErrors = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            total.record(nanos);
+            interval.get().record(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+                intervalErrors.incrementAndGet();
+            }
+        }
+
+        Histogram takeInterval() {
+            return interval.getAndSet(new Histogram());
+        }
+
+        void reset() {
+            total = new Histogram();
+            interval.set(new Histogram());
+            errors.set(0);
+            intervalErrors.set(0);
+        }
+    }
+
+    private static final class Client {
+        private final String id;
+        private final Endpoint server;
+        private final int maxOutstanding;
+        private final Semaphore outstanding;
+
+        Client(String id, Endpoint server, int maxOutstanding) {
+            this.id = id;
+            this.server = server;
+            this.maxOutstanding = maxOutstanding;
+            this.outstanding = new Semaphore(maxOutstanding);
+        }
+    }
+
+    /**
+     * Receives the broadcasts of a client, timing the delivery of its own messages.
+     */
+    private final class ClientEndpoint implements Endpoint {
+        private final String id;
+
+        ClientEndpoint(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public CompletableFuture<?> request(String method, Object parameter) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void notify(String method, Object parameter) {
+            if (!"client/didPostMessage".equals(method)) {
+                return;
+            }
+            broadcastsReceived.incrementAndGet();
+            String user;
+            String content;
+            if (parameter instanceof UserMessage) {
+                user = ((UserMessage) parameter).getUser();
+                content = ((UserMessage) parameter).getContent();
+            } else if (parameter instanceof JsonObject) {
+                JsonObject message = (JsonObject) parameter;
+                user = stringOrNull(message.get("user"));
+                content = stringOrNull(message.get("content"));
+            } else {
+                return;
+            }
+            if (id.equals(user) && content != null && content.startsWith(MESSAGE_PREFIX)) {
+                long posted = Long.parseLong(content.substring(MESSAGE_PREFIX.length()));
+                recorders.get(DELIVERY).record(System.nanoTime() - posted, false);
+            }
+        }
+
+        private String stringOrNull(JsonElement element) {
+            return element != null && !element.isJsonNull() ? element.getAsString() : null;
+        }
+    }
+
+    /**
+     * The options of a run, see {@link LoadGenerator}.
+     */
+    public static final class Options {
+        private int clients = 4;
+        private boolean loopback;
+        private double rate = 1000;
+        private long durationNanos = TimeUnit.SECONDS.toNanos(60);
+        private long warmupNanos = TimeUnit.SECONDS.toNanos(10);
+        private long reportIntervalNanos = TimeUnit.SECONDS.toNanos(10);
+        private final Map<Operation, Integer> weights = new LinkedHashMap<>();
+        private int totalWeight;
+        private String[] queries = {"server", "client", "message", "request", "json"};
+        private int maxOutstanding = 1000;
+        private String file;
+
+        private Options() {
+            weights.put(Operation.SEARCH, 70);
+            weights.put(Operation.CONTENT, 10);
+            weights.put(Operation.POST, 20);
+        }
+
+        /**
+         * @throws IllegalArgumentException for an unknown or malformed option
+         */
+        public static Options parse(String... args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --option=value: " + arg);
+                }
+                String value = arg.substring(equals + 1);
+                switch (arg.substring(2, equals)) {
+                    case "clients":
+                        options.clients = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "transport":
+                        if (!value.equals("inprocess") && !value.equals("loopback")) {
+                            throw new IllegalArgumentException("Unknown transport: " + value);
+                        }
+                        options.loopback = value.equals("loopback");
+                        break;
+                    case "rate":
+                        options.rate = Math.max(0, Double.parseDouble(value));
+                        break;
+                    case "duration":
+                        options.durationNanos = parseDuration(value);
+                        break;
+                    case "warmup":
+                        options.warmupNanos = parseDuration(value);
+                        break;
+                    case "report-interval":
+                        options.reportIntervalNanos = Math.max(1, parseDuration(value));
+                        break;
+                    case "mix":
+                        options.parseMix(value);
+                        break;
+                    case "queries":
+                        options.queries = value.split(",");
+                        break;
+                    case "max-outstanding":
+                        options.maxOutstanding = Math.max(1, Integer.parseInt(value));
+                        break;
+                    case "file":
+                        options.file = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            options.totalWeight = options.weights.values().stream().mapToInt(Integer::intValue).sum();
+            if (options.totalWeight <= 0) {
+                throw new IllegalArgumentException("The mix needs a positive weight");
+            }
+            return options;
+        }
+
+        private void parseMix(String mix) {
+            for (Operation operation : Operation.values()) {
+                weights.put(operation, 0);
+            }
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.split("=");
+                Operation operation = null;
+                for (Operation candidate : Operation.values()) {
+                    if (candidate.option.equals(parts[0])) {
+                        operation = candidate;
+                    }
+                }
+                if (operation == null || parts.length != 2) {
+                    throw new IllegalArgumentException("Expected search=W,content=W,post=W: " + mix);
+                }
+                weights.put(operation, Math.max(0, Integer.parseInt(parts[1])));
+            }
+        }
+
+        static long parseDuration(String duration) {
+            if (duration.endsWith("ms")) {
+                return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(duration.substring(0, duration.length() - 2)));
+            }
+            long value = Long.parseLong(duration.substring(0, duration.length() - 1));
+            switch (duration.charAt(duration.length() - 1)) {
+                case 's':
+                    return TimeUnit.SECONDS.toNanos(value);
+                case 'm':
+                    return TimeUnit.MINUTES.toNanos(value);
+                case 'h':
+                    return TimeUnit.HOURS.toNanos(value);
+                default:
+                    throw new IllegalArgumentException("Expected a duration such as 500ms, 30s, 10m or 1h: " + duration);
+            }
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package dev.snowdrop.lsp4j.demo.logging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An SLF4J logger whose events are formatted and written by a background thread, so that the threads serving
+ * requests never wait for the console. Messages use the SLF4J {@code {}} placeholders and are only formatted
+ * when written: a disabled level costs a level check, and the overloads taking up to two arguments keep them in
+ * the event and pass them to the matching SLF4J overload, without an array of arguments.
+ * <p>
+ * The events of every logger go through one bounded queue, keeping their order. When the writer can't keep
+ * up, new events are dropped rather than blocking the caller, and the number of dropped events is logged
+ * once the writer catches up. Errors are never dropped: they are written by the caller instead, ahead of the
+ * queued events. The arguments are formatted later, so they must not be modified once logged.
+ */
+public final class AsyncLogger {
+
+    /**
+     * Events waiting to be written, beyond which they are dropped
+     */
+    public static final int QUEUE_CAPACITY = 16 * 1024;
+
+    private static final BlockingQueue<Event> QUEUE = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private static final AtomicLong PENDING = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncLogger.class);
+
+    static {
+        Thread writer = new Thread(AsyncLogger::write, "jdtls-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1, TimeUnit.SECONDS)));
+    }
+
+    private final Logger delegate;
+
+    private AsyncLogger(Logger delegate) {
+        this.delegate = delegate;
+    }
+
+    public static AsyncLogger getLogger(Class<?> type) {
+        return new AsyncLogger(LoggerFactory.getLogger(type));
+    }
+
+    /**
+     * Waits until the events logged so far are written.
+     *
+     * @return whether they were all written within the timeout
+     */
+    public static boolean flush(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (PENDING.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    public static long getDroppedCount() {
+        return DROPPED.get();
+    }
+
+    private static void write() {
+        long reportedDrops = 0;
+        while (true) {
+            Event event;
+            try {
+                event = QUEUE.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                long drops = DROPPED.get();
+                if (drops > reportedDrops) {
+                    LOG.warn("{} log events were dropped, the console can't keep up", drops - reportedDrops);
+                    reportedDrops = drops;
+                }
+                event.write();
+            } catch (RuntimeException e) {
+                // Keep writing the other events
+            } finally {
+                PENDING.decrementAndGet();
+            }
+        }
+    }
+
+    private void log(Event event) {
+        PENDING.incrementAndGet();
+        if (!QUEUE.offer(event)) {
+            PENDING.decrementAndGet();
+            if (event.level == Level.ERROR) {
+                event.write();
+            } else {
+                DROPPED.incrementAndGet();
+            }
+        }
+    }
+
+    public boolean isDebugEnabled() {
+        return delegate.isDebugEnabled();
+    }
+
+    public boolean isInfoEnabled() {
+        return delegate.isInfoEnabled();
+    }
+
+    public void debug(String message) {
+        if (delegate.isDebugEnabled()) {
+            log(new Event(delegate, Level.DEBUG, message, 0, null, null, null));
+        }
+    }
+
+    public void debug(String format, Object argument) {
+        if (delegate.isDebugEnabled()) {
+            log(new Event(delegate, Level.DEBUG, format, 1, argument, null, null));
+        }
+    }
+
+    public void debug(String format, Object first, Object second) {
+        if (delegate.isDebugEnabled()) {
+            log(new Event(delegate, Level.DEBUG, format, 2, first, second, null));
+        }
+    }
+
+    public void debug(String format, Object... arguments) {
+        if (delegate.isDebugEnabled()) {
+            log(new Event(delegate, Level.DEBUG, format, -1, null, null, arguments));
+        }
+    }
+
+    public void info(String message) {
+        if (delegate.isInfoEnabled()) {
+            log(new Event(delegate, Level.INFO, message, 0, null, null, null));
+        }
+    }
+
+    public void info(String format, Object argument) {
+        if (delegate.isInfoEnabled()) {
+            log(new Event(delegate, Level.INFO, format, 1, argument, null, null));
+        }
+    }
+
+    public void info(String format, Object first, Object second) {
+        if (delegate.isInfoEnabled()) {
+            log(new Event(delegate, Level.INFO, format, 2, first, second, null));
+        }
+    }
+
+    public void info(String format, Object... arguments) {
+        if (delegate.isInfoEnabled()) {
+            log(new Event(delegate, Level.INFO, format, -1, null, null, arguments));
+        }
+    }
+
+    public void warn(String message) {
+        if (delegate.isWarnEnabled()) {
+            log(new Event(delegate, Level.WARN, message, 0, null, null, null));
+        }
+    }
+
+    public void warn(String format, Object argument) {
+        if (delegate.isWarnEnabled()) {
+            log(new Event(delegate, Level.WARN, format, 1, argument, null, null));
+        }
+    }
+
+    public void warn(String format, Object first, Object second) {
+        if (delegate.isWarnEnabled()) {
+            log(new Event(delegate, Level.WARN, format, 2, first, second, null));
+        }
+    }
+
+    public void error(String message) {
+        if (delegate.isErrorEnabled()) {
+            log(new Event(delegate, Level.ERROR, message, 0, null, null, null));
+        }
+    }
+
+    public void error(String format, Object argument) {
+        if (delegate.isErrorEnabled()) {
+            log(new Event(delegate, Level.ERROR, format, 1, argument, null, null));
+        }
+    }
+
+    public void error(String format, Object first, Object second) {
+        if (delegate.isErrorEnabled()) {
+            log(new Event(delegate, Level.ERROR, format, 2, first, second, null));
+        }
+    }
+
+    /**
+     * A message and its arguments: up to two in fields, more in an array
+     */
+    private static final class Event {
+        private final Logger logger;
+        private final Level level;
+        private final String format;
+        /**
+         * The number of arguments held in {@link #first} and {@link #second}, or -1 for {@link #arguments}
+         */
+        private final int argumentCount;
+        private final Object first;
+        private final Object second;
+        private final Object[] arguments;
+
+        Event(Logger logger, Level level, String format, int argumentCount, Object first, Object second,
+            Object[] arguments) {
+            this.logger = logger;
+            this.level = level;
+            this.format = format;
+            this.argumentCount = argumentCount;
+            this.first = first;
+            this.second = second;
+            this.arguments = arguments;
+        }
+
+        void write() {
+            switch (level) {
+                case ERROR:
+                    if (argumentCount == 0) {
+                        logger.error(format);
+                    } else if (argumentCount == 1) {
+                        logger.error(format, first);
+                    } else if (argumentCount == 2) {
+                        logger.error(format, first, second);
+                    } else {
+                        logger.error(format, arguments);
+                    }
+                    break;
+                case WARN:
+                    if (argumentCount == 0) {
+                        logger.warn(format);
+                    } else if (argumentCount == 1) {
+                        logger.warn(format, first);
+                    } else if (argumentCount == 2) {
+                        logger.warn(format, first, second);
+                    } else {
+                        logger.warn(format, arguments);
+                    }
+                    break;
+                case INFO:
+                    if (argumentCount == 0) {
+                        logger.info(format);
+                    } else if (argumentCount == 1) {
+                        logger.info(format, first);
+                    } else if (argumentCount == 2) {
+                        logger.info(format, first, second);
+                    } else {
+                        logger.info(format, arguments);
+                    }
+                    break;
+                default:
+                    if (argumentCount == 0) {
+                        logger.debug(format);
+                    } else if (argumentCount == 1) {
+                        logger.debug(format, first);
+                    } else if (argumentCount == 2) {
+                        logger.debug(format, first, second);
+                    } else {
+                        logger.debug(format, arguments);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A buffered stream whose flushes can be held back while a batch of messages is written, so that the batch
+ * reaches the connection in as few writes as the buffer allows. The launcher flushes after every message.
+ */
+public final class BatchingOutputStream extends BufferedOutputStream {
+
+    private int openBatches;
+
+    public BatchingOutputStream(OutputStream output, int size) {
+        super(output, size);
+    }
+
+    /**
+     * Holds back the flushes until the matching {@link #endBatch()}.
+     */
+    public synchronized void beginBatch() {
+        openBatches++;
+    }
+
+    /**
+     * Flushes what was written since the last flush, unless another batch is still open.
+     */
+    public synchronized void endBatch() throws IOException {
+        if (--openBatches == 0) {
+            super.flush();
+        }
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (openBatches == 0) {
+            super.flush();
+        }
+    }
+}
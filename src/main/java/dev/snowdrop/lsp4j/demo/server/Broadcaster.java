@@ -0,0 +1,401 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Delivers every broadcast message to all the subscribed clients. Broadcasting never blocks: each subscription
+ * has a bounded outbox, drained by a task of its own which hands the pending messages to the client in batches,
+ * so that a client reading slowly only holds back its own deliveries. When an outbox is full, its
+ * {@link OverflowPolicy} decides which message is dropped.
+ * <p>
+ * The outboxes are drained on a virtual thread each when running on Java 21 or later. Otherwise they share a
+ * bounded pool, each drain task handing over one batch before letting the other outboxes go first.
+ * <p>
+ * A client whose delivery doesn't complete within the {@link #setDeliveryTimeoutMillis delivery timeout}, such as
+ * one no longer reading its socket, is unsubscribed and the thread writing to it interrupted, which closes an
+ * interruptible channel. The pool gets a thread in place of each one still held by such a client, so that stalled
+ * clients never take all the threads delivering to the others.
+ *
+ * @param <T> the type of the broadcast messages
+ */
+public final class Broadcaster<T> implements AutoCloseable {
+
+    /**
+     * What happens to the messages of a client that doesn't keep up.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The oldest pending message is dropped to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * The new message is dropped.
+         */
+        DROP_NEWEST,
+        /**
+         * A new message replaces the pending message with the same coalescing key, whether the outbox is full
+         * or not. When the outbox is full of other keys, the oldest pending message is dropped.
+         */
+        COALESCE
+    }
+
+    /**
+     * Messages pending per client
+     */
+    public static final int DEFAULT_OUTBOX_CAPACITY = 1024;
+
+    /**
+     * Maximum number of messages handed to a client at once
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    /**
+     * Threads draining the outboxes when virtual threads are not available
+     */
+    public static final int DEFAULT_DRAIN_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * How long a client may take to accept a batch before it is unsubscribed, by default
+     */
+    public static final long DEFAULT_DELIVERY_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * How often the deliveries in progress are checked against the delivery timeout
+     */
+    private static final long WATCHDOG_INTERVAL_MILLIS = 50;
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(Broadcaster.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Function<? super T, Object> coalescingKey;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+    private volatile long deliveryTimeoutMillis = DEFAULT_DELIVERY_TIMEOUT_MILLIS;
+    private volatile int outboxCapacity = DEFAULT_OUTBOX_CAPACITY;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * @param coalescingKey the key of a message used by {@link OverflowPolicy#COALESCE}
+     */
+    public Broadcaster(Function<? super T, Object> coalescingKey) {
+        this.coalescingKey = coalescingKey;
+        this.executor = newDrainExecutor();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jdtls-broadcast-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkDeliveries, WATCHDOG_INTERVAL_MILLIS, WATCHDOG_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static ExecutorService newDrainExecutor() {
+        try {
+            // Created reflectively since the build targets Java 11
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threads = new AtomicInteger();
+            // At most one task per subscription is queued
+            return new ThreadPoolExecutor(DEFAULT_DRAIN_THREADS, DEFAULT_DRAIN_THREADS, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "jdtls-broadcast-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+    }
+
+    /**
+     * Unsubscribes the clients whose delivery in progress exceeded the delivery timeout.
+     */
+    private void checkDeliveries() {
+        long now = System.nanoTime();
+        long timeout = TimeUnit.MILLISECONDS.toNanos(deliveryTimeoutMillis);
+        for (Subscription subscription : subscriptions) {
+            subscription.checkDelivery(now, timeout);
+        }
+    }
+
+    /**
+     * Adds a thread to the pool in place of one held by a timed out client, or removes it once the client
+     * released it.
+     */
+    private void resizePool(int delta) {
+        if (!(executor instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+        synchronized (pool) {
+            // The core size may never exceed the maximum size
+            if (delta > 0) {
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+            } else {
+                pool.setCorePoolSize(pool.getCorePoolSize() + delta);
+                pool.setMaximumPoolSize(pool.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    /**
+     * Subscribes a client, which receives the messages broadcast from now on.
+     *
+     * @param receiver writes a batch of messages to the client, in broadcast order. A receiver throwing an
+     *                 exception is unsubscribed.
+     */
+    public Subscription subscribe(Consumer<List<T>> receiver) {
+        Subscription subscription = new Subscription(receiver);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Queues a message for every subscribed client, and returns without waiting for any of them.
+     */
+    public void broadcast(T message) {
+        broadcasts.incrementAndGet();
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(message);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getBroadcasts() {
+        return broadcasts.get();
+    }
+
+    /**
+     * @return the number of messages handed to the clients
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of messages dropped or coalesced because a client didn't keep up
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getOutboxCapacity() {
+        return outboxCapacity;
+    }
+
+    public void setOutboxCapacity(int outboxCapacity) {
+        this.outboxCapacity = Math.max(1, outboxCapacity);
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * @return the number of clients unsubscribed because a delivery exceeded the delivery timeout
+     */
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    public long getDeliveryTimeoutMillis() {
+        return deliveryTimeoutMillis;
+    }
+
+    public void setDeliveryTimeoutMillis(long deliveryTimeoutMillis) {
+        this.deliveryTimeoutMillis = Math.max(1, deliveryTimeoutMillis);
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets the policy applied to the messages broadcast from now on. The messages already pending are kept.
+     */
+    public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Unsubscribes every client and stops the deliveries.
+     */
+    @Override
+    public void close() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        watchdog.shutdown();
+        executor.shutdown();
+    }
+
+    /**
+     * The outbox of one client.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final Consumer<List<T>> receiver;
+        // Pending messages in broadcast order, keyed by a sequence number or by their coalescing key
+        private final LinkedHashMap<Object, T> pending = new LinkedHashMap<>();
+        private long sequence;
+        private boolean draining;
+        private volatile boolean closed;
+        // The thread handing a batch to the client and since when, in System.nanoTime(), or null
+        private Thread deliveryThread;
+        private long deliveryStart;
+        private boolean timedOutDelivery;
+
+        private Subscription(Consumer<List<T>> receiver) {
+            this.receiver = receiver;
+        }
+
+        private void offer(T message) {
+            OverflowPolicy policy = overflowPolicy;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                Object key = policy == OverflowPolicy.COALESCE ? coalescingKey.apply(message) : Long.valueOf(sequence++);
+                if (pending.remove(key) != null) {
+                    dropped.incrementAndGet();
+                } else if (pending.size() >= outboxCapacity) {
+                    dropped.incrementAndGet();
+                    if (policy == OverflowPolicy.DROP_NEWEST) {
+                        return;
+                    }
+                    Iterator<T> oldest = pending.values().iterator();
+                    oldest.next();
+                    oldest.remove();
+                }
+                pending.put(key, message);
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // The broadcaster is closed
+                close();
+            }
+        }
+
+        /**
+         * Hands one batch to the client, then queues the rest behind the other outboxes.
+         */
+        private void drain() {
+            List<T> batch;
+            synchronized (this) {
+                if (pending.isEmpty() || closed) {
+                    draining = false;
+                    return;
+                }
+                int size = Math.min(pending.size(), maxBatchSize);
+                batch = new ArrayList<>(size);
+                Iterator<T> messages = pending.values().iterator();
+                while (batch.size() < size) {
+                    batch.add(messages.next());
+                    messages.remove();
+                }
+            }
+            synchronized (this) {
+                deliveryThread = Thread.currentThread();
+                deliveryStart = System.nanoTime();
+            }
+            RuntimeException failure = null;
+            try {
+                receiver.accept(batch);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                deliveryThread = null;
+                if (timedOutDelivery) {
+                    // Already unsubscribed: give the thread back and clear the interrupt meant for the delivery
+                    Thread.interrupted();
+                    resizePool(-1);
+                    return;
+                }
+            }
+            if (failure == null) {
+                delivered.addAndGet(batch.size());
+            } else {
+                LOG.warn("Error delivering messages, unsubscribing the client: {}", failure.getMessage());
+                close();
+            }
+            synchronized (this) {
+                if (pending.isEmpty() || closed) {
+                    draining = false;
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        private void checkDelivery(long now, long timeout) {
+            synchronized (this) {
+                if (deliveryThread == null || timedOutDelivery || now - deliveryStart < timeout) {
+                    return;
+                }
+                timedOutDelivery = true;
+                resizePool(1);
+                // Interrupted while the lock is held, so that it can't hit the thread once the delivery returned
+                deliveryThread.interrupt();
+            }
+            timedOut.incrementAndGet();
+            LOG.warn("A client didn't accept its messages within {} ms, unsubscribing it", deliveryTimeoutMillis);
+            close();
+        }
+
+        /**
+         * @return the number of messages waiting to be handed to the client
+         */
+        public synchronized int getPendingCount() {
+            return pending.size();
+        }
+
+        /**
+         * Unsubscribes the client, dropping its pending messages.
+         */
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+            }
+        }
+    }
+}
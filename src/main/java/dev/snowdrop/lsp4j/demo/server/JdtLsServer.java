@@ -1,9 +1,22 @@
 package dev.snowdrop.lsp4j.demo.server;
 
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.shared.CloseDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.DidChangeParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadTextFileParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadWorkspaceParams;
+import dev.snowdrop.lsp4j.demo.shared.MessagesParams;
+import dev.snowdrop.lsp4j.demo.shared.MetricsParams;
+import dev.snowdrop.lsp4j.demo.shared.OpenDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import dev.snowdrop.lsp4j.demo.shared.WorkspaceSearchParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
 import org.eclipse.lsp4j.jsonrpc.services.JsonNotification;
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.jsonrpc.services.JsonSegment;
 
+import java.util.concurrent.CompletableFuture;
+
 
 @JsonSegment("server")
 public interface JdtLsServer {
@@ -15,4 +28,64 @@ public interface JdtLsServer {
     @JsonNotification
     void postMessage(UserMessage message);
 
-}
\ No newline at end of file
+    /**
+     * The `server/searchText` request searches the loaded text file.
+     */
+    @JsonRequest
+    CompletableFuture<JsonObject> searchText(SearchParams params);
+
+    /**
+     * The `server/getTextContent` request returns the content of the loaded text file.
+     */
+    @JsonRequest
+    CompletableFuture<JsonObject> getTextContent();
+
+    /**
+     * The `server/getMessages` request returns a page of the posted messages.
+     */
+    @JsonRequest
+    CompletableFuture<JsonObject> getMessages(MessagesParams params);
+
+    /**
+     * The `server/loadTextFile` notification replaces the loaded text file.
+     */
+    @JsonNotification
+    void loadTextFile(LoadTextFileParams params);
+
+    /**
+     * The `server/metrics` request reports the metrics of the JSON-RPC methods.
+     */
+    @JsonRequest("metrics")
+    CompletableFuture<JsonObject> metrics(MetricsParams params);
+
+    /**
+     * The `server/loadWorkspace` request adds the files of a directory to the workspace.
+     */
+    @JsonRequest
+    CompletableFuture<JsonObject> loadWorkspace(LoadWorkspaceParams params);
+
+    /**
+     * The `server/searchWorkspace` request searches every document of the workspace.
+     */
+    @JsonRequest
+    CompletableFuture<JsonObject> searchWorkspace(WorkspaceSearchParams params);
+
+    /**
+     * The `server/openDocument` notification adds a file or a text to the workspace.
+     */
+    @JsonNotification
+    void openDocument(OpenDocumentParams params);
+
+    /**
+     * The `server/didChange` notification applies content changes to a workspace document or to the loaded file.
+     */
+    @JsonNotification
+    void didChange(DidChangeParams params);
+
+    /**
+     * The `server/closeDocument` notification removes a document from the workspace.
+     */
+    @JsonNotification
+    void closeDocument(CloseDocumentParams params);
+
+}
@@ -1,57 +1,632 @@
 package dev.snowdrop.lsp4j.demo.server;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+import dev.snowdrop.lsp4j.demo.server.search.EditableTextDocument;
+import dev.snowdrop.lsp4j.demo.server.search.MappedTextDocument;
+import dev.snowdrop.lsp4j.demo.server.search.MatchEngine;
+import dev.snowdrop.lsp4j.demo.server.search.MatchVisitor;
+import dev.snowdrop.lsp4j.demo.server.search.ParallelSearch;
+import dev.snowdrop.lsp4j.demo.server.search.PatternCache;
+import dev.snowdrop.lsp4j.demo.server.search.RegexSearch;
+import dev.snowdrop.lsp4j.demo.server.search.SearchableDocument;
+import dev.snowdrop.lsp4j.demo.server.search.TextDocument;
+import dev.snowdrop.lsp4j.demo.server.search.TrigramIndex;
+import dev.snowdrop.lsp4j.demo.server.search.Workspace;
+import dev.snowdrop.lsp4j.demo.shared.CloseDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.DidChangeParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadTextFileParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadWorkspaceParams;
+import dev.snowdrop.lsp4j.demo.shared.MessagesParams;
+import dev.snowdrop.lsp4j.demo.shared.MetricsParams;
+import dev.snowdrop.lsp4j.demo.shared.OpenDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchResultsParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+import dev.snowdrop.lsp4j.demo.shared.WorkspaceSearchParams;
+import dev.snowdrop.metrics.MetricsRegistry;
+import dev.snowdrop.metrics.OperationMetrics;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
 import org.eclipse.lsp4j.jsonrpc.Endpoint;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.PatternSyntaxException;
 
-public class JdtLsServerEndpoint implements Endpoint {
-    private final List<UserMessage> messages = new CopyOnWriteArrayList<>();
-    private String textFileContent = "";
+public class JdtLsServerEndpoint implements Endpoint, JdtLsServer {
+    /**
+     * Default cap of the estimated memory used by the trigram index: 256 MB
+     */
+    public static final long DEFAULT_TRIGRAM_INDEX_MAX_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Number of matches pushed per `client/searchResults` notification when the client doesn't set a batch size
+     */
+    public static final int DEFAULT_STREAM_BATCH_SIZE = 100;
+
+    /**
+     * Maximum delay before a partially filled batch of streamed matches is pushed to the client
+     */
+    private static final long STREAM_FLUSH_INTERVAL_NANOS = 100_000_000L;
+
+    /**
+     * Files from this size on are memory-mapped instead of being read on the heap: 1 GB
+     */
+    public static final long DEFAULT_MEMORY_MAP_THRESHOLD = 1024L * 1024 * 1024;
+
+    /**
+     * Documents from this length on are searched in parallel chunks: 4 M characters (or bytes when memory-mapped)
+     */
+    public static final long DEFAULT_PARALLEL_SEARCH_THRESHOLD = 4L * 1024 * 1024;
+
+    /**
+     * Default limits of the workspace: 10000 documents using at most 512 MB of heap
+     */
+    public static final int DEFAULT_WORKSPACE_MAX_DOCUMENTS = 10_000;
+    public static final long DEFAULT_WORKSPACE_MEMORY_BUDGET = 512L * 1024 * 1024;
+
+    /**
+     * Default limits of the search result cache: 256 results holding at most 100000 matches in total
+     */
+    public static final int DEFAULT_SEARCH_CACHE_MAX_ENTRIES = 256;
+    public static final long DEFAULT_SEARCH_CACHE_MAX_MATCHES = 100_000;
+
+    /**
+     * Number of compiled regular expressions kept for the regex searches
+     */
+    public static final int DEFAULT_PATTERN_CACHE_SIZE = 128;
+
+    /**
+     * CPU time a regex search may use before it fails: 2 s
+     */
+    public static final long DEFAULT_REGEX_TIME_BUDGET_MILLIS = 2000;
+
+    /**
+     * Number of posted messages kept for `server/getMessages`
+     */
+    public static final int DEFAULT_MESSAGE_RETENTION = 8192;
+
+    /**
+     * Default and maximum number of messages returned per `server/getMessages` page
+     */
+    public static final int DEFAULT_MESSAGES_PAGE_SIZE = 100;
+    public static final int MAX_MESSAGES_PAGE_SIZE = 1000;
+
+    /**
+     * Requests cheap enough to be answered on the thread reading the messages, the others go through the dispatcher
+     */
+    private static final Set<String> INLINE_REQUESTS = Set.of("server/getIndexStats", "server/getCacheStats", "server/getWorkspaceStats",
+        "server/getRequestStats", "server/getBroadcastStats", "server/getMessages", "server/metrics");
+
+    private static final Gson GSON = new Gson();
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(JdtLsServerEndpoint.class);
+
+    private volatile MessageStore messages = new MessageStore(DEFAULT_MESSAGE_RETENTION);
+    private final AtomicLong documentVersion = new AtomicLong();
+    private volatile SearchableDocument document = new TextDocument("");
+    private volatile Endpoint client;
+    private volatile Broadcaster<UserMessage>.Subscription clientSubscription;
+    private final Broadcaster<UserMessage> broadcaster = new Broadcaster<>(UserMessage::getUser);
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private volatile boolean trigramIndexEnabled;
+    private volatile long trigramIndexMaxBytes = DEFAULT_TRIGRAM_INDEX_MAX_BYTES;
+    private volatile long memoryMapThreshold = DEFAULT_MEMORY_MAP_THRESHOLD;
+    private volatile MatchEngine matchEngine = MatchEngine.HORSPOOL;
+    private volatile ForkJoinPool searchPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private volatile long parallelSearchThreshold = DEFAULT_PARALLEL_SEARCH_THRESHOLD;
+    private final Workspace workspace = new Workspace(DEFAULT_WORKSPACE_MAX_DOCUMENTS, DEFAULT_WORKSPACE_MEMORY_BUDGET);
+    private final SearchResultCache searchResultCache = new SearchResultCache(DEFAULT_SEARCH_CACHE_MAX_ENTRIES, DEFAULT_SEARCH_CACHE_MAX_MATCHES);
+    private final PatternCache patternCache = new PatternCache(DEFAULT_PATTERN_CACHE_SIZE);
+    private volatile long regexTimeBudgetMillis = DEFAULT_REGEX_TIME_BUDGET_MILLIS;
+    private volatile RequestDispatcher requestDispatcher = RequestDispatcher.defaultDispatcher();
+    private final MetricsRegistry metrics = new MetricsRegistry();
 
     public JdtLsServerEndpoint() {
         // Load default sample.txt from resources
-        loadTextFile("sample.txt");
-        System.out.println("HelloServerEndpoint initialized with " + messages.size() + " messages");
+        loadTextFile("sample.txt", false);
+        LOG.info("HelloServerEndpoint initialized with {} messages", messages.size());
     }
 
     public JdtLsServerEndpoint(String textFilePath) {
-        loadTextFile(textFilePath);
-        System.out.println("HelloServerEndpoint initialized with " + messages.size() + " messages");
+        this(textFilePath, false);
+    }
+
+    /**
+     * @param trigramIndex whether to build a trigram index of the loaded files, trading memory
+     *                     for sub-linear searches when many queries run against the same document
+     */
+    public JdtLsServerEndpoint(String textFilePath, boolean trigramIndex) {
+        this.trigramIndexEnabled = trigramIndex;
+        loadTextFile(textFilePath, false);
+        LOG.info("HelloServerEndpoint initialized with {} messages", messages.size());
+    }
+
+    /**
+     * Connects the endpoint of the client, used to push notifications such as streamed search results.
+     */
+    public synchronized void connect(Endpoint client) {
+        this.client = client;
+        if (clientSubscription != null) {
+            clientSubscription.close();
+        }
+        clientSubscription = subscribe(client, null);
+    }
+
+    /**
+     * Subscribes a client to the `client/didPostMessage` broadcasts.
+     *
+     * @param output the stream the client's messages are written to, to write each batch at once, or {@code null}
+     */
+    private Broadcaster<UserMessage>.Subscription subscribe(Endpoint remote, BatchingOutputStream output) {
+        return broadcaster.subscribe(batch -> {
+            try {
+                if (output != null) {
+                    output.beginBatch();
+                }
+                try {
+                    for (UserMessage message : batch) {
+                        remote.notify("client/didPostMessage", message);
+                    }
+                } finally {
+                    if (output != null) {
+                        output.endBatch();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
-    private void loadTextFile(String filePath) {
+    /**
+     * Opens a session for a client with its own connection, such as a socket. Sessions share the documents,
+     * caches and messages of this endpoint, but the notifications related to a request (e.g. streamed search
+     * results) are pushed to the client of the session which sent it.
+     */
+    public Session openSession() {
+        Session session = new Session();
+        sessions.add(session);
+        return session;
+    }
+
+    public int getMessageRetention() {
+        return messages.getRetention();
+    }
+
+    /**
+     * Sets the number of posted messages kept, rounded up to a power of two. The messages posted so far are dropped.
+     */
+    public void setMessageRetention(int retention) {
+        messages = new MessageStore(retention);
+    }
+
+    /**
+     * @return the metrics of the JSON-RPC methods, by method name
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the broadcaster of the posted messages, whose outbox capacity and overflow policy can be tuned
+     */
+    public Broadcaster<UserMessage> getBroadcaster() {
+        return broadcaster;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public boolean isTrigramIndexEnabled() {
+        return trigramIndexEnabled;
+    }
+
+    /**
+     * Enables or disables the trigram index, (re)building it for the currently loaded document.
+     */
+    public synchronized void setTrigramIndexEnabled(boolean enabled) {
+        this.trigramIndexEnabled = enabled;
+        setDocument(withTrigramIndex(document));
+    }
+
+    public long getTrigramIndexMaxBytes() {
+        return trigramIndexMaxBytes;
+    }
+
+    /**
+     * Caps the estimated memory of the trigram index. Documents whose index would exceed it are searched by scanning.
+     */
+    public synchronized void setTrigramIndexMaxBytes(long maxBytes) {
+        this.trigramIndexMaxBytes = maxBytes;
+        setDocument(withTrigramIndex(document));
+    }
+
+    public long getMemoryMapThreshold() {
+        return memoryMapThreshold;
+    }
+
+    /**
+     * Files of at least this size are memory-mapped when loaded instead of being read on the heap.
+     */
+    public void setMemoryMapThreshold(long memoryMapThreshold) {
+        this.memoryMapThreshold = memoryMapThreshold;
+    }
+
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    /**
+     * Selects the algorithm matching the queries against in-heap documents, including the one currently loaded.
+     */
+    public synchronized void setMatchEngine(MatchEngine matchEngine) {
+        this.matchEngine = matchEngine;
+        SearchableDocument doc = document;
+        if (doc instanceof TextDocument) {
+            setDocument(((TextDocument) doc).withMatchEngine(matchEngine));
+        }
+    }
+
+    public long getParallelSearchThreshold() {
+        return parallelSearchThreshold;
+    }
+
+    /**
+     * Documents of at least this length (characters, or bytes when memory-mapped) are searched in parallel chunks.
+     */
+    public void setParallelSearchThreshold(long parallelSearchThreshold) {
+        this.parallelSearchThreshold = parallelSearchThreshold;
+    }
+
+    public int getSearchParallelism() {
+        return searchPool.getParallelism();
+    }
+
+    /**
+     * Sets the number of threads searching the chunks of large documents. 1 disables parallel searches.
+     */
+    public synchronized void setSearchParallelism(int parallelism) {
+        // The searches running keep the pool they started with: shutting it down would reject the chunks they still
+        // submit, and its idle workers end on their own
+        searchPool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+
+    /**
+     * @return the documents opened with `server/openDocument` or `server/loadWorkspace`
+     */
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * @return the cache of the `server/searchText` results, emptied whenever the loaded document changes
+     */
+    public SearchResultCache getSearchResultCache() {
+        return searchResultCache;
+    }
+
+    public PatternCache getPatternCache() {
+        return patternCache;
+    }
+
+    public long getRegexTimeBudgetMillis() {
+        return regexTimeBudgetMillis;
+    }
+
+    /**
+     * Sets the CPU time a regex search may use before it fails, 0 for no limit.
+     */
+    public void setRegexTimeBudgetMillis(long regexTimeBudgetMillis) {
+        this.regexTimeBudgetMillis = regexTimeBudgetMillis;
+    }
+
+    public RequestDispatcher getRequestDispatcher() {
+        return requestDispatcher;
+    }
+
+    /**
+     * Sets how requests are run, {@link RequestDispatcher#defaultDispatcher()} by default. The previous dispatcher
+     * is shut down once the requests it runs complete.
+     */
+    public void setRequestDispatcher(RequestDispatcher requestDispatcher) {
+        RequestDispatcher previous = this.requestDispatcher;
+        this.requestDispatcher = requestDispatcher;
+        previous.close();
+    }
+
+    /**
+     * Replaces the loaded document, dropping the search results cached for the previous one.
+     */
+    private void setDocument(SearchableDocument doc) {
+        document = doc;
+        searchResultCache.invalidate();
+    }
+
+    /**
+     * @param regex         whether the query is a regular expression, matched within the CPU-time budget of regex searches
+     * @param maxMatches    the number of matches after which the visitor stops the search, or 0 if it takes them all
+     * @param cancelChecker the checker of the request, polled while searching
+     * @throws CancellationException if the request was cancelled, in which case the visitor only got part of the matches
+     * @see ParallelSearch#search(SearchableDocument, String, boolean, long, int, MatchVisitor)
+     * @see RegexSearch#search(SearchableDocument, java.util.regex.Pattern, long, long, MatchVisitor)
+     */
+    private boolean search(SearchableDocument doc, String query, boolean caseSensitive, boolean regex, long fromOffset,
+                           int maxMatches, CancelChecker cancelChecker, MatchVisitor visitor) {
+        MatchVisitor cancellable = cancellable(visitor, cancelChecker);
+        boolean indexed = false;
+        if (regex) {
+            RegexSearch.search(doc, patternCache.get(query, caseSensitive), fromOffset, regexTimeBudgetMillis * 1_000_000, cancellable);
+        } else {
+            indexed = new ParallelSearch(searchPool, parallelSearchThreshold).search(doc, query, caseSensitive, fromOffset, maxMatches, cancellable);
+        }
+        cancelChecker.checkCanceled();
+        return indexed;
+    }
+
+    private static MatchVisitor cancellable(MatchVisitor visitor, CancelChecker cancelChecker) {
+        return new MatchVisitor() {
+            @Override
+            public boolean onMatch(int line, long offset, int column, int length) {
+                return visitor.onMatch(line, offset, column, length);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelChecker.isCanceled();
+            }
+        };
+    }
+
+    /**
+     * @return the document with a trigram index attached if it is enabled. Memory-mapped documents are not indexed.
+     */
+    private SearchableDocument withTrigramIndex(SearchableDocument doc) {
+        if (!(doc instanceof TextDocument)) {
+            return doc;
+        }
+        TextDocument textDocument = (TextDocument) doc;
+        if (!trigramIndexEnabled) {
+            return textDocument.withTrigramIndex(null);
+        }
+        long start = System.nanoTime();
+        TrigramIndex index = TrigramIndex.build(textDocument, trigramIndexMaxBytes);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (index != null) {
+            LOG.info("Built trigram index: {} trigrams, {} bytes in {} ms", index.getTrigramCount(), index.getMemoryBytes(), elapsedMs);
+        } else {
+            LOG.info("Trigram index exceeds {} bytes, searches will scan the document", trigramIndexMaxBytes);
+        }
+        return textDocument.withTrigramIndex(index);
+    }
+
+    /**
+     * @param memoryMapped whether to memory-map the file whatever its size
+     */
+    private synchronized void loadTextFile(String filePath, boolean memoryMapped) {
+        String textFileContent;
         try {
             // First try to load from classpath/resources
             textFileContent = loadFromResources(filePath);
             if (textFileContent != null) {
-                System.out.println("Loaded text file from resources: " + filePath + " (" + textFileContent.length() + " characters)");
-                return;
-            }
-
-            // If not found in resources, try to load from file system
-            Path path = Paths.get(filePath);
-            if (Files.exists(path)) {
-                textFileContent = Files.readString(path);
-                System.out.println("Loaded text file from filesystem: " + filePath + " (" + textFileContent.length() + " characters)");
+                LOG.info("Loaded text file from resources: {} ({} characters)", filePath, textFileContent.length());
             } else {
-                textFileContent = "Default content - file not found: " + filePath;
-                System.out.println("Text file not found in resources or filesystem: " + filePath + ", using default content");
+                // If not found in resources, try to load from file system
+                Path path = Paths.get(filePath);
+                if (Files.exists(path)) {
+                    setDocument(readDocument(path, memoryMapped));
+                    LOG.info("Loaded text file from filesystem: {} ({} {})", filePath, document.length(),
+                        document instanceof MappedTextDocument ? "bytes, memory-mapped" : "characters");
+                    return;
+                } else {
+                    textFileContent = "Default content - file not found: " + filePath;
+                    LOG.warn("Text file not found in resources or filesystem: {}, using default content", filePath);
+                }
             }
         } catch (IOException e) {
             textFileContent = "Error reading file: " + e.getMessage();
-            System.err.println("Error loading text file: " + e.getMessage());
+            LOG.error("Error loading text file: {}", e.getMessage());
+        }
+        setDocument(newTextDocument(textFileContent));
+    }
+
+    /**
+     * Reads a file, memory-mapping it if it is large or if requested so.
+     */
+    private SearchableDocument readDocument(Path path, boolean memoryMapped) throws IOException {
+        if (memoryMapped || Files.size(path) >= memoryMapThreshold) {
+            // Searched in place, nothing but the matched lines is decoded on the heap
+            return MappedTextDocument.open(path, documentVersion.incrementAndGet());
+        }
+        return newTextDocument(Files.readString(path));
+    }
+
+    private SearchableDocument newTextDocument(String content) {
+        // Build the line-offset table once, so that searches don't have to split the content again
+        return withTrigramIndex(new TextDocument(content, documentVersion.incrementAndGet()).withMatchEngine(matchEngine));
+    }
+
+    /**
+     * Applies LSP-style content changes to the loaded document, or to the workspace document with the given URI.
+     * The document is turned into an {@link EditableTextDocument} on its first change; from then on each change
+     * only rebuilds the blocks of lines it touches, trigram fingerprints included. Memory-mapped documents are
+     * read-only: turning them into an editable one would decode the whole file on the heap, so their changes are
+     * rejected.
+     *
+     * @param uri     the workspace document to change, or {@code null} for the loaded document
+     * @param changes the changes, applied in order. A change without a range replaces the whole content.
+     */
+    private synchronized void applyChanges(String uri, List<TextDocumentContentChangeEvent> changes) {
+        SearchableDocument current = uri != null ? workspace.get(uri) : document;
+        if (current == null) {
+            LOG.warn("Ignoring changes to unknown document: {}", uri);
+            return;
+        }
+        if (current instanceof MappedTextDocument) {
+            LOG.warn("Rejecting changes to {}: memory-mapped documents are read-only, reload the file to edit it",
+                uri != null ? uri : "the loaded document");
+            return;
+        }
+        EditableTextDocument edited = current instanceof EditableTextDocument
+            ? (EditableTextDocument) current
+            : EditableTextDocument.of(current.getContent(), current.getVersion(), matchEngine);
+        long version = documentVersion.incrementAndGet();
+        for (TextDocumentContentChangeEvent change : changes) {
+            Range range = change.getRange();
+            if (range != null) {
+                edited = edited.applyEdit(range.getStart().getLine(), range.getStart().getCharacter(),
+                    range.getEnd().getLine(), range.getEnd().getCharacter(), change.getText(), version);
+            } else {
+                edited = edited.replaceAll(change.getText(), version);
+            }
+        }
+
+        if (uri != null) {
+            workspace.put(uri, edited);
+        } else {
+            setDocument(edited);
+        }
+        LOG.debug("Applied {} change(s) to {}, now at version {} ({} lines)", changes.size(), uri != null ? uri : "the loaded document",
+            version, edited.getLineCount());
+    }
+
+    /**
+     * Adds every regular file under the directory to the workspace. Files which are not valid UTF-8 text are skipped.
+     */
+    private JsonObject loadWorkspace(String directory) throws IOException {
+        JsonObject result = new JsonObject();
+        Path root = Paths.get(directory);
+        if (!Files.isDirectory(root)) {
+            result.addProperty("error", "Not a directory: " + directory);
+            return result;
+        }
+
+        long evictionsBefore = workspace.getEvictions();
+        int loaded = 0;
+        int skipped = 0;
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
         }
+        for (Path file : files) {
+            try {
+                workspace.put(file.toUri().toString(), readDocument(file, false));
+                loaded++;
+            } catch (IOException e) {
+                skipped++;
+                LOG.warn("Skipping {}: {}", file, e.getMessage());
+            }
+        }
+        LOG.info("Loaded {} documents from {} into the workspace", loaded, directory);
+
+        result.addProperty("loaded", loaded);
+        result.addProperty("skipped", skipped);
+        result.addProperty("evicted", workspace.getEvictions() - evictionsBefore);
+        result.add("workspace", getWorkspaceStats());
+        return result;
+    }
+
+    /**
+     * Searches every document of the workspace concurrently and groups the matches by document URI.
+     *
+     * @param maxMatchesPerDocument the maximum number of matches returned per document, or 0 for all of them
+     */
+    private JsonObject searchWorkspace(String query, boolean caseSensitive, int maxMatchesPerDocument, CancelChecker cancelChecker) {
+        JsonObject result = new JsonObject();
+        if (query == null || query.trim().isEmpty()) {
+            result.addProperty("error", "Search query cannot be empty");
+            return result;
+        }
+
+        List<Workspace.Entry> entries = workspace.entries();
+        entries.sort(Comparator.comparing(Workspace.Entry::getUri));
+        List<CompletableFuture<JsonObject>> searches = new ArrayList<>(entries.size());
+        ForkJoinPool pool = searchPool;
+        for (Workspace.Entry entry : entries) {
+            searches.add(CompletableFuture.supplyAsync(() -> searchDocument(entry, query, caseSensitive, maxMatchesPerDocument, cancelChecker), pool));
+        }
+
+        JsonArray documents = new JsonArray();
+        int totalMatches = 0;
+        for (CompletableFuture<JsonObject> search : searches) {
+            if (cancelChecker.isCanceled()) {
+                searches.forEach(pending -> pending.cancel(false));
+                result.addProperty("error", "Search cancelled");
+                return result;
+            }
+            JsonObject documentResult = search.join();
+            int documentMatches = documentResult.get("totalMatches").getAsInt();
+            if (documentMatches > 0) {
+                documents.add(documentResult);
+                totalMatches += documentMatches;
+            }
+        }
+
+        result.addProperty("query", query);
+        result.addProperty("caseSensitive", caseSensitive);
+        result.addProperty("totalMatches", totalMatches);
+        result.addProperty("searchedDocuments", entries.size());
+        result.addProperty("searchTime", System.currentTimeMillis());
+        result.add("documents", documents);
+        LOG.debug("Workspace search completed: found {} matches for '{}' in {} of {} documents", totalMatches, query,
+            documents.size(), entries.size());
+        return result;
+    }
+
+    private JsonObject searchDocument(Workspace.Entry entry, String query, boolean caseSensitive, int maxMatches, CancelChecker cancelChecker) {
+        SearchableDocument doc = entry.getDocument();
+        JsonArray matches = new JsonArray();
+        boolean[] truncated = {false};
+        doc.search(query, caseSensitive, 0, cancellable((lineNum, offset, column, length) -> {
+            if (maxMatches > 0 && matches.size() == maxMatches) {
+                truncated[0] = true;
+                return false;
+            }
+            matches.add(toMatch(doc, lineNum, column, length));
+            return true;
+        }, cancelChecker));
+
+        JsonObject result = new JsonObject();
+        result.addProperty("uri", entry.getUri());
+        result.addProperty("totalMatches", matches.size());
+        result.addProperty("truncated", truncated[0]);
+        result.add("matches", matches);
+        return result;
+    }
+
+    private JsonObject getWorkspaceStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("documents", workspace.size());
+        stats.addProperty("memoryBytes", workspace.getMemoryBytes());
+        stats.addProperty("memoryBudget", workspace.getMemoryBudget());
+        stats.addProperty("maxDocuments", workspace.getMaxDocuments());
+        stats.addProperty("evictions", workspace.getEvictions());
+        return stats;
     }
 
     private String loadFromResources(String resourcePath) {
@@ -60,164 +635,700 @@ public class JdtLsServerEndpoint implements Endpoint {
                 return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
             }
         } catch (IOException e) {
-            System.err.println("Error loading resource: " + resourcePath + " - " + e.getMessage());
+            LOG.error("Error loading resource: {} - {}", resourcePath, e.getMessage());
         }
         return null;
     }
 
+    /**
+     * Handles a request whose parameter is either typed, as deserialized by a launcher knowing the methods of
+     * {@link JdtLsServer}, or a JSON tree.
+     */
+    private interface RequestHandler {
+        JsonObject handle(JdtLsServerEndpoint server, Object parameter, Endpoint remote, CancelChecker cancelChecker) throws Exception;
+    }
+
+    private interface NotificationHandler {
+        void handle(JdtLsServerEndpoint server, Object parameter) throws Exception;
+    }
+
+    /**
+     * The handlers of the requests, looked up by method name
+     */
+    private static final Map<String, RequestHandler> REQUESTS = Map.ofEntries(
+        Map.entry("server/getTextContent", (server, parameter, remote, cancelChecker) -> server.textContent()),
+        Map.entry("server/searchText", (server, parameter, remote, cancelChecker) ->
+            server.searchText(params(parameter, SearchParams.class), remote, cancelChecker)),
+        Map.entry("server/getIndexStats", (server, parameter, remote, cancelChecker) -> server.getIndexStats()),
+        Map.entry("server/getCacheStats", (server, parameter, remote, cancelChecker) -> server.getCacheStats()),
+        Map.entry("server/getRequestStats", (server, parameter, remote, cancelChecker) -> server.getRequestStats()),
+        Map.entry("server/getMessages", (server, parameter, remote, cancelChecker) ->
+            server.readMessages(params(parameter, MessagesParams.class))),
+        Map.entry("server/getBroadcastStats", (server, parameter, remote, cancelChecker) -> server.getBroadcastStats()),
+        Map.entry("server/metrics", (server, parameter, remote, cancelChecker) ->
+            server.readMetrics(params(parameter, MetricsParams.class))),
+        Map.entry("server/loadWorkspace", (server, parameter, remote, cancelChecker) ->
+            server.openWorkspace(params(parameter, LoadWorkspaceParams.class))),
+        Map.entry("server/searchWorkspace", (server, parameter, remote, cancelChecker) ->
+            server.searchWorkspace(params(parameter, WorkspaceSearchParams.class), cancelChecker)),
+        Map.entry("server/getWorkspaceStats", (server, parameter, remote, cancelChecker) -> server.getWorkspaceStats()));
+
+    /**
+     * The handlers of the notifications, looked up by method name
+     */
+    private static final Map<String, NotificationHandler> NOTIFICATIONS = Map.of(
+        "server/postMessage", (server, parameter) -> server.postMessage(parameter),
+        "server/loadTextFile", (server, parameter) -> server.openTextFile(params(parameter, LoadTextFileParams.class)),
+        "server/openDocument", (server, parameter) -> server.addDocument(params(parameter, OpenDocumentParams.class)),
+        "server/didChange", (server, parameter) -> server.changeDocument(params(parameter, DidChangeParams.class)),
+        "server/closeDocument", (server, parameter) -> server.removeDocument(params(parameter, CloseDocumentParams.class)));
+
+    /**
+     * @return the parameter as the given type, converting a JSON tree, or {@code null} if it is neither
+     */
+    private static <T> T params(Object parameter, Class<T> type) {
+        if (type.isInstance(parameter)) {
+            return type.cast(parameter);
+        }
+        return parameter instanceof JsonElement ? GSON.fromJson((JsonElement) parameter, type) : null;
+    }
+
+    /**
+     * Estimates the length of the JSON of a parameter or result, without serializing it. Escaped characters
+     * are counted once. The typed parameters are estimated from their string fields plus the length of their
+     * other members; only the parameters of the LSP lifecycle methods, which are rare, are converted to a JSON tree.
+     */
+    private static long payloadSize(Object payload) {
+        if (payload == null || payload instanceof JsonNull) {
+            return 4;
+        }
+        if (payload instanceof UserMessage) {
+            // Posted at high rates: skip converting it to a JSON tree
+            UserMessage message = (UserMessage) payload;
+            return 24 + length(message.getUser()) + length(message.getContent());
+        }
+        if (payload instanceof SearchParams) {
+            SearchParams params = (SearchParams) payload;
+            return 60 + length(params.getQuery()) + length(params.getCursor()) + length(params.getPartialResultToken());
+        }
+        if (payload instanceof WorkspaceSearchParams) {
+            return 60 + length(((WorkspaceSearchParams) payload).getQuery());
+        }
+        if (payload instanceof OpenDocumentParams) {
+            OpenDocumentParams params = (OpenDocumentParams) payload;
+            return 48 + length(params.getUri()) + length(params.getFilePath()) + length(params.getText());
+        }
+        if (payload instanceof DidChangeParams) {
+            DidChangeParams params = (DidChangeParams) payload;
+            long size = 40 + (params.getTextDocument() != null ? length(params.getTextDocument().getUri()) : 0);
+            if (params.getContentChanges() != null) {
+                for (TextDocumentContentChangeEvent change : params.getContentChanges()) {
+                    // The range takes about 70 characters
+                    size += 12 + (change.getRange() != null ? 70 : 0) + length(change.getText());
+                }
+            }
+            return size;
+        }
+        if (payload instanceof CloseDocumentParams) {
+            return 10 + length(((CloseDocumentParams) payload).getUri());
+        }
+        if (payload instanceof LoadWorkspaceParams) {
+            return 16 + length(((LoadWorkspaceParams) payload).getDirectory());
+        }
+        if (payload instanceof LoadTextFileParams) {
+            return 36 + length(((LoadTextFileParams) payload).getFilePath());
+        }
+        if (payload instanceof MetricsParams) {
+            return 13 + length(((MetricsParams) payload).getFormat());
+        }
+        if (payload instanceof MessagesParams) {
+            return 40;
+        }
+        if (payload instanceof String) {
+            return ((String) payload).length() + 2;
+        }
+        if (payload instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) payload;
+            return primitive.getAsString().length() + (primitive.isString() ? 2 : 0);
+        }
+        if (payload instanceof JsonArray) {
+            JsonArray array = (JsonArray) payload;
+            long size = 1 + Math.max(1, array.size());
+            for (JsonElement element : array) {
+                size += payloadSize(element);
+            }
+            return size;
+        }
+        if (payload instanceof JsonObject) {
+            Set<Map.Entry<String, JsonElement>> members = ((JsonObject) payload).entrySet();
+            long size = 1 + Math.max(1, members.size());
+            for (Map.Entry<String, JsonElement> member : members) {
+                size += member.getKey().length() + 3 + payloadSize(member.getValue());
+            }
+            return size;
+        }
+        return payloadSize(GSON.toJsonTree(payload));
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 4;
+    }
+
+    private static JsonObject error(String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        return error;
+    }
+
     @Override
     public CompletableFuture<?> request(String method, Object parameter) {
-        System.out.println("Server request called - Method: " + method);
+        return request(method, parameter, client);
+    }
 
-        try {
-            switch (method) {
-                case "server/getTextContent":
-                    System.out.println("Getting text content - length: " + textFileContent.length());
-                    JsonObject response = new JsonObject();
-                    response.addProperty("content", textFileContent);
-                    response.addProperty("length", textFileContent.length());
-                    return CompletableFuture.completedFuture(response);
-
-                case "server/searchText":
-                    System.out.println("Processing text search request...");
-                    if (parameter instanceof JsonObject) {
-                        JsonObject searchParam = (JsonObject) parameter;
-                        String query = searchParam.get("query").getAsString();
-                        boolean caseSensitive = searchParam.has("caseSensitive") ? searchParam.get("caseSensitive").getAsBoolean() : false;
-                        System.out.println("Searching for: '" + query + "' (case sensitive: " + caseSensitive + ")");
-                        return CompletableFuture.completedFuture(searchTextInFile(query, caseSensitive));
-                    } else {
-                        JsonObject error = new JsonObject();
-                        error.addProperty("error", "Search requires a JSON object with 'query' field");
-                        return CompletableFuture.completedFuture(error);
-                    }
+    @Override
+    public CompletableFuture<JsonObject> searchText(SearchParams params) {
+        return request("server/searchText", params, client);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getTextContent() {
+        return request("server/getTextContent", null, client);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getMessages(MessagesParams params) {
+        return request("server/getMessages", params, client);
+    }
 
-                default:
-                    System.out.println("Unknown request method: " + method);
-                    JsonObject error = new JsonObject();
-                    error.addProperty("error", "Unknown method: " + method);
-                    return CompletableFuture.completedFuture(error);
+    @Override
+    public void loadTextFile(LoadTextFileParams params) {
+        notify("server/loadTextFile", params);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> metrics(MetricsParams params) {
+        return request("server/metrics", params, client);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> loadWorkspace(LoadWorkspaceParams params) {
+        return request("server/loadWorkspace", params, client);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> searchWorkspace(WorkspaceSearchParams params) {
+        return request("server/searchWorkspace", params, client);
+    }
+
+    @Override
+    public void openDocument(OpenDocumentParams params) {
+        notify("server/openDocument", params);
+    }
+
+    @Override
+    public void didChange(DidChangeParams params) {
+        notify("server/didChange", params);
+    }
+
+    @Override
+    public void closeDocument(CloseDocumentParams params) {
+        notify("server/closeDocument", params);
+    }
+
+    /**
+     * @param remote the endpoint of the client sending the request, which notifications related to it are pushed to
+     */
+    private CompletableFuture<JsonObject> request(String method, Object parameter, Endpoint remote) {
+        RequestHandler handler = REQUESTS.get(method);
+        if (handler == null) {
+            LOG.warn("Unknown request method: {}", method);
+            return CompletableFuture.completedFuture(error("Unknown method: " + method));
+        }
+        OperationMetrics methodMetrics = metrics.operation(method);
+        long start = methodMetrics.start();
+        methodMetrics.recordRequestSize(payloadSize(parameter));
+        CompletableFuture<JsonObject> result;
+        if (INLINE_REQUESTS.contains(method)) {
+            result = handleRequest(method, handler, parameter, remote, RequestDispatcher.NOT_CANCELLABLE);
+        } else {
+            result = requestDispatcher.dispatch(cancelChecker -> handleRequest(method, handler, parameter, remote, cancelChecker));
+        }
+        result.whenComplete((response, error) -> {
+            methodMetrics.stop(start, error != null || response.has("error"));
+            if (response != null) {
+                methodMetrics.recordResponseSize(payloadSize(response));
             }
+        });
+        return result;
+    }
+
+    /**
+     * @param cancelChecker reports whether the client cancelled the request, which long requests poll to stop early
+     */
+    private CompletableFuture<JsonObject> handleRequest(String method, RequestHandler handler, Object parameter, Endpoint remote,
+                                                        CancelChecker cancelChecker) {
+        LOG.debug("Server request called - Method: {}", method);
+        try {
+            return CompletableFuture.completedFuture(handler.handle(this, parameter, remote, cancelChecker));
         } catch (Exception e) {
-            System.err.println("Error handling request: " + e.getMessage());
-            JsonObject error = new JsonObject();
-            error.addProperty("error", e.getMessage());
-            return CompletableFuture.completedFuture(error);
+            LOG.error("Error handling request {}: {}", method, e.getMessage());
+            return CompletableFuture.completedFuture(error(e.getMessage()));
         }
     }
 
+    private JsonObject textContent() {
+        SearchableDocument current = document;
+        LOG.debug("Getting text content - length: {}", current.length());
+        JsonObject response = new JsonObject();
+        response.addProperty("content", current.getContent());
+        response.addProperty("length", current.length());
+        return response;
+    }
+
+    private JsonObject searchText(SearchParams params, Endpoint remote, CancelChecker cancelChecker) {
+        if (params == null || params.getQuery() == null) {
+            return error("Search requires a JSON object with 'query' field");
+        }
+        String query = params.getQuery();
+        boolean caseSensitive = params.isCaseSensitive();
+        LOG.debug("Searching for: '{}' (case sensitive: {})", query, caseSensitive);
+        if (params.getPartialResultToken() != null) {
+            int batchSize = params.getBatchSize() != null ? params.getBatchSize() : DEFAULT_STREAM_BATCH_SIZE;
+            return streamSearchResults(query, caseSensitive, params.isRegex(), params.getPartialResultToken(), batchSize, remote, cancelChecker);
+        }
+        return cachedSearchTextInFile(query, caseSensitive, params.isRegex(), params.getCursor(), params.getLimit(), cancelChecker);
+    }
+
+    private JsonObject openWorkspace(LoadWorkspaceParams params) throws IOException {
+        if (params == null || params.getDirectory() == null) {
+            return error("Loading a workspace requires a JSON object with 'directory' field");
+        }
+        return loadWorkspace(params.getDirectory());
+    }
+
+    private JsonObject searchWorkspace(WorkspaceSearchParams params, CancelChecker cancelChecker) {
+        if (params == null || params.getQuery() == null) {
+            return error("Search requires a JSON object with 'query' field");
+        }
+        LOG.debug("Searching workspace for: '{}' (case sensitive: {})", params.getQuery(), params.isCaseSensitive());
+        return searchWorkspace(params.getQuery(), params.isCaseSensitive(), params.getMaxMatchesPerDocument(), cancelChecker);
+    }
+
     @Override
     public void notify(String method, Object parameter) {
-        System.out.println("Server notify called - Method: " + method + ", Parameter type: " + (parameter != null ? parameter.getClass().getSimpleName() : "null"));
+        LOG.debug("Server notify called - Method: {}", method);
 
+        NotificationHandler handler = NOTIFICATIONS.get(method);
+        if (handler == null) {
+            LOG.warn("Unknown notify method: {}", method);
+            return;
+        }
+        OperationMetrics methodMetrics = metrics.operation(method);
+        long start = methodMetrics.start();
+        methodMetrics.recordRequestSize(payloadSize(parameter));
+        boolean failed = false;
         try {
-            switch (method) {
-                case "server/postMessage":
-                    System.out.println("Processing postMessage notification...");
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        System.out.println("JsonObject parameter: " + jsonParam);
-                        String user = jsonParam.get("user").getAsString();
-                        String content = jsonParam.get("content").getAsString();
-                        UserMessage message = new UserMessage(user, content);
-                        messages.add(message);
-                        System.out.println("Successfully added message from " + user + ": " + content + " (total messages: " + messages.size() + ")");
-                    } else if (parameter instanceof UserMessage) {
-                        messages.add((UserMessage) parameter);
-                        System.out.println("Added UserMessage: " + parameter + " (total messages: " + messages.size() + ")");
-                    } else {
-                        System.out.println("Unexpected parameter type for postMessage: " + parameter + " (type: " + (parameter != null ? parameter.getClass().getName() : "null") + ")");
-                    }
-                    break;
-
-                case "server/loadTextFile":
-                    if (parameter instanceof JsonObject) {
-                        JsonObject jsonParam = (JsonObject) parameter;
-                        String filePath = jsonParam.get("filePath").getAsString();
-                        loadTextFile(filePath);
-                    } else if (parameter instanceof String) {
-                        loadTextFile((String) parameter);
-                    }
-                    break;
-
-                default:
-                    System.out.println("Unknown notify method: " + method);
-            }
+            handler.handle(this, parameter);
         } catch (Exception e) {
-            System.err.println("Error handling notification: " + e.getMessage());
+            failed = true;
+            LOG.error("Error handling notification {}: {}", method, e.getMessage());
+        } finally {
+            methodMetrics.stop(start, failed);
+        }
+    }
+
+    @Override
+    public void postMessage(UserMessage message) {
+        notify("server/postMessage", message);
+    }
+
+    private void postMessage(Object parameter) {
+        UserMessage message = params(parameter, UserMessage.class);
+        if (message == null) {
+            LOG.warn("Unexpected parameter type for postMessage: {}", parameter != null ? parameter.getClass().getName() : null);
+            return;
         }
+        messages.append(message);
+        broadcaster.broadcast(message);
+        LOG.debug("Added message from {}", message.getUser());
+    }
+
+    private void openTextFile(LoadTextFileParams params) {
+        if (params != null && params.getFilePath() != null) {
+            loadTextFile(params.getFilePath(), params.isMemoryMapped());
+        }
+    }
+
+    private void addDocument(OpenDocumentParams params) throws IOException {
+        if (params == null) {
+            return;
+        }
+        if (params.getFilePath() != null) {
+            Path path = Paths.get(params.getFilePath());
+            String uri = params.getUri() != null ? params.getUri() : path.toUri().toString();
+            workspace.put(uri, readDocument(path, params.isMemoryMapped()));
+        } else {
+            workspace.put(params.getUri(), newTextDocument(params.getText()));
+        }
+    }
+
+    private void changeDocument(DidChangeParams params) {
+        if (params != null && params.getContentChanges() != null) {
+            applyChanges(params.getTextDocument() != null ? params.getTextDocument().getUri() : null, params.getContentChanges());
+        }
+    }
+
+    private void removeDocument(CloseDocumentParams params) {
+        if (params != null) {
+            workspace.remove(params.getUri());
+        }
+    }
+
+    /**
+     * Returns the cached result of the same search on the same document version, or runs the search and caches
+     * its result. Failed searches are not cached. The cache holds its own copies, so that callers may change the
+     * results they get, and cached results report the time they are served at.
+     */
+    private JsonObject cachedSearchTextInFile(String query, boolean caseSensitive, boolean regex, String cursor, int limit,
+                                              CancelChecker cancelChecker) {
+        SearchableDocument doc = document;
+        long version = doc.getVersion();
+        JsonObject cached = searchResultCache.get(version, query, caseSensitive, regex, cursor, limit);
+        if (cached != null) {
+            LOG.debug("Search result for '{}' served from the cache", query);
+            JsonObject result = cached.deepCopy();
+            result.addProperty("searchTime", System.currentTimeMillis());
+            return result;
+        }
+        JsonObject result = searchTextInFile(doc, query, caseSensitive, regex, cursor, limit, cancelChecker);
+        if (!result.has("error")) {
+            searchResultCache.put(version, query, caseSensitive, regex, cursor, limit, result.deepCopy());
+        }
+        return result;
     }
 
     /**
-     * Searches for text within the loaded file content and returns detailed match information
+     * Searches for text within the loaded file content and returns detailed match information.
+     * Matching runs over the original buffer using the precomputed line-offset table, so only
+     * the returned matches allocate.
+     * <p>
+     * When a {@code limit} is given, at most that many matches are returned together with a
+     * {@code nextCursor} to pass back in order to fetch the following page.
+     *
+     * @param regex  whether the query is a regular expression rather than a literal
+     * @param cursor the cursor returned by the previous page, or {@code null} to start from the beginning
+     * @param limit  the maximum number of matches to return, or 0 for all of them
      */
-    private JsonObject searchTextInFile(String query, boolean caseSensitive) {
+    private JsonObject searchTextInFile(SearchableDocument doc, String query, boolean caseSensitive, boolean regex, String cursor, int limit,
+                                        CancelChecker cancelChecker) {
         JsonObject result = new JsonObject();
         JsonArray matches = new JsonArray();
 
-        if (textFileContent == null || textFileContent.isEmpty()) {
-            result.addProperty("error", "No text content loaded");
+        String error = validateSearch(doc, query);
+        if (error != null) {
+            result.addProperty("error", error);
             return result;
         }
 
-        if (query == null || query.trim().isEmpty()) {
-            result.addProperty("error", "Search query cannot be empty");
+        try {
+            long fromOffset = 0;
+            if (cursor != null) {
+                fromOffset = parseCursor(doc, cursor);
+                if (fromOffset < 0) {
+                    result.addProperty("error", "Invalid or expired cursor: " + cursor);
+                    return result;
+                }
+            }
+
+            long[] nextOffset = {-1};
+            int maxMatches = limit > 0 ? limit + 1 : 0;
+            boolean indexed = search(doc, query, caseSensitive, regex, fromOffset, maxMatches, cancelChecker, (lineNum, offset, column, length) -> {
+                if (limit > 0 && matches.size() == limit) {
+                    // One more match exists: remember where the next page starts
+                    nextOffset[0] = offset;
+                    return false;
+                }
+                matches.add(toMatch(doc, lineNum, column, length));
+                return true;
+            });
+
+            // Build result summary
+            result.addProperty("query", query);
+            result.addProperty("caseSensitive", caseSensitive);
+            result.addProperty("regex", regex);
+            result.addProperty("totalMatches", matches.size());
+            result.addProperty("totalLines", doc.getLineCount());
+            result.addProperty("indexed", indexed);
+            result.addProperty("searchTime", System.currentTimeMillis());
+            if (limit > 0) {
+                result.addProperty("hasMore", nextOffset[0] >= 0);
+                if (nextOffset[0] >= 0) {
+                    result.addProperty("nextCursor", doc.getVersion() + ":" + nextOffset[0]);
+                }
+            }
+            result.add("matches", matches);
+
+            LOG.debug("Search completed: found {} matches for '{}'", matches.size(), query);
+
+        } catch (PatternSyntaxException e) {
+            result.addProperty("error", "Invalid regular expression: " + e.getDescription());
+        } catch (CancellationException e) {
+            result.addProperty("error", "Search cancelled");
+            LOG.debug("Search for '{}' cancelled", query);
+        } catch (Exception e) {
+            result.addProperty("error", "Search failed: " + e.getMessage());
+            LOG.error("Search error: {}", e.getMessage());
+        }
+
+        return result;
+    }
+
+    /**
+     * Searches for text within the loaded file content and pushes the matches to the connected client
+     * as `client/searchResults` notifications while the search runs. Only one batch is held in memory
+     * at a time; the response only carries the summary of the search.
+     */
+    private JsonObject streamSearchResults(String query, boolean caseSensitive, boolean regex, String token, int batchSize, Endpoint remote,
+                                           CancelChecker cancelChecker) {
+        JsonObject result = new JsonObject();
+        SearchableDocument doc = document;
+
+        String error = validateSearch(doc, query);
+        if (error == null && remote == null) {
+            error = "Streaming search results requires a connected client";
+        }
+        if (error != null) {
+            result.addProperty("error", error);
             return result;
         }
 
         try {
-            String[] lines = textFileContent.split("\\r?\\n");
-            String searchQuery = caseSensitive ? query : query.toLowerCase();
-
-            int totalMatches = 0;
-
-            // Search line by line for better context and line numbers
-            for (int lineNum = 0; lineNum < lines.length; lineNum++) {
-                String line = lines[lineNum];
-                String searchLine = caseSensitive ? line : line.toLowerCase();
-
-                int index = 0;
-                while ((index = searchLine.indexOf(searchQuery, index)) != -1) {
-                    JsonObject match = new JsonObject();
-                    match.addProperty("lineNumber", lineNum + 1);
-                    match.addProperty("columnStart", index + 1);
-                    match.addProperty("columnEnd", index + query.length());
-                    match.addProperty("matchedText", line.substring(index, index + query.length()));
-
-                    // Provide context - show the full line
-                    match.addProperty("lineContent", line);
-
-                    // Provide broader context if available (previous and next lines)
-                    JsonObject context = new JsonObject();
-                    if (lineNum > 0) {
-                        context.addProperty("previousLine", lines[lineNum - 1]);
-                    }
-                    if (lineNum < lines.length - 1) {
-                        context.addProperty("nextLine", lines[lineNum + 1]);
-                    }
-                    match.add("context", context);
+            int size = Math.max(1, batchSize);
+            JsonArray[] batch = {new JsonArray()};
+            int[] counters = {0, 0}; // total matches, batches sent
+            long[] lastFlush = {System.nanoTime()};
 
-                    matches.add(match);
-                    totalMatches++;
-                    index += query.length(); // Move past this match
+            boolean indexed = search(doc, query, caseSensitive, regex, 0, 0, cancelChecker, (lineNum, offset, column, length) -> {
+                batch[0].add(toMatch(doc, lineNum, column, length));
+                counters[0]++;
+                // The first match is pushed right away, then full batches or whatever was found within the flush interval
+                long now = System.nanoTime();
+                if (counters[1] == 0 || batch[0].size() >= size || now - lastFlush[0] >= STREAM_FLUSH_INTERVAL_NANOS) {
+                    sendSearchResults(remote, token, counters[1]++, batch[0]);
+                    batch[0] = new JsonArray();
+                    lastFlush[0] = now;
                 }
+                return true;
+            });
+            if (batch[0].size() > 0) {
+                sendSearchResults(remote, token, counters[1]++, batch[0]);
             }
 
-            // Build result summary
             result.addProperty("query", query);
             result.addProperty("caseSensitive", caseSensitive);
-            result.addProperty("totalMatches", totalMatches);
-            result.addProperty("totalLines", lines.length);
+            result.addProperty("regex", regex);
+            result.addProperty("partialResultToken", token);
+            result.addProperty("totalMatches", counters[0]);
+            result.addProperty("batches", counters[1]);
+            result.addProperty("totalLines", doc.getLineCount());
+            result.addProperty("indexed", indexed);
             result.addProperty("searchTime", System.currentTimeMillis());
-            result.add("matches", matches);
 
-            System.out.println("Search completed: found " + totalMatches + " matches for '" + query + "'");
+            LOG.debug("Search completed: streamed {} matches for '{}' in {} batches", counters[0], query, counters[1]);
 
+        } catch (PatternSyntaxException e) {
+            result.addProperty("error", "Invalid regular expression: " + e.getDescription());
+        } catch (CancellationException e) {
+            result.addProperty("error", "Search cancelled");
+            LOG.debug("Search for '{}' cancelled", query);
         } catch (Exception e) {
             result.addProperty("error", "Search failed: " + e.getMessage());
-            System.err.println("Search error: " + e.getMessage());
+            LOG.error("Search error: {}", e.getMessage());
+        }
+
+        return result;
+    }
+
+    private void sendSearchResults(Endpoint remote, String token, int batchIndex, JsonArray matches) {
+        remote.notify("client/searchResults", new SearchResultsParams(token, batchIndex, matches));
+    }
+
+    private static String validateSearch(SearchableDocument doc, String query) {
+        if (doc.length() == 0) {
+            return "No text content loaded";
+        }
+        if (query == null || query.trim().isEmpty()) {
+            return "Search query cannot be empty";
+        }
+        return null;
+    }
+
+    /**
+     * @return the offset to resume the search from, or -1 if the cursor is malformed or the document changed since it was issued
+     */
+    private static long parseCursor(SearchableDocument doc, String cursor) {
+        int separator = cursor.indexOf(':');
+        if (separator < 0) {
+            return -1;
+        }
+        try {
+            long version = Long.parseLong(cursor.substring(0, separator));
+            long offset = Long.parseLong(cursor.substring(separator + 1));
+            return version == doc.getVersion() && doc.isValidOffset(offset) ? offset : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static JsonObject toMatch(SearchableDocument doc, int lineNum, int column, int length) {
+        String line = doc.lineText(lineNum);
+
+        JsonObject match = new JsonObject();
+        match.addProperty("lineNumber", lineNum + 1);
+        match.addProperty("columnStart", column + 1);
+        match.addProperty("columnEnd", column + length);
+        match.addProperty("matchedText", line.substring(column, column + length));
+
+        // Provide context - show the full line
+        match.addProperty("lineContent", line);
+
+        // Provide broader context if available (previous and next lines)
+        JsonObject context = new JsonObject();
+        if (lineNum > 0) {
+            context.addProperty("previousLine", doc.lineText(lineNum - 1));
+        }
+        if (lineNum < doc.getLineCount() - 1) {
+            context.addProperty("nextLine", doc.lineText(lineNum + 1));
         }
+        match.add("context", context);
+        return match;
+    }
+
+    private JsonObject getCacheStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("entries", searchResultCache.size());
+        stats.addProperty("maxEntries", searchResultCache.getMaxEntries());
+        stats.addProperty("matches", searchResultCache.getMatches());
+        stats.addProperty("maxMatches", searchResultCache.getMaxMatches());
+        stats.addProperty("hits", searchResultCache.getHits());
+        stats.addProperty("misses", searchResultCache.getMisses());
+        stats.addProperty("evictions", searchResultCache.getEvictions());
+        stats.addProperty("patterns", patternCache.size());
+        stats.addProperty("patternHits", patternCache.getHits());
+        stats.addProperty("patternMisses", patternCache.getMisses());
+        return stats;
+    }
 
+    private JsonObject getRequestStats() {
+        RequestDispatcher dispatcher = requestDispatcher;
+        JsonObject stats = new JsonObject();
+        stats.addProperty("dispatcher", dispatcher.toString());
+        stats.addProperty("dispatched", dispatcher.getDispatched());
+        stats.addProperty("active", dispatcher.getActive());
+        stats.addProperty("cancelled", dispatcher.getCancelled());
+        stats.addProperty("rejected", dispatcher.getRejected());
+        return stats;
+    }
+
+    /**
+     * Returns a page of the posted messages, from the `since` sequence number (0 by default) on. The next page
+     * starts at the returned `nextSequence`; `truncated` tells that messages of the requested range were dropped.
+     */
+    private JsonObject readMessages(MessagesParams params) {
+        long since = params != null ? params.getSince() : 0;
+        int limit = params != null && params.getLimit() != null ? params.getLimit() : DEFAULT_MESSAGES_PAGE_SIZE;
+        return messages.read(since, Math.max(0, Math.min(limit, MAX_MESSAGES_PAGE_SIZE))).toJson();
+    }
+
+    /**
+     * Reports the metrics of the JSON-RPC methods, along with those recorded in the process-wide registry, such
+     * as the Maven model builds, as JSON with the latencies in microseconds. With `{"format": "text"}`, the
+     * metrics are returned as `text` in the Prometheus exposition format instead.
+     */
+    private JsonObject readMetrics(MetricsParams params) {
+        SortedMap<String, OperationMetrics> operations = MetricsRegistry.getDefault().getOperations();
+        operations.putAll(metrics.getOperations());
+        JsonObject result = new JsonObject();
+        if (params != null && "text".equals(params.getFormat())) {
+            result.addProperty("text", MetricsRegistry.toText("jdtls", operations));
+        } else {
+            result.add("operations", MetricsRegistry.toJson(operations));
+        }
         return result;
     }
+
+    private JsonObject getBroadcastStats() {
+        JsonObject stats = new JsonObject();
+        stats.addProperty("subscribers", broadcaster.getSubscriberCount());
+        stats.addProperty("broadcasts", broadcaster.getBroadcasts());
+        stats.addProperty("delivered", broadcaster.getDelivered());
+        stats.addProperty("dropped", broadcaster.getDropped());
+        stats.addProperty("timedOut", broadcaster.getTimedOut());
+        stats.addProperty("outboxCapacity", broadcaster.getOutboxCapacity());
+        stats.addProperty("overflowPolicy", broadcaster.getOverflowPolicy().name());
+        return stats;
+    }
+
+    /**
+     * Reports whether the trigram index is enabled and built, and how much memory it uses
+     */
+    private JsonObject getIndexStats() {
+        SearchableDocument doc = document;
+        TrigramIndex index = doc instanceof TextDocument ? ((TextDocument) doc).getTrigramIndex() : null;
+        JsonObject stats = new JsonObject();
+        stats.addProperty("enabled", trigramIndexEnabled);
+        stats.addProperty("built", index != null);
+        stats.addProperty("trigrams", index != null ? index.getTrigramCount() : 0);
+        stats.addProperty("memoryBytes", index != null ? index.getMemoryBytes() : 0);
+        stats.addProperty("maxBytes", trigramIndexMaxBytes);
+        return stats;
+    }
+
+    /**
+     * The endpoint of one client connection, see {@link #openSession()}.
+     */
+    public final class Session implements Endpoint {
+        private volatile Endpoint remote;
+        private volatile Broadcaster<UserMessage>.Subscription subscription;
+
+        private Session() {
+        }
+
+        /**
+         * Connects the endpoint of the client of this session.
+         */
+        public void connect(Endpoint remote) {
+            connect(remote, null);
+        }
+
+        /**
+         * Connects the endpoint of the client of this session, whose broadcast messages are written in batches.
+         *
+         * @param output the stream the remote endpoint writes to
+         */
+        public synchronized void connect(Endpoint remote, BatchingOutputStream output) {
+            this.remote = remote;
+            if (subscription != null) {
+                subscription.close();
+            }
+            subscription = subscribe(remote, output);
+        }
+
+        @Override
+        public CompletableFuture<?> request(String method, Object parameter) {
+            return JdtLsServerEndpoint.this.request(method, parameter, remote);
+        }
+
+        @Override
+        public void notify(String method, Object parameter) {
+            JdtLsServerEndpoint.this.notify(method, parameter);
+        }
+
+        public synchronized void close() {
+            sessions.remove(this);
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
 }
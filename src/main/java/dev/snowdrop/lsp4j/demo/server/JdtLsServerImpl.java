@@ -1,15 +1,111 @@
 package dev.snowdrop.lsp4j.demo.server;
 
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.client.JdtLsClient;
+import dev.snowdrop.lsp4j.demo.shared.CloseDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.DidChangeParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadTextFileParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadWorkspaceParams;
+import dev.snowdrop.lsp4j.demo.shared.MessagesParams;
+import dev.snowdrop.lsp4j.demo.shared.MetricsParams;
+import dev.snowdrop.lsp4j.demo.shared.OpenDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import dev.snowdrop.lsp4j.demo.shared.WorkspaceSearchParams;
 import dev.snowdrop.lsp4j.demo.shared.UserMessage;
 
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
 
 public class JdtLsServerImpl implements JdtLsServer {
-    private final List<UserMessage> messages = new CopyOnWriteArrayList<>();
+    private final MessageStore messages = new MessageStore(JdtLsServerEndpoint.DEFAULT_MESSAGE_RETENTION);
+    private final Broadcaster<UserMessage> broadcaster = new Broadcaster<>(UserMessage::getUser);
+
+    /**
+     * Connects a client, which receives the messages posted from now on.
+     *
+     * @return the subscription of the client, to close when it disconnects
+     */
+    public Broadcaster<UserMessage>.Subscription connect(JdtLsClient client) {
+        return broadcaster.subscribe(batch -> batch.forEach(client::didPostMessage));
+    }
 
     @Override
     public void postMessage(UserMessage message) {
-        messages.add(message);
+        messages.append(message);
+        broadcaster.broadcast(message);
+    }
+
+    /**
+     * This server has no text file to search, see {@link JdtLsServerEndpoint}.
+     */
+    @Override
+    public CompletableFuture<JsonObject> searchText(SearchParams params) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", "No text content loaded");
+        return CompletableFuture.completedFuture(error);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getTextContent() {
+        JsonObject response = new JsonObject();
+        response.addProperty("content", "");
+        response.addProperty("length", 0);
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> getMessages(MessagesParams params) {
+        long since = params != null ? params.getSince() : 0;
+        int limit = params != null && params.getLimit() != null ? params.getLimit() : JdtLsServerEndpoint.DEFAULT_MESSAGES_PAGE_SIZE;
+        int pageSize = Math.max(0, Math.min(limit, JdtLsServerEndpoint.MAX_MESSAGES_PAGE_SIZE));
+        return CompletableFuture.completedFuture(messages.read(since, pageSize).toJson());
+    }
+
+    @Override
+    public void loadTextFile(LoadTextFileParams params) {
+    }
+
+    /**
+     * This server records no metrics, see {@link JdtLsServerEndpoint}.
+     */
+    @Override
+    public CompletableFuture<JsonObject> metrics(MetricsParams params) {
+        JsonObject response = new JsonObject();
+        response.add("operations", new JsonObject());
+        return CompletableFuture.completedFuture(response);
+    }
+
+    /**
+     * This server has no workspace, see {@link JdtLsServerEndpoint}.
+     */
+    @Override
+    public CompletableFuture<JsonObject> loadWorkspace(LoadWorkspaceParams params) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", "No workspace support");
+        return CompletableFuture.completedFuture(error);
+    }
+
+    @Override
+    public CompletableFuture<JsonObject> searchWorkspace(WorkspaceSearchParams params) {
+        return loadWorkspace(null);
+    }
+
+    @Override
+    public void openDocument(OpenDocumentParams params) {
+    }
+
+    @Override
+    public void didChange(DidChangeParams params) {
+    }
+
+    @Override
+    public void closeDocument(CloseDocumentParams params) {
+    }
+
+    public MessageStore getMessages() {
+        return messages;
+    }
+
+    public Broadcaster<UserMessage> getBroadcaster() {
+        return broadcaster;
     }
 }
@@ -0,0 +1,180 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the latest posted messages in a lock-free ring buffer. Each message gets a sequence number, increasing
+ * from 0, and overwrites the oldest one once the buffer is full, so appending costs the same whatever the size
+ * of the history. Pages of the history are read from a sequence number without copying the whole buffer.
+ */
+public final class MessageStore {
+
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    /**
+     * @param retention the number of messages kept, rounded up to a power of two
+     */
+    public MessageStore(int retention) {
+        int capacity = retention <= 1 ? 1 : Integer.highestOneBit(retention - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the sequence number of the message
+     */
+    public long append(UserMessage message) {
+        long sequence = nextSequence.getAndIncrement();
+        int index = (int) (sequence & mask);
+        Entry entry = new Entry(sequence, message);
+        Entry current;
+        do {
+            current = slots.get(index);
+            if (current != null && current.sequence > sequence) {
+                // Overtaken by a message a whole buffer later
+                return sequence;
+            }
+        } while (!slots.compareAndSet(index, current, entry));
+        return sequence;
+    }
+
+    /**
+     * Reads the messages from a sequence number on, in order. Messages which were overwritten are skipped, and
+     * the page stops before a message still being appended.
+     *
+     * @param since the sequence number of the first message to read
+     * @param limit the maximum number of messages to read
+     */
+    public Page read(long since, int limit) {
+        long end = nextSequence.get();
+        long oldest = Math.max(0, end - slots.length());
+        long sequence = Math.max(since, oldest);
+        List<Entry> entries = new ArrayList<>(Math.max(0, (int) Math.min(limit, end - sequence)));
+        while (sequence < end && entries.size() < limit) {
+            Entry entry = slots.get((int) (sequence & mask));
+            if (entry == null || entry.sequence < sequence) {
+                // Not appended yet
+                break;
+            }
+            if (entry.sequence == sequence) {
+                entries.add(entry);
+            }
+            // Otherwise overwritten while reading
+            sequence++;
+        }
+        return new Page(entries, sequence, oldest, since < oldest);
+    }
+
+    /**
+     * @return the number of messages kept
+     */
+    public int size() {
+        return (int) Math.min(nextSequence.get(), slots.length());
+    }
+
+    /**
+     * @return the number of messages kept at most
+     */
+    public int getRetention() {
+        return slots.length();
+    }
+
+    /**
+     * @return the sequence number the next message will get, which is also the number of messages ever appended
+     */
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    /**
+     * A message and its sequence number.
+     */
+    public static final class Entry {
+        private final long sequence;
+        private final UserMessage message;
+
+        private Entry(long sequence, UserMessage message) {
+            this.sequence = sequence;
+            this.message = message;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public UserMessage getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * A page of the history.
+     */
+    public static final class Page {
+        private final List<Entry> entries;
+        private final long nextSequence;
+        private final long oldestSequence;
+        private final boolean truncated;
+
+        private Page(List<Entry> entries, long nextSequence, long oldestSequence, boolean truncated) {
+            this.entries = entries;
+            this.nextSequence = nextSequence;
+            this.oldestSequence = oldestSequence;
+            this.truncated = truncated;
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the sequence number to read the following page from
+         */
+        public long getNextSequence() {
+            return nextSequence;
+        }
+
+        /**
+         * @return the sequence number of the oldest message kept when the page was read
+         */
+        public long getOldestSequence() {
+            return oldestSequence;
+        }
+
+        /**
+         * @return whether messages from the requested sequence number on were already dropped
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * @return the page as returned by `server/getMessages`
+         */
+        public JsonObject toJson() {
+            JsonArray messages = new JsonArray();
+            for (Entry entry : entries) {
+                JsonObject message = new JsonObject();
+                message.addProperty("sequence", entry.getSequence());
+                message.addProperty("user", entry.getMessage().getUser());
+                message.addProperty("content", entry.getMessage().getContent());
+                messages.add(message);
+            }
+            JsonObject result = new JsonObject();
+            result.add("messages", messages);
+            result.addProperty("nextSequence", nextSequence);
+            result.addProperty("oldestSequence", oldestSequence);
+            result.addProperty("truncated", truncated);
+            return result;
+        }
+    }
+}
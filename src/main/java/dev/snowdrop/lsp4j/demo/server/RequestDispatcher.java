@@ -0,0 +1,204 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonObject;
+import org.eclipse.lsp4j.jsonrpc.CancelChecker;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs the long requests of {@link JdtLsServerEndpoint} off the JSON-RPC reader thread, so that a slow
+ * search doesn't hold back the requests received after it. Requests run either on a bounded pool of
+ * platform threads, or on a virtual thread each when running on Java 21 or later.
+ * <p>
+ * Cancelling the future of a dispatched request, as lsp4j does on {@code $/cancelRequest}, drops it if it is
+ * still queued and otherwise flags its {@link CancelChecker}, which the handler polls to stop early.
+ * <p>
+ * Virtual threads are created reflectively since the build targets Java 11.
+ */
+public final class RequestDispatcher implements AutoCloseable {
+
+    /**
+     * Requests waiting for a thread of a bounded pool, beyond which they are rejected
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    /**
+     * The checker of requests which can't be cancelled
+     */
+    static final CancelChecker NOT_CANCELLABLE = () -> {
+    };
+
+    private final String name;
+    private final ExecutorService executor;
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RequestDispatcher(String name, ExecutorService executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    /**
+     * @return a dispatcher running the requests on the calling thread, as if there were none
+     */
+    public static RequestDispatcher inline() {
+        return new RequestDispatcher("inline", null);
+    }
+
+    /**
+     * @param threads       the number of threads running requests
+     * @param queueCapacity the number of requests waiting for a thread, beyond which requests are rejected
+     */
+    public static RequestDispatcher pool(int threads, int queueCapacity) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "jdtls-request-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return new RequestDispatcher("pool of " + threads + " threads", executor);
+    }
+
+    /**
+     * @return a dispatcher starting a virtual thread per request
+     * @throws UnsupportedOperationException before Java 21
+     */
+    public static RequestDispatcher virtualThreads() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new RequestDispatcher("virtual threads", executor);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later", e);
+        }
+    }
+
+    /**
+     * @return virtual threads when available, otherwise a pool with a thread per processor
+     */
+    public static RequestDispatcher defaultDispatcher() {
+        try {
+            return virtualThreads();
+        } catch (UnsupportedOperationException e) {
+            return pool(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+        }
+    }
+
+    /**
+     * Runs a request handler, whose future completes once the handler has run and its own future completed.
+     * Requests rejected because the queue is full complete with an error.
+     * <p>
+     * The handler gets a {@link CancelChecker} reporting whether the returned future was cancelled. Requests
+     * dispatched inline can't be cancelled: the thread which would read the cancellation runs them.
+     */
+    public CompletableFuture<JsonObject> dispatch(Function<CancelChecker, CompletableFuture<JsonObject>> handler) {
+        dispatched.incrementAndGet();
+        if (executor == null) {
+            return handler.apply(NOT_CANCELLABLE);
+        }
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                cancelled.incrementAndGet();
+            }
+        });
+        CancelChecker cancelChecker = new CancelChecker() {
+            @Override
+            public void checkCanceled() {
+                if (result.isCancelled()) {
+                    throw new CancellationException();
+                }
+            }
+
+            @Override
+            public boolean isCanceled() {
+                return result.isCancelled();
+            }
+        };
+        try {
+            executor.execute(() -> run(handler, cancelChecker, result));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            JsonObject error = new JsonObject();
+            error.addProperty("error", "Server is busy, try again later");
+            result.complete(error);
+        }
+        return result;
+    }
+
+    private void run(Function<CancelChecker, CompletableFuture<JsonObject>> handler, CancelChecker cancelChecker,
+                     CompletableFuture<JsonObject> result) {
+        if (result.isDone()) {
+            // Cancelled while queued
+            return;
+        }
+        active.incrementAndGet();
+        CompletableFuture<JsonObject> future;
+        try {
+            future = handler.apply(cancelChecker);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            active.decrementAndGet();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    /**
+     * @return the number of requests dispatched so far
+     */
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    /**
+     * @return the number of requests currently running, not counting the queued ones nor the inline ones
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * @return the number of requests cancelled by their client
+     */
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * @return the number of requests rejected because the queue was full
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
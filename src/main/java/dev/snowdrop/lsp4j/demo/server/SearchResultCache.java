@@ -0,0 +1,161 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * Results of `server/searchText`, keyed by the search parameters and the version of the searched document,
+ * so that a result can never be served for another content. Entries are evicted in least-recently-used
+ * order once the cache holds too many results or too many matches in total.
+ * <p>
+ * Cached results are shared between the requests they are returned to and must not be modified.
+ */
+public final class SearchResultCache {
+
+    private final LinkedHashMap<Key, Entry> results = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxEntries;
+    private long maxMatches;
+    private long matches;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxEntries the maximum number of cached results, 0 disables the cache
+     * @param maxMatches the maximum number of matches of all the cached results
+     */
+    public SearchResultCache(int maxEntries, long maxMatches) {
+        this.maxEntries = maxEntries;
+        this.maxMatches = maxMatches;
+    }
+
+    /**
+     * @return the cached result, or {@code null} if the search has to run
+     */
+    public synchronized JsonObject get(long version, String query, boolean caseSensitive, boolean regex, String cursor, int limit) {
+        Entry entry = results.get(new Key(version, query, caseSensitive, regex, cursor, limit));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.result;
+    }
+
+    public synchronized void put(long version, String query, boolean caseSensitive, boolean regex, String cursor, int limit, JsonObject result) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry = new Entry(result, result.has("totalMatches") ? result.get("totalMatches").getAsInt() : 0);
+        Entry previous = results.put(new Key(version, query, caseSensitive, regex, cursor, limit), entry);
+        if (previous != null) {
+            matches -= previous.matches;
+        }
+        matches += entry.matches;
+        evict();
+    }
+
+    /**
+     * Drops every result, to be called whenever the searched document is replaced.
+     */
+    public synchronized void invalidate() {
+        results.clear();
+        matches = 0;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = results.values().iterator();
+        while (!results.isEmpty() && (results.size() > maxEntries || matches > maxMatches)) {
+            matches -= eldest.next().matches;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized long getMatches() {
+        return matches;
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        evict();
+    }
+
+    public synchronized long getMaxMatches() {
+        return maxMatches;
+    }
+
+    public synchronized void setMaxMatches(long maxMatches) {
+        this.maxMatches = maxMatches;
+        evict();
+    }
+
+    private static final class Key {
+        private final long version;
+        private final String query;
+        private final boolean caseSensitive;
+        private final boolean regex;
+        private final String cursor;
+        private final int limit;
+
+        Key(long version, String query, boolean caseSensitive, boolean regex, String cursor, int limit) {
+            this.version = version;
+            this.query = query;
+            this.caseSensitive = caseSensitive;
+            this.regex = regex;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return version == key.version && caseSensitive == key.caseSensitive && regex == key.regex && limit == key.limit
+                && query.equals(key.query) && Objects.equals(cursor, key.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, query, caseSensitive, regex, cursor, limit);
+        }
+    }
+
+    private static final class Entry {
+        private final JsonObject result;
+        private final int matches;
+
+        Entry(JsonObject result, int matches) {
+            this.result = result;
+            this.matches = matches;
+        }
+    }
+}
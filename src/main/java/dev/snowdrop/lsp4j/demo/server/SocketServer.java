@@ -0,0 +1,337 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import dev.snowdrop.lsp4j.demo.client.JdtLsClient;
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.MessageProducer;
+import org.eclipse.lsp4j.jsonrpc.json.ConcurrentMessageProcessor;
+import org.eclipse.lsp4j.jsonrpc.json.JsonRpcMethod;
+import org.eclipse.lsp4j.jsonrpc.services.ServiceEndpoints;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves a {@link JdtLsServerEndpoint} to any number of clients connecting over TCP or Unix domain sockets.
+ * A single thread accepts the connections of every bound address with a {@link Selector}; each connection
+ * then gets its own {@link Launcher}, bound to a {@link JdtLsServerEndpoint.Session}, reading and writing the
+ * socket channel directly instead of going through size-limited piped streams. Connections are read by blocking
+ * threads, one per connection, which also close the session once the connection ends. The parameters of the methods of
+ * {@link JdtLsServer} are deserialized into their types while reading, while the session routes every method
+ * through the handler table of the endpoint rather than through reflection.
+ * <p>
+ * Unix domain sockets require Java 16 or later; their addresses and channels are created reflectively since the build
+ * targets Java 11.
+ */
+public final class SocketServer implements AutoCloseable {
+
+    /**
+     * Size of the buffer messages are written through, flushed after every message or batch of broadcast messages
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(SocketServer.class);
+
+    private static final Map<String, JsonRpcMethod> SERVER_METHODS = ServiceEndpoints.getSupportedMethods(JdtLsServer.class);
+
+    private final JdtLsServerEndpoint endpoint;
+    private final Selector selector;
+    private final List<ServerSocketChannel> serverChannels = new CopyOnWriteArrayList<>();
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor;
+    private final List<Path> socketFiles = new CopyOnWriteArrayList<>();
+    private volatile Thread acceptThread;
+
+    public SocketServer(JdtLsServerEndpoint endpoint) throws IOException {
+        this.endpoint = endpoint;
+        this.selector = Selector.open();
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "jdtls-connection-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Listens on a TCP address. Use port 0 to pick a free port.
+     *
+     * @return the bound address
+     */
+    public InetSocketAddress bindTcp(InetSocketAddress address) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(address);
+        register(channel);
+        return (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    /**
+     * Listens on a Unix domain socket, replacing the socket file if it already exists. The file is deleted on close.
+     */
+    public void bindUnix(Path path) throws IOException {
+        ServerSocketChannel channel = openUnix(ServerSocketChannel.class);
+        Files.deleteIfExists(path);
+        channel.bind(unixAddress(path));
+        socketFiles.add(path);
+        register(channel);
+    }
+
+    /**
+     * Opens a client connection to a Unix domain socket, blocking.
+     */
+    public static SocketChannel connectUnix(Path path) throws IOException {
+        SocketChannel channel = openUnix(SocketChannel.class);
+        channel.connect(unixAddress(path));
+        return channel;
+    }
+
+    /**
+     * Calls {@code open(ProtocolFamily)} of {@link ServerSocketChannel} or {@link SocketChannel} with the Unix protocol family.
+     */
+    private static <T> T openUnix(Class<T> channelType) throws IOException {
+        ProtocolFamily unix;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later");
+        }
+        try {
+            return channelType.cast(channelType.getMethod("open", ProtocolFamily.class).invoke(null, unix));
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later", e);
+        }
+    }
+
+    private static SocketAddress unixAddress(Path path) {
+        try {
+            return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class).invoke(null, path);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Unix domain sockets require Java 16 or later", e);
+        }
+    }
+
+    private void register(ServerSocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        serverChannels.add(channel);
+        // Registering blocks while the accept thread is selecting: wake it up, it waits for the lock before selecting again
+        synchronized (this) {
+            selector.wakeup();
+            channel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    /**
+     * Starts accepting connections on a background thread.
+     */
+    public synchronized void start() {
+        if (acceptThread != null) {
+            return;
+        }
+        acceptThread = new Thread(this::acceptLoop, "jdtls-accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void acceptLoop() {
+        try {
+            while (selector.isOpen()) {
+                selector.select();
+                synchronized (this) {
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (key.isValid() && key.isAcceptable()) {
+                            accept((ServerSocketChannel) key.channel());
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // Closed by close()
+        } catch (IOException e) {
+            LOG.error("Error accepting connections: {}", e.getMessage());
+        }
+    }
+
+    private void accept(ServerSocketChannel serverChannel) {
+        SocketChannel connection = null;
+        try {
+            connection = serverChannel.accept();
+            if (connection != null) {
+                serve(connection);
+            }
+        } catch (IOException e) {
+            LOG.error("Error accepting a connection: {}", e.getMessage());
+            if (connection != null) {
+                connections.remove(connection);
+                closeQuietly(connection);
+            }
+        }
+    }
+
+    private void serve(SocketChannel connection) throws IOException {
+        connection.configureBlocking(true);
+        connections.add(connection);
+        JdtLsServerEndpoint.Session session = endpoint.openSession();
+        BatchingOutputStream output = new BatchingOutputStream(new ChannelOutputStream(connection), OUTPUT_BUFFER_SIZE);
+        CompletableFuture<Void> disconnected = new CompletableFuture<>();
+        Launcher<JdtLsClient> launcher = new Launcher.Builder<JdtLsClient>() {
+                @Override
+                protected Map<String, JsonRpcMethod> getSupportedMethods() {
+                    // Parameters of the methods of JdtLsServer are deserialized into their types straight from the stream
+                    Map<String, JsonRpcMethod> methods = new LinkedHashMap<>(super.getSupportedMethods());
+                    methods.putAll(SERVER_METHODS);
+                    return methods;
+                }
+
+                @Override
+                protected ConcurrentMessageProcessor createMessageProcessor(MessageProducer reader,
+                    MessageConsumer messageConsumer, JdtLsClient remoteProxy) {
+                    // The reader thread completes the disconnection itself, rather than another thread waiting for it
+                    return new ConcurrentMessageProcessor(reader, messageConsumer) {
+                        @Override
+                        protected void processingEnded() {
+                            super.processingEnded();
+                            disconnected.complete(null);
+                        }
+                    };
+                }
+            }
+            .setLocalService(session)
+            .setRemoteInterface(JdtLsClient.class)
+            .setInput(new ChannelInputStream(connection))
+            .setOutput(output)
+            .setExecutorService(executor)
+            .create();
+        session.connect(launcher.getRemoteEndpoint(), output);
+        LOG.info("Client connected from {} ({} sessions)", connection.getRemoteAddress(), endpoint.getSessionCount());
+
+        // Ends once the connection is closed or broken
+        disconnected.whenComplete((result, failure) -> {
+            session.close();
+            connections.remove(connection);
+            closeQuietly(connection);
+            LOG.info("Client disconnected ({} sessions)", endpoint.getSessionCount());
+        });
+        launcher.startListening();
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        selector.close();
+        for (ServerSocketChannel channel : serverChannels) {
+            closeQuietly(channel);
+        }
+        for (SocketChannel connection : connections) {
+            closeQuietly(connection);
+        }
+        for (Path socketFile : socketFiles) {
+            Files.deleteIfExists(socketFile);
+        }
+        executor.shutdown();
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Nothing more to do
+        }
+    }
+
+    /**
+     * Reads a blocking channel. Unlike {@link java.nio.channels.Channels#newInputStream}, it doesn't lock the
+     * channel, so that the launcher can write responses while its reader thread waits for the next message.
+     */
+    static final class ChannelInputStream extends InputStream {
+        private final SocketChannel channel;
+
+        ChannelInputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            return channel.read(ByteBuffer.wrap(bytes, offset, length));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes a blocking channel, see {@link ChannelInputStream}.
+     */
+    static final class ChannelOutputStream extends OutputStream {
+        private final SocketChannel channel;
+
+        ChannelOutputStream(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
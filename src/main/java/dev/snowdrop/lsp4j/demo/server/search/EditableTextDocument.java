@@ -0,0 +1,325 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An in-heap document supporting LSP-style range edits, stored as a rope of lines: a flat array of
+ * immutable blocks holding up to {@link #MAX_BLOCK_LINES} lines each. Every snapshot is immutable;
+ * an edit only rebuilds the blocks it touches and shares the others with the previous snapshot, so
+ * small edits to large documents stay cheap and concurrent searches keep a consistent view.
+ * <p>
+ * Each block carries a fingerprint of the (case-folded) trigrams of its lines, rebuilt along with
+ * the block. Searches skip the blocks which lack one of the query trigrams, so this search index
+ * is kept up to date incrementally by the edits.
+ * <p>
+ * Offsets encode the line in their high 32 bits and the column in their low 32 bits. Edits number
+ * lines like LSP does: a document ending with a line terminator has a last, empty, line. Like
+ * {@link TextDocument}, the trailing empty lines aren't counted by {@link #getLineCount()}. Each
+ * line keeps its own terminator, so an edit leaves the line endings of the other lines unchanged.
+ */
+public final class EditableTextDocument implements SearchableDocument {
+
+    /**
+     * Blocks are split when an edit makes them larger than this, and rebuilt with half of it
+     */
+    static final int MAX_BLOCK_LINES = 1024;
+    private static final int TARGET_BLOCK_LINES = MAX_BLOCK_LINES / 2;
+
+    /**
+     * Bits of the trigram fingerprint of a block
+     */
+    private static final int FINGERPRINT_BITS = 4096;
+
+    // Line terminators, shared by all the lines
+    private static final String NONE = "";
+    private static final String LF = "\n";
+    private static final String CRLF = "\r\n";
+
+    private final Block[] blocks;
+    private final int[] blockStarts;
+    private final int lineCount;
+    private final int visibleLineCount;
+    private final long length;
+    private final long version;
+    private final MatchEngine matchEngine;
+
+    private EditableTextDocument(Block[] blocks, long version, MatchEngine matchEngine) {
+        this.blocks = blocks;
+        this.version = version;
+        this.matchEngine = matchEngine;
+        this.blockStarts = new int[blocks.length];
+        int lines = 0;
+        long chars = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            blockStarts[i] = lines;
+            lines += blocks[i].lines.length;
+            chars += blocks[i].chars;
+        }
+        this.lineCount = lines;
+        this.length = chars;
+        // Drop trailing empty lines, like TextDocument does
+        int visible = lines;
+        while (visible > 1 && lineText(visible - 1).isEmpty()) {
+            visible--;
+        }
+        this.visibleLineCount = visible;
+    }
+
+    /**
+     * Splits the content into blocks, each line keeping its terminator.
+     */
+    public static EditableTextDocument of(String content, long version, MatchEngine matchEngine) {
+        return new EditableTextDocument(toBlocks(splitLines(content)), version, matchEngine);
+    }
+
+    /**
+     * @return the lines of the text, each followed by its terminator, the last one having none
+     */
+    private static Lines splitLines(String text) {
+        Lines lines = new Lines();
+        int start = 0;
+        int newLine;
+        while ((newLine = text.indexOf('\n', start)) != -1) {
+            boolean crlf = newLine > start && text.charAt(newLine - 1) == '\r';
+            lines.add(text.substring(start, crlf ? newLine - 1 : newLine), crlf ? CRLF : LF);
+            start = newLine + 1;
+        }
+        lines.add(text.substring(start), NONE);
+        return lines;
+    }
+
+    private static Block[] toBlocks(Lines lines) {
+        int count = Math.max(1, (lines.size() + TARGET_BLOCK_LINES - 1) / TARGET_BLOCK_LINES);
+        Block[] blocks = new Block[count];
+        for (int i = 0; i < count; i++) {
+            int from = i * TARGET_BLOCK_LINES;
+            blocks[i] = lines.toBlock(from, Math.min(lines.size(), from + TARGET_BLOCK_LINES));
+        }
+        return blocks;
+    }
+
+    /**
+     * Replaces the text between two positions (LSP semantics: 0-based lines, UTF-16 columns, end exclusive).
+     * Positions past the end of a line or of the document are clamped.
+     *
+     * @return the edited snapshot; this one is left unchanged
+     */
+    public EditableTextDocument applyEdit(int startLine, int startCharacter, int endLine, int endCharacter, String text, long newVersion) {
+        startLine = Math.max(0, Math.min(startLine, lineCount - 1));
+        endLine = Math.max(startLine, Math.min(endLine, lineCount - 1));
+        String first = lineText(startLine);
+        String last = lineText(endLine);
+        startCharacter = Math.max(0, Math.min(startCharacter, first.length()));
+        endCharacter = Math.max(startLine == endLine ? startCharacter : 0, Math.min(endCharacter, last.length()));
+        String prefix = first.substring(0, startCharacter);
+        String suffix = last.substring(endCharacter);
+        Lines replacement = splitLines(prefix + text + suffix);
+
+        // Rebuild the blocks holding the edited lines, keep the others as they are
+        int firstBlock = blockOf(startLine);
+        int lastBlock = blockOf(endLine);
+        Block head = blocks[firstBlock];
+        Block tail = blocks[lastBlock];
+        Lines lines = new Lines();
+        lines.addAll(head, 0, startLine - blockStarts[firstBlock]);
+        // The suffix is followed by the terminator of the last edited line
+        replacement.terminators.set(replacement.size() - 1, tail.terminators[endLine - blockStarts[lastBlock]]);
+        lines.addAll(replacement);
+        lines.addAll(tail, endLine - blockStarts[lastBlock] + 1, tail.lines.length);
+
+        Block[] rebuilt = lines.size() <= MAX_BLOCK_LINES
+            ? new Block[]{lines.toBlock(0, lines.size())}
+            : toBlocks(lines);
+        Block[] edited = new Block[blocks.length - (lastBlock - firstBlock + 1) + rebuilt.length];
+        System.arraycopy(blocks, 0, edited, 0, firstBlock);
+        System.arraycopy(rebuilt, 0, edited, firstBlock, rebuilt.length);
+        System.arraycopy(blocks, lastBlock + 1, edited, firstBlock + rebuilt.length, blocks.length - lastBlock - 1);
+        return new EditableTextDocument(edited, newVersion, matchEngine);
+    }
+
+    /**
+     * @return a snapshot holding the given content instead, as for an LSP change without range
+     */
+    public EditableTextDocument replaceAll(String text, long newVersion) {
+        return new EditableTextDocument(toBlocks(splitLines(text)), newVersion, matchEngine);
+    }
+
+    private int blockOf(int line) {
+        // Blocks are never empty, so their start lines are distinct
+        int block = Arrays.binarySearch(blockStarts, line);
+        return block >= 0 ? block : -block - 2;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public int getLineCount() {
+        return visibleLineCount;
+    }
+
+    /**
+     * @return whether the offset is a position of the document, from the start of a line to its end
+     */
+    @Override
+    public boolean isValidOffset(long offset) {
+        long line = offset >>> 32;
+        return offset >= 0 && line < lineCount && (offset & 0xFFFFFFFFL) <= lineText((int) line).length();
+    }
+
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    @Override
+    public String lineText(int line) {
+        int block = blockOf(line);
+        return blocks[block].lines[line - blockStarts[block]];
+    }
+
+    @Override
+    public long lineOffset(int line) {
+        return (long) line << 32;
+    }
+
+    @Override
+    public int lineOf(long offset) {
+        return (int) Math.min(offset >>> 32, lineCount - 1);
+    }
+
+    @Override
+    public int columnOf(long offset) {
+        return (int) offset;
+    }
+
+    @Override
+    public String getContent() {
+        StringBuilder content = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, length));
+        for (int i = 0; i < blocks.length; i++) {
+            for (int j = 0; j < blocks[i].lines.length; j++) {
+                content.append(blocks[i].lines[j]).append(blocks[i].terminators[j]);
+            }
+        }
+        return content.toString();
+    }
+
+    @Override
+    public boolean search(String query, boolean caseSensitive, long fromOffset, int toLine, MatchVisitor visitor) {
+        if (query.indexOf('\n') >= 0 || query.indexOf('\r') >= 0) {
+            return false; // Matches never span a line terminator
+        }
+        LiteralMatcher matcher = matchEngine.compile(query, caseSensitive);
+        long[] queryFingerprint = query.length() >= 3 ? fingerprint(new String[]{query}) : null;
+
+        int fromLine = lineOf(fromOffset);
+        int lastLine = Math.min(toLine, lineCount);
+        for (int block = blockOf(fromLine); block < blocks.length && blockStarts[block] < lastLine; block++) {
+            if (visitor.isCancelled()) {
+                break;
+            }
+            if (queryFingerprint != null && !blocks[block].mayContain(queryFingerprint)) {
+                continue;
+            }
+            String[] lines = blocks[block].lines;
+            int first = Math.max(fromLine, blockStarts[block]);
+            int last = Math.min(lastLine, blockStarts[block] + lines.length);
+            for (int line = first; line < last; line++) {
+                String text = lines[line - blockStarts[block]];
+                int column = line == fromLine ? (int) Math.min(fromOffset & 0xFFFFFFFFL, text.length()) : 0;
+                while ((column = matcher.indexOf(text, column, text.length())) != -1) {
+                    if (!visitor.onMatch(line, lineOffset(line) | column, column, query.length())) {
+                        return queryFingerprint != null;
+                    }
+                    column += query.length();
+                }
+            }
+        }
+        return queryFingerprint != null;
+    }
+
+    /**
+     * @return the bloom filter of the case-folded trigrams of the lines
+     */
+    private static long[] fingerprint(String[] lines) {
+        long[] bits = new long[FINGERPRINT_BITS / Long.SIZE];
+        for (String line : lines) {
+            for (int i = 0; i + 3 <= line.length(); i++) {
+                int hash = MatchEngine.fold(line.charAt(i)) * 31 * 31 + MatchEngine.fold(line.charAt(i + 1)) * 31
+                    + MatchEngine.fold(line.charAt(i + 2));
+                int bit = (hash ^ (hash >>> 12)) & (FINGERPRINT_BITS - 1);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Lines and their terminators, as gathered to build blocks.
+     */
+    private static final class Lines {
+        private final List<String> lines = new ArrayList<>();
+        private final List<String> terminators = new ArrayList<>();
+
+        void add(String line, String terminator) {
+            lines.add(line);
+            terminators.add(terminator);
+        }
+
+        void addAll(Lines other) {
+            lines.addAll(other.lines);
+            terminators.addAll(other.terminators);
+        }
+
+        void addAll(Block block, int from, int to) {
+            lines.addAll(Arrays.asList(block.lines).subList(from, to));
+            terminators.addAll(Arrays.asList(block.terminators).subList(from, to));
+        }
+
+        int size() {
+            return lines.size();
+        }
+
+        Block toBlock(int from, int to) {
+            return new Block(lines.subList(from, to).toArray(new String[0]), terminators.subList(from, to).toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Immutable run of lines and their terminators, with the total of their lengths and their trigram fingerprint.
+     */
+    private static final class Block {
+        private final String[] lines;
+        private final String[] terminators;
+        private final long chars;
+        private final long[] fingerprint;
+
+        Block(String[] lines, String[] terminators) {
+            this.lines = lines;
+            this.terminators = terminators;
+            long total = 0;
+            for (int i = 0; i < lines.length; i++) {
+                total += lines[i].length() + terminators[i].length();
+            }
+            this.chars = total;
+            this.fingerprint = fingerprint(lines);
+        }
+
+        boolean mayContain(long[] queryFingerprint) {
+            for (int i = 0; i < queryFingerprint.length; i++) {
+                if ((fingerprint[i] & queryFingerprint[i]) != queryFingerprint[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
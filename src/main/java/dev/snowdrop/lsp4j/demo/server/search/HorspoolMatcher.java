@@ -0,0 +1,61 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.Arrays;
+
+/**
+ * Boyer-Moore-Horspool matcher. The bad-character table is indexed by the low byte of the
+ * (folded) characters; characters sharing a low byte keep the smallest shift, which is always safe.
+ */
+final class HorspoolMatcher implements LiteralMatcher {
+
+    private final char[] pattern;
+    private final boolean caseSensitive;
+    private final int[] shifts = new int[256];
+
+    HorspoolMatcher(String query, boolean caseSensitive) {
+        this.caseSensitive = caseSensitive;
+        this.pattern = query.toCharArray();
+        if (!caseSensitive) {
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = MatchEngine.fold(pattern[i]);
+            }
+        }
+        Arrays.fill(shifts, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shifts[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+    }
+
+    @Override
+    public int indexOf(String text, int fromIndex, int toIndex) {
+        int last = pattern.length - 1;
+        char lastChar = pattern[last];
+        for (int i = fromIndex; i + last < toIndex; ) {
+            char c = charAt(text, i + last);
+            if (c == lastChar && matchesBefore(text, i, last)) {
+                return i;
+            }
+            i += shifts[c & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matchesBefore(String text, int offset, int last) {
+        for (int j = last - 1; j >= 0; j--) {
+            if (charAt(text, offset + j) != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private char charAt(String text, int index) {
+        char c = text.charAt(index);
+        return caseSensitive ? c : MatchEngine.fold(c);
+    }
+
+    @Override
+    public int length() {
+        return pattern.length;
+    }
+}
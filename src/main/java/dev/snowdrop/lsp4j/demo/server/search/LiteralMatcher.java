@@ -0,0 +1,18 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * Finds the occurrences of a literal query compiled by a {@link MatchEngine}. Case folding, when
+ * requested, is done inline while comparing so that no copy of the searched text is made.
+ */
+public interface LiteralMatcher {
+
+    /**
+     * @return the offset of the first occurrence of the query in {@code [fromIndex, toIndex)} of the text, or -1
+     */
+    int indexOf(String text, int fromIndex, int toIndex);
+
+    /**
+     * @return the length of the query
+     */
+    int length();
+}
@@ -0,0 +1,299 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A UTF-8 text file memory-mapped with {@link FileChannel#map}, so that files of several GB can be
+ * served without holding them on the heap. Searches compare the query bytes with the mapped bytes
+ * directly and only the lines returned to the client are decoded. Offsets are byte offsets.
+ * <p>
+ * Loading only maps the file; the line-offset table (4 bytes per line) is built by the first
+ * operation that needs it. Case insensitive searches fold ASCII letters only, other characters
+ * must match exactly.
+ */
+public final class MappedTextDocument implements SearchableDocument {
+
+    /**
+     * A single mapping is limited to 2 GB, larger files are mapped as several 1 GB segments
+     */
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    /**
+     * Largest document {@link #getContent()} accepts to decode as a whole: 256 MB
+     */
+    public static final long MAX_CONTENT_BYTES = 256L * 1024 * 1024;
+
+    /**
+     * Lines searched between two cancellation checks
+     */
+    private static final int CANCEL_CHECK_LINES = 1024;
+
+    private final Path path;
+    private final long version;
+    private final long size;
+    private final MappedByteBuffer[] segments;
+    private volatile LineTable lineTable;
+
+    private MappedTextDocument(Path path, long version, long size, MappedByteBuffer[] segments) {
+        this.path = path;
+        this.version = version;
+        this.size = size;
+        this.segments = segments;
+    }
+
+    /**
+     * Maps the given file. The mapping stays valid once the channel is closed.
+     */
+    public static MappedTextDocument open(Path path, long version) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i << SEGMENT_SHIFT;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+            }
+            return new MappedTextDocument(path, version, size, segments);
+        }
+    }
+
+    private byte byteAt(long position) {
+        return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+    }
+
+    private byte[] bytes(long from, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = from + copied;
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & SEGMENT_MASK));
+            int chunk = Math.min(length - copied, segment.remaining());
+            segment.get(bytes, copied, chunk);
+            copied += chunk;
+        }
+        return bytes;
+    }
+
+    private LineTable lineTable() {
+        LineTable table = lineTable;
+        if (table == null) {
+            synchronized (this) {
+                table = lineTable;
+                if (table == null) {
+                    table = new LineTable(this);
+                    lineTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public long length() {
+        return size;
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineTable().lineCount;
+    }
+
+    @Override
+    public String lineText(int line) {
+        LineTable table = lineTable();
+        long start = table.lineStart(line);
+        return decode(start, table.lineEnd(line));
+    }
+
+    @Override
+    public long lineOffset(int line) {
+        return lineTable().lineStart(line);
+    }
+
+    @Override
+    public int lineOf(long offset) {
+        return lineTable().lineOf(offset);
+    }
+
+    @Override
+    public long offsetOf(int line, int column) {
+        return lineOffset(line) + lineText(line).substring(0, column).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Override
+    public int columnOf(long offset) {
+        return charCount(lineOffset(lineOf(offset)), offset);
+    }
+
+    @Override
+    public String getContent() {
+        if (size > MAX_CONTENT_BYTES) {
+            throw new IllegalStateException("Document is too large to be returned as a whole (" + size + " bytes)");
+        }
+        return decode(0, size);
+    }
+
+    private String decode(long from, long to) {
+        if (to - from > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Region too large to be decoded (" + (to - from) + " bytes)");
+        }
+        return new String(bytes(from, (int) (to - from)), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean search(String query, boolean caseSensitive, long fromOffset, int toLine, MatchVisitor visitor) {
+        if (query.indexOf('\n') >= 0 || query.indexOf('\r') >= 0) {
+            return false; // Matches never span a line terminator
+        }
+        byte[] pattern = query.getBytes(StandardCharsets.UTF_8);
+        if (!caseSensitive) {
+            for (int i = 0; i < pattern.length; i++) {
+                pattern[i] = foldAscii(pattern[i]);
+            }
+        }
+
+        LineTable table = lineTable();
+        int lastLine = Math.min(toLine, table.lineCount);
+        for (int line = table.lineOf(fromOffset); line < lastLine; line++) {
+            if ((line & (CANCEL_CHECK_LINES - 1)) == 0 && visitor.isCancelled()) {
+                return false;
+            }
+            long lineStart = table.lineStart(line);
+            long last = table.lineEnd(line) - pattern.length;
+            long position = Math.max(lineStart, fromOffset);
+            while (position <= last) {
+                if (matchesAt(position, pattern, caseSensitive)) {
+                    if (!visitor.onMatch(line, position, charCount(lineStart, position), query.length())) {
+                        return false;
+                    }
+                    position += pattern.length;
+                } else {
+                    position++;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesAt(long position, byte[] pattern, boolean caseSensitive) {
+        for (int i = 0; i < pattern.length; i++) {
+            byte b = byteAt(position + i);
+            if ((caseSensitive ? b : foldAscii(b)) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte foldAscii(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * @return the number of UTF-16 chars encoded by the UTF-8 bytes in {@code [from, to)}
+     */
+    private int charCount(long from, long to) {
+        int count = 0;
+        for (long position = from; position < to; position++) {
+            byte b = byteAt(position);
+            if ((b & 0xC0) != 0x80) {
+                // Code points encoded on 4 bytes are surrogate pairs in UTF-16
+                count += (b & 0xF8) == 0xF0 ? 2 : 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Start offsets of the lines, stored as their low 32 bits plus the (few) lines where the
+     * high bits increase, so that multi-GB files only cost 4 bytes per line.
+     */
+    private static final class LineTable {
+        private final MappedTextDocument document;
+        private final int[] lowStarts;
+        private final int[] highChanges;
+        private final int entries;
+        private final int lineCount;
+
+        LineTable(MappedTextDocument document) {
+            this.document = document;
+            int[] starts = new int[1024];
+            int[] changes = new int[0];
+            int lines = 1;
+            long previousStart = 0;
+            for (long position = 0; position < document.size; position++) {
+                if (document.byteAt(position) == '\n') {
+                    long start = position + 1;
+                    if (lines == starts.length) {
+                        if (lines >= Integer.MAX_VALUE / 2) {
+                            throw new IllegalStateException("Too many lines in " + document.path);
+                        }
+                        starts = Arrays.copyOf(starts, lines * 2);
+                    }
+                    if ((start >>> 32) != (previousStart >>> 32)) {
+                        changes = Arrays.copyOf(changes, changes.length + 1);
+                        changes[changes.length - 1] = lines;
+                    }
+                    starts[lines++] = (int) start;
+                    previousStart = start;
+                }
+            }
+            this.lowStarts = starts;
+            this.highChanges = changes;
+            this.entries = lines;
+
+            // Drop trailing empty lines, like String.split does
+            int count = lines;
+            while (count > 1 && lineEnd(count - 1) == lineStart(count - 1)) {
+                count--;
+            }
+            this.lineCount = document.size == 0 ? 1 : count;
+        }
+
+        long lineStart(int line) {
+            int high = Arrays.binarySearch(highChanges, line);
+            high = high >= 0 ? high + 1 : -high - 1;
+            return ((long) high << 32) | (lowStarts[line] & 0xFFFFFFFFL);
+        }
+
+        long lineEnd(int line) {
+            long end = line + 1 < entries ? lineStart(line + 1) - 1 : document.size;
+            if (end > lineStart(line) && document.byteAt(end - 1) == '\r') {
+                end--;
+            }
+            return end;
+        }
+
+        int lineOf(long offset) {
+            int low = 0;
+            int high = lineCount - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (lineStart(mid) <= offset) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+}
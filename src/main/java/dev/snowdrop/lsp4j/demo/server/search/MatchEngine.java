@@ -0,0 +1,43 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * The algorithms available to match literal queries in an in-heap {@link TextDocument}.
+ */
+public enum MatchEngine {
+
+    /**
+     * Checks every position with {@link String#regionMatches(boolean, int, String, int, int)},
+     * or {@link String#indexOf(String, int)} for case sensitive searches.
+     */
+    REGION_MATCHES {
+        @Override
+        public LiteralMatcher compile(String query, boolean caseSensitive) {
+            return new RegionMatchesMatcher(query, caseSensitive);
+        }
+    },
+
+    /**
+     * Boyer-Moore-Horspool over case-folded characters: skips ahead by up to the query length on mismatches.
+     */
+    HORSPOOL {
+        @Override
+        public LiteralMatcher compile(String query, boolean caseSensitive) {
+            return new HorspoolMatcher(query, caseSensitive);
+        }
+    };
+
+    /**
+     * Prepares the matching of a (non empty) query. The returned matcher is immutable and may be shared between threads.
+     */
+    public abstract LiteralMatcher compile(String query, boolean caseSensitive);
+
+    /**
+     * Folds a character the same way {@link String#regionMatches(boolean, int, String, int, int)} compares them.
+     */
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
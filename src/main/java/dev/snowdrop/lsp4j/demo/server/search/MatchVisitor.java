@@ -0,0 +1,25 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * Receives the matches found while searching a {@link SearchableDocument}, in document order.
+ */
+public interface MatchVisitor {
+
+    /**
+     * @param line   the (0-based) line of the match
+     * @param offset the offset of the match in the document, used to resume a search
+     * @param column the (0-based) column of the match within the text of its line
+     * @param length the length of the match within the text of its line
+     * @return {@code false} to stop the search
+     */
+    boolean onMatch(int line, long offset, int column, int length);
+
+    /**
+     * Checked regularly by the searches, even while no match is found, so that a search can be aborted.
+     *
+     * @return {@code true} to stop the search
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,183 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches large documents on a {@link ForkJoinPool}. The lines to search are split into chunks
+ * that are searched concurrently, and their matches are handed to the visitor chunk after chunk
+ * so that they are still reported in document order.
+ * <p>
+ * The first chunk is searched by the calling thread, straight into the visitor, so that the first
+ * matches are reported right away. Only a window of chunks is searched ahead of the chunk being
+ * reported, and a chunk stops once it holds as many matches as the visitor may still take, which
+ * bounds the matches held in memory. Once the visitor is done, the chunks still running are stopped.
+ * <p>
+ * Chunks are line-aligned and matches never span a line terminator, so no match can straddle
+ * two chunks.
+ */
+public final class ParallelSearch {
+
+    /**
+     * Chunks per worker thread, so that a chunk with many matches doesn't hold back the others
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final long threshold;
+
+    /**
+     * @param pool      the pool running the chunk searches
+     * @param threshold the document length from which searches are split into chunks
+     */
+    public ParallelSearch(ForkJoinPool pool, long threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @see SearchableDocument#search(String, boolean, long, MatchVisitor)
+     */
+    public boolean search(SearchableDocument document, String query, boolean caseSensitive, long fromOffset, MatchVisitor visitor) {
+        return search(document, query, caseSensitive, fromOffset, 0, visitor);
+    }
+
+    /**
+     * @param maxMatches the number of matches after which the visitor stops the search, or 0 if it takes them all
+     * @see SearchableDocument#search(String, boolean, long, MatchVisitor)
+     */
+    public boolean search(SearchableDocument document, String query, boolean caseSensitive, long fromOffset, int maxMatches,
+                          MatchVisitor visitor) {
+        int parallelism = pool.getParallelism();
+        if (document.length() < threshold || parallelism < 2 || isIndexed(document)) {
+            return document.search(query, caseSensitive, fromOffset, visitor);
+        }
+
+        int fromLine = document.lineOf(fromOffset);
+        int lineCount = document.getLineCount();
+        int chunkCount = Math.min(parallelism * CHUNKS_PER_THREAD, lineCount - fromLine);
+        if (chunkCount < 2) {
+            return document.search(query, caseSensitive, fromOffset, visitor);
+        }
+        int linesPerChunk = (lineCount - fromLine + chunkCount - 1) / chunkCount;
+        chunkCount = (lineCount - fromLine + linesPerChunk - 1) / linesPerChunk;
+
+        Forwarder forwarder = new Forwarder(visitor, maxMatches > 0 ? maxMatches : Integer.MAX_VALUE);
+        Deque<ForkJoinTask<MatchBuffer>> pending = new ArrayDeque<>();
+        int next = 1;
+        try {
+            while (next < chunkCount && pending.size() < parallelism) {
+                pending.add(submit(document, query, caseSensitive, fromLine + next++ * linesPerChunk, linesPerChunk, lineCount, forwarder));
+            }
+            document.search(query, caseSensitive, fromOffset, Math.min(lineCount, fromLine + linesPerChunk), forwarder);
+
+            // Report the other chunks in document order, keeping the window full
+            while (!forwarder.stopped && !pending.isEmpty()) {
+                MatchBuffer buffer = pending.poll().join();
+                if (next < chunkCount) {
+                    pending.add(submit(document, query, caseSensitive, fromLine + next++ * linesPerChunk, linesPerChunk, lineCount, forwarder));
+                }
+                buffer.replay(forwarder);
+            }
+        } finally {
+            forwarder.stopped = true;
+            for (ForkJoinTask<MatchBuffer> chunk : pending) {
+                chunk.cancel(false);
+            }
+        }
+        return false;
+    }
+
+    private ForkJoinTask<MatchBuffer> submit(SearchableDocument document, String query, boolean caseSensitive, int start, int lines,
+                                             int lineCount, Forwarder forwarder) {
+        return pool.submit(() -> {
+            MatchBuffer buffer = new MatchBuffer(forwarder);
+            document.search(query, caseSensitive, document.lineOffset(start), Math.min(lineCount, start + lines), buffer);
+            return buffer;
+        });
+    }
+
+    private static boolean isIndexed(SearchableDocument document) {
+        return document instanceof TextDocument && ((TextDocument) document).getTrigramIndex() != null;
+    }
+
+    /**
+     * Hands the matches to the visitor, counting them, and tells the chunks when to stop.
+     */
+    private static final class Forwarder implements MatchVisitor {
+        private final MatchVisitor target;
+        private final AtomicInteger remaining;
+        private volatile boolean stopped;
+
+        Forwarder(MatchVisitor target, int maxMatches) {
+            this.target = target;
+            this.remaining = new AtomicInteger(maxMatches);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return stopped || target.isCancelled();
+        }
+
+        @Override
+        public boolean onMatch(int line, long offset, int column, int length) {
+            if (stopped || !target.onMatch(line, offset, column, length)) {
+                stopped = true;
+                return false;
+            }
+            remaining.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * Matches of a chunk, stored in parallel primitive arrays. The chunk stops when the search is done or
+     * cancelled, or once it holds as many matches as the visitor may still take.
+     */
+    private static final class MatchBuffer implements MatchVisitor {
+        private final Forwarder forwarder;
+        private int[] lines = new int[16];
+        private long[] offsets = new long[16];
+        private int[] columns = new int[16];
+        private int[] lengths = new int[16];
+        private int size;
+
+        MatchBuffer(Forwarder forwarder) {
+            this.forwarder = forwarder;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return forwarder.isCancelled();
+        }
+
+        @Override
+        public boolean onMatch(int line, long offset, int column, int length) {
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+                columns = Arrays.copyOf(columns, size * 2);
+                lengths = Arrays.copyOf(lengths, size * 2);
+            }
+            lines[size] = line;
+            offsets[size] = offset;
+            columns[size] = column;
+            lengths[size] = length;
+            size++;
+            // The chunks before may only shrink what the visitor still takes
+            return size < forwarder.remaining.get() && !forwarder.stopped;
+        }
+
+        void replay(MatchVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                if (!visitor.onMatch(lines[i], offsets[i], columns[i], lengths[i])) {
+                    return;
+                }
+            }
+        }
+    }
+}
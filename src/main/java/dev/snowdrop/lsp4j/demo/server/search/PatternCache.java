@@ -0,0 +1,74 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled regular expressions, so that the patterns clients keep sending are only compiled once.
+ * Holds at most {@code maxPatterns} patterns, evicting the least recently used ones.
+ */
+public final class PatternCache {
+
+    private final LinkedHashMap<String, Pattern> patterns = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxPatterns;
+    private long hits;
+    private long misses;
+
+    public PatternCache(int maxPatterns) {
+        this.maxPatterns = maxPatterns;
+    }
+
+    /**
+     * @throws java.util.regex.PatternSyntaxException if the expression is not valid
+     */
+    public Pattern get(String regex, boolean caseSensitive) {
+        String key = (caseSensitive ? "s:" : "i:") + regex;
+        synchronized (this) {
+            Pattern pattern = patterns.get(key);
+            if (pattern != null) {
+                hits++;
+                return pattern;
+            }
+            misses++;
+        }
+        // Compiled outside of the lock, a pattern compiled twice concurrently is harmless
+        int flags = Pattern.MULTILINE | (caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        Pattern pattern = Pattern.compile(regex, flags);
+        synchronized (this) {
+            patterns.put(key, pattern);
+            evict();
+        }
+        return pattern;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Pattern>> eldest = patterns.entrySet().iterator();
+        while (patterns.size() > maxPatterns && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return patterns.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int getMaxPatterns() {
+        return maxPatterns;
+    }
+
+    public synchronized void setMaxPatterns(int maxPatterns) {
+        this.maxPatterns = maxPatterns;
+        evict();
+    }
+}
@@ -0,0 +1,136 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CancellationException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the matches of a regular expression line by line. In-heap documents are matched in place,
+ * by restricting the matcher to the region of each line, so the content is never split. Like literal
+ * matches, regex matches never span a line terminator. Patterns are expected to be compiled in
+ * {@link Pattern#MULTILINE} mode, as {@link PatternCache} does, so that {@code ^} and {@code $} match
+ * at line bounds.
+ * <p>
+ * Each search gets a CPU-time budget: the matcher reads the text through a {@link CharSequence} which
+ * regularly checks the time spent, so that catastrophic backtracking fails the search instead of
+ * holding the thread. The wall-clock time is used where the JVM can't measure the thread CPU time.
+ */
+public final class RegexSearch {
+
+    /**
+     * Characters read between two checks of the budget
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private RegexSearch() {
+    }
+
+    /**
+     * @param fromOffset  the offset to resume the search from; matches starting before it are skipped
+     * @param budgetNanos the CPU time the search may use, 0 for no limit
+     * @throws BudgetExceededException if the search takes longer than its budget
+     */
+    public static void search(SearchableDocument document, Pattern pattern, long fromOffset, long budgetNanos, MatchVisitor visitor) {
+        BudgetedText text = new BudgetedText(budgetNanos, visitor);
+        TextDocument textDocument = document instanceof TextDocument ? (TextDocument) document : null;
+        if (textDocument != null) {
+            text.text = textDocument.getContent();
+        }
+        // Regions bound the matches to a line, while anchors and lookarounds still see the text around it
+        Matcher matcher = pattern.matcher(text).useTransparentBounds(true).useAnchoringBounds(false);
+
+        int fromLine = document.lineOf(fromOffset);
+        for (int line = fromLine; line < document.getLineCount(); line++) {
+            if (visitor.isCancelled()) {
+                return;
+            }
+            int start = 0;
+            int end;
+            if (textDocument != null) {
+                start = textDocument.lineStart(line);
+                end = textDocument.lineEnd(line);
+            } else {
+                text.text = document.lineText(line);
+                matcher.reset(text);
+                end = text.length();
+            }
+            int from = line == fromLine ? Math.min(end, start + document.columnOf(fromOffset)) : start;
+
+            matcher.region(from, end);
+            while (matcher.find()) {
+                int column = matcher.start() - start;
+                if (!visitor.onMatch(line, document.offsetOf(line, column), column, matcher.end() - matcher.start())) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Thrown when a search exceeds its CPU-time budget.
+     */
+    public static final class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        BudgetExceededException(long budgetNanos) {
+            super("Regex search exceeded its time budget of " + budgetNanos / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * The text being matched, checking the time spent on the search, and whether it was cancelled, every
+     * {@link #CHECK_INTERVAL} reads. A cancelled search stops with a {@link CancellationException}.
+     */
+    private static final class BudgetedText implements CharSequence {
+        private final long budgetNanos;
+        private final MatchVisitor visitor;
+        private final boolean cpuTime;
+        private final long start;
+        private CharSequence text = "";
+        private int reads;
+
+        BudgetedText(long budgetNanos, MatchVisitor visitor) {
+            this.budgetNanos = budgetNanos;
+            this.visitor = visitor;
+            this.cpuTime = THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled();
+            this.start = now();
+        }
+
+        private long now() {
+            return cpuTime ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads == CHECK_INTERVAL) {
+                reads = 0;
+                if (budgetNanos > 0 && now() - start > budgetNanos) {
+                    throw new BudgetExceededException(budgetNanos);
+                }
+                if (visitor.isCancelled()) {
+                    throw new CancellationException("Regex search cancelled");
+                }
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
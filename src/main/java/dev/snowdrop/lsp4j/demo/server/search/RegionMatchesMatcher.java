@@ -0,0 +1,45 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * Checks every candidate position, rejecting most of them on their first character.
+ */
+final class RegionMatchesMatcher implements LiteralMatcher {
+
+    private final String query;
+    private final boolean caseSensitive;
+    private final char first;
+    private final char firstFolded;
+
+    RegionMatchesMatcher(String query, boolean caseSensitive) {
+        this.query = query;
+        this.caseSensitive = caseSensitive;
+        this.first = query.charAt(0);
+        this.firstFolded = MatchEngine.fold(first);
+    }
+
+    @Override
+    public int indexOf(String text, int fromIndex, int toIndex) {
+        int queryLength = query.length();
+        if (caseSensitive && toIndex == text.length()) {
+            return text.indexOf(query, fromIndex);
+        }
+        int last = toIndex - queryLength;
+        for (int i = fromIndex; i <= last; i++) {
+            char c = text.charAt(i);
+            if (caseSensitive) {
+                if (c == first && text.startsWith(query, i)) {
+                    return i;
+                }
+            } else if ((c == first || MatchEngine.fold(c) == firstFolded)
+                && text.regionMatches(true, i, query, 0, queryLength)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int length() {
+        return query.length();
+    }
+}
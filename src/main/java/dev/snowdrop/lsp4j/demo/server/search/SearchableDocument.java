@@ -0,0 +1,78 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * A loaded document that can be searched line by line. Offsets are implementation specific
+ * (characters for in-heap documents, bytes for memory-mapped files) and are only meant to be
+ * handed back to {@link #search(String, boolean, long, MatchVisitor)} to resume a search.
+ */
+public interface SearchableDocument {
+
+    /**
+     * @return identifies this content; a new version is assigned every time a file is (re)loaded
+     */
+    long getVersion();
+
+    /**
+     * @return the size of the document, in the unit of its offsets
+     */
+    long length();
+
+    int getLineCount();
+
+    /**
+     * @return the text of the given (0-based) line, without its line terminator
+     */
+    String lineText(int line);
+
+    /**
+     * @return the offset of the first character of the given (0-based) line
+     */
+    long lineOffset(int line);
+
+    /**
+     * @return the (0-based) line containing the given offset
+     */
+    int lineOf(long offset);
+
+    /**
+     * @return the offset of the given column (in UTF-16 chars) of a line
+     */
+    default long offsetOf(int line, int column) {
+        return lineOffset(line) + column;
+    }
+
+    /**
+     * @return the column (in UTF-16 chars) of the given offset within its line
+     */
+    default int columnOf(long offset) {
+        return (int) (offset - lineOffset(lineOf(offset)));
+    }
+
+    /**
+     * @return whether the offset may be handed back to {@link #search(String, boolean, long, MatchVisitor)},
+     * such as the offset of a cursor
+     */
+    default boolean isValidOffset(long offset) {
+        return offset >= 0 && offset <= length();
+    }
+
+    /**
+     * @return the whole content of the document
+     */
+    String getContent();
+
+    /**
+     * Finds the occurrences of a literal query. Matches never span a line terminator and do not overlap.
+     *
+     * @param fromOffset the offset to resume the search from; matches starting before it are skipped
+     * @return {@code true} if an index was used to find the matches
+     */
+    default boolean search(String query, boolean caseSensitive, long fromOffset, MatchVisitor visitor) {
+        return search(query, caseSensitive, fromOffset, getLineCount(), visitor);
+    }
+
+    /**
+     * Same as {@link #search(String, boolean, long, MatchVisitor)}, limited to the lines before {@code toLine}.
+     */
+    boolean search(String query, boolean caseSensitive, long fromOffset, int toLine, MatchVisitor visitor);
+}
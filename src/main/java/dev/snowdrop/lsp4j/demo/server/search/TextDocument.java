@@ -0,0 +1,173 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view of a loaded text file together with a precomputed line-offset table.
+ * The table is built once when the document is created so that searches can run
+ * directly over the original buffer instead of splitting it into lines per query.
+ * A {@link TrigramIndex} can be attached to make searches sub-linear, and the {@link MatchEngine}
+ * used to compare the query with the content can be chosen.
+ */
+public final class TextDocument implements SearchableDocument {
+
+    private final String content;
+    private final long version;
+    private final TrigramIndex trigramIndex;
+    private final MatchEngine matchEngine;
+
+    /**
+     * Offset of the first character of each line. Trailing empty lines are not counted,
+     * which mirrors the behaviour of {@code content.split("\\r?\\n")}.
+     */
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    public TextDocument(String content) {
+        this(content, 0);
+    }
+
+    /**
+     * @param version identifies this content; a new version is assigned every time a file is (re)loaded
+     */
+    public TextDocument(String content, long version) {
+        this.content = content == null ? "" : content;
+        this.version = version;
+        this.lineStarts = computeLineStarts(this.content);
+        this.lineCount = computeLineCount(this.content, lineStarts);
+        this.trigramIndex = null;
+        this.matchEngine = MatchEngine.HORSPOOL;
+    }
+
+    private TextDocument(TextDocument document, TrigramIndex trigramIndex, MatchEngine matchEngine) {
+        this.content = document.content;
+        this.version = document.version;
+        this.lineStarts = document.lineStarts;
+        this.lineCount = document.lineCount;
+        this.trigramIndex = trigramIndex;
+        this.matchEngine = matchEngine;
+    }
+
+    /**
+     * @return the same document, searched through the given index (or by scanning if {@code null})
+     */
+    public TextDocument withTrigramIndex(TrigramIndex trigramIndex) {
+        return new TextDocument(this, trigramIndex, matchEngine);
+    }
+
+    /**
+     * @return the same document, searched with the given engine
+     */
+    public TextDocument withMatchEngine(MatchEngine matchEngine) {
+        return new TextDocument(this, trigramIndex, matchEngine);
+    }
+
+    public TrigramIndex getTrigramIndex() {
+        return trigramIndex;
+    }
+
+    public MatchEngine getMatchEngine() {
+        return matchEngine;
+    }
+
+    @Override
+    public boolean search(String query, boolean caseSensitive, long fromOffset, int toLine, MatchVisitor visitor) {
+        LiteralMatcher matcher = matchEngine.compile(query, caseSensitive);
+        return TextSearcher.search(this, trigramIndex, query, matcher, (int) Math.min(fromOffset, content.length()), toLine, visitor);
+    }
+
+    private static int[] computeLineStarts(String content) {
+        int newLines = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                newLines++;
+            }
+        }
+
+        int[] starts = new int[newLines + 1];
+        int line = 1;
+        for (int i = 0; i < content.length(); i++) {
+            if (content.charAt(i) == '\n') {
+                starts[line++] = i + 1;
+            }
+        }
+        return starts;
+    }
+
+    private static int computeLineCount(String content, int[] starts) {
+        if (content.isEmpty()) {
+            return 1;
+        }
+        // Drop trailing empty lines, like String.split does
+        int count = starts.length;
+        while (count > 1 && lineEnd(content, starts, count - 1) == starts[count - 1]) {
+            count--;
+        }
+        return count;
+    }
+
+    private static int lineEnd(String content, int[] starts, int line) {
+        int end = line + 1 < starts.length ? starts[line + 1] - 1 : content.length();
+        if (end > starts[line] && content.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    @Override
+    public String getContent() {
+        return content;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public long length() {
+        return content.length();
+    }
+
+    @Override
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return the offset of the first character of the given (0-based) line
+     */
+    public int lineStart(int line) {
+        return lineStarts[line];
+    }
+
+    /**
+     * @return the offset just past the last character of the given (0-based) line, excluding the line terminator
+     */
+    public int lineEnd(int line) {
+        return lineEnd(content, lineStarts, line);
+    }
+
+    @Override
+    public String lineText(int line) {
+        return content.substring(lineStart(line), lineEnd(line));
+    }
+
+    @Override
+    public long lineOffset(int line) {
+        return lineStarts[line];
+    }
+
+    @Override
+    public int lineOf(long offset) {
+        return lineOf((int) Math.min(offset, content.length()));
+    }
+
+    /**
+     * @return the (0-based) line containing the given offset
+     */
+    public int lineOf(int offset) {
+        int line = Arrays.binarySearch(lineStarts, offset);
+        return line >= 0 ? line : -line - 2;
+    }
+}
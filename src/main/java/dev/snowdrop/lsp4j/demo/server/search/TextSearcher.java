@@ -0,0 +1,97 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+/**
+ * Finds the occurrences of a literal query in a {@link TextDocument}. Matches never span a
+ * line terminator and do not overlap, and are reported in document order.
+ * <p>
+ * When a {@link TrigramIndex} of the document is available, only its candidate lines
+ * are verified; otherwise the whole buffer is scanned.
+ */
+final class TextSearcher {
+
+    /**
+     * Characters scanned, or candidate lines verified, between two cancellation checks
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1 << 20;
+    private static final int CANCEL_CHECK_LINES = 1024;
+
+    private TextSearcher() {
+    }
+
+    /**
+     * @param index      an index of the document, or {@code null} to scan the whole buffer
+     * @param matcher    the query compiled by the match engine of the document
+     * @param fromOffset the document offset to resume the search from; matches starting before it are skipped
+     * @param toLine     the line the search stops at (exclusive)
+     * @return {@code true} if the trigram index was used to find the matches
+     */
+    static boolean search(TextDocument document, TrigramIndex index, String query, LiteralMatcher matcher, int fromOffset, int toLine, MatchVisitor visitor) {
+        int[] candidates = index != null ? index.candidateLines(query) : null;
+        if (candidates == null) {
+            scan(document, matcher, fromOffset, toLine, visitor);
+            return false;
+        }
+
+        String content = document.getContent();
+        int queryLength = matcher.length();
+        for (int i = 0; i < candidates.length; i++) {
+            int line = candidates[i];
+            if (line >= toLine || (i % CANCEL_CHECK_LINES == 0 && visitor.isCancelled())) {
+                break;
+            }
+            int end = document.lineEnd(line);
+            if (end < fromOffset) {
+                continue;
+            }
+            int offset = Math.max(document.lineStart(line), fromOffset);
+            while ((offset = matcher.indexOf(content, offset, end)) != -1) {
+                if (!visitor.onMatch(line, offset, offset - document.lineStart(line), queryLength)) {
+                    return true;
+                }
+                offset += queryLength;
+            }
+        }
+        return true;
+    }
+
+    private static void scan(TextDocument document, LiteralMatcher matcher, int fromOffset, int toLine, MatchVisitor visitor) {
+        String content = document.getContent();
+        int lastLine = Math.min(toLine, document.getLineCount());
+        int toIndex = lastLine < document.getLineCount() ? document.lineStart(lastLine) : content.length();
+        int queryLength = matcher.length();
+
+        // Scan slices ending at a line end, so that no match straddles two of them, and check for cancellation between them
+        int sliceStart = fromOffset;
+        while (sliceStart < toIndex) {
+            if (visitor.isCancelled()) {
+                return;
+            }
+            int sliceEnd = sliceEnd(document, sliceStart, toIndex);
+            int offset = sliceStart;
+            while ((offset = matcher.indexOf(content, offset, sliceEnd)) != -1) {
+                int line = document.lineOf(offset);
+                if (line >= lastLine) {
+                    return;
+                }
+                if (offset + queryLength > document.lineEnd(line)) {
+                    // Matches never span a line terminator
+                    offset++;
+                    continue;
+                }
+                if (!visitor.onMatch(line, offset, offset - document.lineStart(line), queryLength)) {
+                    return;
+                }
+                offset += queryLength; // Move past this match
+            }
+            sliceStart = sliceEnd;
+        }
+    }
+
+    private static int sliceEnd(TextDocument document, int sliceStart, int toIndex) {
+        if (toIndex - sliceStart <= CANCEL_CHECK_INTERVAL) {
+            return toIndex;
+        }
+        int line = document.lineOf(sliceStart + CANCEL_CHECK_INTERVAL);
+        return line + 1 < document.getLineCount() ? Math.min(toIndex, document.lineStart(line + 1)) : toIndex;
+    }
+}
@@ -0,0 +1,166 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Inverted index mapping every case-folded trigram of a {@link TextDocument} to the sorted
+ * list of lines (posting list) containing it. Queries of three characters or more only need
+ * to verify the lines found in the intersection of their trigram posting lists.
+ * <p>
+ * The index is case-folded so that it can serve both case sensitive and case insensitive
+ * searches: the candidate lines are always a superset of the real matches.
+ */
+public final class TrigramIndex {
+
+    /**
+     * Rough per-entry overheads used to estimate the memory footprint while building
+     * (hash map node, boxed key and posting builder) and once frozen (key slot and array header).
+     */
+    private static final long BUILD_ENTRY_OVERHEAD = 96;
+    private static final long FROZEN_ENTRY_OVERHEAD = 8 + 16;
+
+    private final long[] keys;
+    private final int[][] postings;
+    private final long memoryBytes;
+
+    private TrigramIndex(long[] keys, int[][] postings, long memoryBytes) {
+        this.keys = keys;
+        this.postings = postings;
+        this.memoryBytes = memoryBytes;
+    }
+
+    /**
+     * Builds the index of the given document.
+     *
+     * @param maxBytes the maximum estimated memory the index may use
+     * @return the index, or {@code null} if it would exceed {@code maxBytes}
+     */
+    public static TrigramIndex build(TextDocument document, long maxBytes) {
+        Map<Long, PostingBuilder> builders = new HashMap<>();
+        String content = document.getContent();
+        long estimatedBytes = 0;
+
+        for (int line = 0; line < document.getLineCount(); line++) {
+            int end = document.lineEnd(line);
+            for (int i = document.lineStart(line); i + 3 <= end; i++) {
+                long key = key(fold(content.charAt(i)), fold(content.charAt(i + 1)), fold(content.charAt(i + 2)));
+                PostingBuilder builder = builders.get(key);
+                if (builder == null) {
+                    builder = new PostingBuilder();
+                    builders.put(key, builder);
+                    estimatedBytes += BUILD_ENTRY_OVERHEAD;
+                }
+                if (builder.add(line)) {
+                    estimatedBytes += Integer.BYTES;
+                }
+                if (estimatedBytes > maxBytes) {
+                    return null;
+                }
+            }
+        }
+
+        long[] keys = new long[builders.size()];
+        int k = 0;
+        for (Long key : builders.keySet()) {
+            keys[k++] = key;
+        }
+        Arrays.sort(keys);
+
+        int[][] postings = new int[keys.length][];
+        long memoryBytes = 0;
+        for (int i = 0; i < keys.length; i++) {
+            postings[i] = builders.get(keys[i]).toArray();
+            memoryBytes += FROZEN_ENTRY_OVERHEAD + (long) postings[i].length * Integer.BYTES;
+        }
+        return new TrigramIndex(keys, postings, memoryBytes);
+    }
+
+    /**
+     * Returns the lines that may contain the query, in ascending order.
+     *
+     * @return the candidate lines, or {@code null} if the index cannot narrow down this query
+     * (shorter than a trigram or containing a line terminator)
+     */
+    public int[] candidateLines(String query) {
+        if (query.length() < 3 || query.indexOf('\n') >= 0 || query.indexOf('\r') >= 0) {
+            return null;
+        }
+
+        int trigrams = query.length() - 2;
+        int[][] lists = new int[trigrams][];
+        for (int i = 0; i < trigrams; i++) {
+            int slot = Arrays.binarySearch(keys, key(fold(query.charAt(i)), fold(query.charAt(i + 1)), fold(query.charAt(i + 2))));
+            if (slot < 0) {
+                return new int[0];
+            }
+            lists[i] = postings[slot];
+        }
+
+        // Intersect starting from the shortest posting list
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+        int[] candidates = lists[0];
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                candidates = intersect(candidates, lists[i]);
+            }
+        }
+        return candidates;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static char fold(char c) {
+        return MatchEngine.fold(c);
+    }
+
+    private static long key(char c0, char c1, char c2) {
+        return ((long) c0 << 32) | ((long) c1 << 16) | c2;
+    }
+
+    public int getTrigramCount() {
+        return keys.length;
+    }
+
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    private static final class PostingBuilder {
+        private int[] lines = new int[4];
+        private int size;
+
+        boolean add(int line) {
+            if (size > 0 && lines[size - 1] == line) {
+                return false;
+            }
+            if (size == lines.length) {
+                lines = Arrays.copyOf(lines, size * 2);
+            }
+            lines[size++] = line;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(lines, size);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The documents loaded on the server, keyed by URI. Documents are kept in least-recently-used
+ * order and the oldest ones are evicted as soon as the workspace holds too many documents or
+ * its estimated heap footprint exceeds the memory budget.
+ */
+public final class Workspace {
+
+    /**
+     * Rough fixed cost of a document besides its content: map entry, key and document objects
+     */
+    private static final long DOCUMENT_OVERHEAD = 256;
+
+    /**
+     * Memory-mapped documents only hold their line table on the heap, estimated for 64-byte lines
+     */
+    private static final long MAPPED_BYTES_PER_LINE_TABLE_ENTRY = 64 / Integer.BYTES;
+
+    /**
+     * Editable documents also hold a reference and a trigram fingerprint per line and per block of lines
+     */
+    private static final long EDITABLE_BYTES_PER_LINE = 64;
+    private static final long EDITABLE_BYTES_PER_BLOCK = 512;
+
+    private final LinkedHashMap<String, Entry> documents = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxDocuments;
+    private long memoryBudget;
+    private long memoryBytes;
+    private long evictions;
+
+    public Workspace(int maxDocuments, long memoryBudget) {
+        this.maxDocuments = maxDocuments;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Adds or replaces a document, evicting the least recently used ones if needed.
+     */
+    public synchronized void put(String uri, SearchableDocument document) {
+        Entry previous = documents.remove(uri);
+        if (previous != null) {
+            memoryBytes -= previous.memoryBytes;
+        }
+        Entry entry = new Entry(uri, document, estimateBytes(document));
+        documents.put(uri, entry);
+        memoryBytes += entry.memoryBytes;
+        evict();
+    }
+
+    /**
+     * @return the document, or {@code null} if it isn't (or no longer) loaded
+     */
+    public synchronized SearchableDocument get(String uri) {
+        Entry entry = documents.get(uri);
+        return entry != null ? entry.document : null;
+    }
+
+    public synchronized boolean remove(String uri) {
+        Entry entry = documents.remove(uri);
+        if (entry == null) {
+            return false;
+        }
+        memoryBytes -= entry.memoryBytes;
+        return true;
+    }
+
+    /**
+     * @return the loaded documents, from the least to the most recently used
+     */
+    public synchronized List<Entry> entries() {
+        return new ArrayList<>(documents.values());
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = documents.values().iterator();
+        // The document just added is never evicted, even if it exceeds the budget on its own
+        while (documents.size() > 1 && (documents.size() > maxDocuments || memoryBytes > memoryBudget)) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            memoryBytes -= entry.memoryBytes;
+            evictions++;
+        }
+    }
+
+    private static long estimateBytes(SearchableDocument document) {
+        if (document instanceof TextDocument) {
+            TextDocument text = (TextDocument) document;
+            TrigramIndex index = text.getTrigramIndex();
+            return DOCUMENT_OVERHEAD + text.length() * Character.BYTES + (long) text.getLineCount() * Integer.BYTES
+                + (index != null ? index.getMemoryBytes() : 0);
+        }
+        if (document instanceof EditableTextDocument) {
+            EditableTextDocument editable = (EditableTextDocument) document;
+            return DOCUMENT_OVERHEAD + editable.length() * Character.BYTES + editable.getLineCount() * EDITABLE_BYTES_PER_LINE
+                + editable.getBlockCount() * EDITABLE_BYTES_PER_BLOCK;
+        }
+        return DOCUMENT_OVERHEAD + document.length() / MAPPED_BYTES_PER_LINE_TABLE_ENTRY;
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int getMaxDocuments() {
+        return maxDocuments;
+    }
+
+    public synchronized void setMaxDocuments(int maxDocuments) {
+        this.maxDocuments = maxDocuments;
+        evict();
+    }
+
+    public synchronized long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    /**
+     * A document of the workspace with its estimated heap footprint.
+     */
+    public static final class Entry {
+        private final String uri;
+        private final SearchableDocument document;
+        private final long memoryBytes;
+
+        Entry(String uri, SearchableDocument document, long memoryBytes) {
+            this.uri = uri;
+            this.document = document;
+            this.memoryBytes = memoryBytes;
+        }
+
+        public String getUri() {
+            return uri;
+        }
+
+        public SearchableDocument getDocument() {
+            return document;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/closeDocument` notification, removing a document from the workspace.
+ */
+public class CloseDocumentParams {
+
+	/**
+	 * The URI of the document.
+	 */
+	private String uri;
+
+	public CloseDocumentParams() {
+	}
+
+	public CloseDocumentParams(String uri) {
+		this.uri = uri;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public void setUri(String uri) {
+		this.uri = uri;
+	}
+
+}
@@ -0,0 +1,42 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+
+import java.util.List;
+
+/**
+ * The parameters of the `server/didChange` notification, applying LSP-style content changes to a document.
+ */
+public class DidChangeParams {
+
+	/**
+	 * The workspace document to change, or {@code null} for the loaded document.
+	 */
+	private TextDocumentIdentifier textDocument;
+
+	/**
+	 * The changes, applied in order. A change without a range replaces the whole content.
+	 */
+	private List<TextDocumentContentChangeEvent> contentChanges;
+
+	public DidChangeParams() {
+	}
+
+	public TextDocumentIdentifier getTextDocument() {
+		return textDocument;
+	}
+
+	public void setTextDocument(TextDocumentIdentifier textDocument) {
+		this.textDocument = textDocument;
+	}
+
+	public List<TextDocumentContentChangeEvent> getContentChanges() {
+		return contentChanges;
+	}
+
+	public void setContentChanges(List<TextDocumentContentChangeEvent> contentChanges) {
+		this.contentChanges = contentChanges;
+	}
+
+}
@@ -0,0 +1,41 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/loadTextFile` notification, replacing the loaded text file.
+ */
+public class LoadTextFileParams {
+
+	/**
+	 * The file to load, looked up in the resources first.
+	 */
+	private String filePath;
+
+	/**
+	 * Whether the file is memory-mapped whatever its size, false by default.
+	 */
+	private boolean memoryMapped;
+
+	public LoadTextFileParams() {
+	}
+
+	public LoadTextFileParams(String filePath) {
+		this.filePath = filePath;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	public void setFilePath(String filePath) {
+		this.filePath = filePath;
+	}
+
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
+}
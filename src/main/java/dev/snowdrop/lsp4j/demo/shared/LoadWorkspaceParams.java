@@ -0,0 +1,28 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/loadWorkspace` request, adding the files of a directory to the workspace.
+ */
+public class LoadWorkspaceParams {
+
+	/**
+	 * The directory whose regular files are loaded, recursively.
+	 */
+	private String directory;
+
+	public LoadWorkspaceParams() {
+	}
+
+	public LoadWorkspaceParams(String directory) {
+		this.directory = directory;
+	}
+
+	public String getDirectory() {
+		return directory;
+	}
+
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+
+}
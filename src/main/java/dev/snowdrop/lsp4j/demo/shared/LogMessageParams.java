@@ -0,0 +1,42 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `client/logMessage` notification.
+ */
+public class LogMessageParams {
+
+	/**
+	 * The message to log.
+	 */
+	private String message;
+
+	/**
+	 * The level of the message, INFO by default.
+	 */
+	private String level;
+
+	public LogMessageParams() {
+	}
+
+	public LogMessageParams(String message, String level) {
+		this.message = message;
+		this.level = level;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public String getLevel() {
+		return level;
+	}
+
+	public void setLevel(String level) {
+		this.level = level;
+	}
+
+}
@@ -0,0 +1,42 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/getMessages` request, reading a page of the posted messages.
+ */
+public class MessagesParams {
+
+	/**
+	 * The sequence number of the first message to read, 0 by default.
+	 */
+	private long since;
+
+	/**
+	 * The maximum number of messages to read.
+	 */
+	private Integer limit;
+
+	public MessagesParams() {
+	}
+
+	public MessagesParams(long since, Integer limit) {
+		this.since = since;
+		this.limit = limit;
+	}
+
+	public long getSince() {
+		return since;
+	}
+
+	public void setSince(long since) {
+		this.since = since;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public void setLimit(Integer limit) {
+		this.limit = limit;
+	}
+
+}
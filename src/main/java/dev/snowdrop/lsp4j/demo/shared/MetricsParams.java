@@ -0,0 +1,28 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/metrics` request.
+ */
+public class MetricsParams {
+
+	/**
+	 * `text` for the Prometheus exposition format, JSON otherwise.
+	 */
+	private String format;
+
+	public MetricsParams() {
+	}
+
+	public MetricsParams(String format) {
+		this.format = format;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public void setFormat(String format) {
+		this.format = format;
+	}
+
+}
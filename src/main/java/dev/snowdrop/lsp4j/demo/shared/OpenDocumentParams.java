@@ -0,0 +1,63 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/openDocument` notification, adding a file or a text to the workspace.
+ */
+public class OpenDocumentParams {
+
+	/**
+	 * The URI of the document, the URI of the file by default.
+	 */
+	private String uri;
+
+	/**
+	 * The file to read, or {@code null} to open {@link #text} instead.
+	 */
+	private String filePath;
+
+	/**
+	 * The content of the document when no file is given.
+	 */
+	private String text;
+
+	/**
+	 * Whether the file is memory-mapped whatever its size, false by default.
+	 */
+	private boolean memoryMapped;
+
+	public OpenDocumentParams() {
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public void setUri(String uri) {
+		this.uri = uri;
+	}
+
+	public String getFilePath() {
+		return filePath;
+	}
+
+	public void setFilePath(String filePath) {
+		this.filePath = filePath;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+
+	public boolean isMemoryMapped() {
+		return memoryMapped;
+	}
+
+	public void setMemoryMapped(boolean memoryMapped) {
+		this.memoryMapped = memoryMapped;
+	}
+
+}
@@ -0,0 +1,107 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/searchText` request.
+ */
+public class SearchParams {
+
+	/**
+	 * The text to search for, or a regular expression when {@link #regex} is set.
+	 */
+	private String query;
+
+	/**
+	 * Whether the case of the query has to match, false by default.
+	 */
+	private boolean caseSensitive;
+
+	/**
+	 * Whether the query is a regular expression, false by default.
+	 */
+	private boolean regex;
+
+	/**
+	 * The cursor returned by the previous page of matches, to fetch the next one.
+	 */
+	private String cursor;
+
+	/**
+	 * The maximum number of matches to return, 0 for all of them.
+	 */
+	private int limit;
+
+	/**
+	 * When set, the matches are pushed in `client/searchResults` notifications carrying this token.
+	 */
+	private String partialResultToken;
+
+	/**
+	 * The number of matches per `client/searchResults` notification.
+	 */
+	private Integer batchSize;
+
+	public SearchParams() {
+	}
+
+	public SearchParams(String query, boolean caseSensitive) {
+		this.query = query;
+		this.caseSensitive = caseSensitive;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public void setQuery(String query) {
+		this.query = query;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public void setCaseSensitive(boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+	}
+
+	public boolean isRegex() {
+		return regex;
+	}
+
+	public void setRegex(boolean regex) {
+		this.regex = regex;
+	}
+
+	public String getCursor() {
+		return cursor;
+	}
+
+	public void setCursor(String cursor) {
+		this.cursor = cursor;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	public String getPartialResultToken() {
+		return partialResultToken;
+	}
+
+	public void setPartialResultToken(String partialResultToken) {
+		this.partialResultToken = partialResultToken;
+	}
+
+	public Integer getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(Integer batchSize) {
+		this.batchSize = batchSize;
+	}
+
+}
@@ -0,0 +1,58 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+import com.google.gson.JsonArray;
+
+/**
+ * The parameters of the `client/searchResults` notification, carrying a batch of the matches of a streamed search.
+ */
+public class SearchResultsParams {
+
+	/**
+	 * The token of the search, as given in its `server/searchText` request.
+	 */
+	private String partialResultToken;
+
+	/**
+	 * The index of the batch, from 0.
+	 */
+	private int batch;
+
+	/**
+	 * The matches of the batch, in document order.
+	 */
+	private JsonArray matches;
+
+	public SearchResultsParams() {
+	}
+
+	public SearchResultsParams(String partialResultToken, int batch, JsonArray matches) {
+		this.partialResultToken = partialResultToken;
+		this.batch = batch;
+		this.matches = matches;
+	}
+
+	public String getPartialResultToken() {
+		return partialResultToken;
+	}
+
+	public void setPartialResultToken(String partialResultToken) {
+		this.partialResultToken = partialResultToken;
+	}
+
+	public int getBatch() {
+		return batch;
+	}
+
+	public void setBatch(int batch) {
+		this.batch = batch;
+	}
+
+	public JsonArray getMatches() {
+		return matches;
+	}
+
+	public void setMatches(JsonArray matches) {
+		this.matches = matches;
+	}
+
+}
@@ -0,0 +1,28 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `client/showMessage` request.
+ */
+public class ShowMessageParams {
+
+	/**
+	 * The message to show.
+	 */
+	private String message;
+
+	public ShowMessageParams() {
+	}
+
+	public ShowMessageParams(String message) {
+		this.message = message;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+}
@@ -0,0 +1,42 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `client/showTextContent` request.
+ */
+public class TextContentParams {
+
+	/**
+	 * The text content to show.
+	 */
+	private String content;
+
+	/**
+	 * The length of the content, in characters.
+	 */
+	private int length;
+
+	public TextContentParams() {
+	}
+
+	public TextContentParams(String content, int length) {
+		this.content = content;
+		this.length = length;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	public int getLength() {
+		return length;
+	}
+
+	public void setLength(int length) {
+		this.length = length;
+	}
+
+}
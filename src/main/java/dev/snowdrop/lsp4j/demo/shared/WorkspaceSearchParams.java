@@ -0,0 +1,55 @@
+package dev.snowdrop.lsp4j.demo.shared;
+
+/**
+ * The parameters of the `server/searchWorkspace` request, searching every document of the workspace.
+ */
+public class WorkspaceSearchParams {
+
+	/**
+	 * The text to search for.
+	 */
+	private String query;
+
+	/**
+	 * Whether the case of the query has to match, false by default.
+	 */
+	private boolean caseSensitive;
+
+	/**
+	 * The maximum number of matches returned per document, 0 for all of them.
+	 */
+	private int maxMatchesPerDocument;
+
+	public WorkspaceSearchParams() {
+	}
+
+	public WorkspaceSearchParams(String query, boolean caseSensitive) {
+		this.query = query;
+		this.caseSensitive = caseSensitive;
+	}
+
+	public String getQuery() {
+		return query;
+	}
+
+	public void setQuery(String query) {
+		this.query = query;
+	}
+
+	public boolean isCaseSensitive() {
+		return caseSensitive;
+	}
+
+	public void setCaseSensitive(boolean caseSensitive) {
+		this.caseSensitive = caseSensitive;
+	}
+
+	public int getMaxMatchesPerDocument() {
+		return maxMatchesPerDocument;
+	}
+
+	public void setMaxMatchesPerDocument(int maxMatchesPerDocument) {
+		this.maxMatchesPerDocument = maxMatchesPerDocument;
+	}
+
+}
@@ -0,0 +1,126 @@
+package dev.snowdrop.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts recorded values in log-linear buckets, like an HdrHistogram: each power of two is split into
+ * {@value #SUB_BUCKETS} equal buckets, so any value is reported within about 6% of its actual value, whatever
+ * its magnitude, with a fixed memory footprint. Recording is lock-free and never allocates, so that it can be
+ * done on every request; percentiles are computed when read.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * Buckets per power of two
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Values below 2 * SUB_BUCKETS have a bucket each, then every power of two has SUB_BUCKETS of them
+    private static final int BUCKET_COUNT = 2 * SUB_BUCKETS + (64 - SUB_BUCKET_BITS - 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value a non-negative value, negative values being recorded as 0
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        buckets.incrementAndGet(indexOf(recorded));
+        count.incrementAndGet();
+        sum.addAndGet(recorded);
+        long current;
+        while (recorded > (current = max.get()) && !max.compareAndSet(current, recorded)) {
+            // Retry until this value or a greater one is the maximum
+        }
+    }
+
+    /**
+     * Adds the values recorded by another histogram to this one.
+     */
+    public void add(Histogram other) {
+        long added = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long bucket = other.buckets.get(i);
+            if (bucket > 0) {
+                buckets.addAndGet(i, bucket);
+                added += bucket;
+            }
+        }
+        count.addAndGet(added);
+        sum.addAndGet(other.getSum());
+        long otherMax = other.getMax();
+        long current;
+        while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+            // Retry until this value or a greater one is the maximum
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        // The top SUB_BUCKET_BITS + 1 bits of the value, between SUB_BUCKETS and 2 * SUB_BUCKETS - 1
+        int mantissa = (int) (value >>> shift);
+        return SUB_BUCKETS + shift * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the greatest value counted in the bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long mantissa = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long highest = ((mantissa + 1) << shift) - 1;
+        // The last bucket goes up to Long.MAX_VALUE
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the value which the given percentage of the recorded values don't exceed, up to the precision of
+     * the buckets, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        // Values recorded while reading
+        return max.get();
+    }
+}
@@ -0,0 +1,129 @@
+package dev.snowdrop.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * The {@link OperationMetrics} of a component, by operation name. Metrics are exposed either as JSON or in the
+ * Prometheus text format, where latencies and sizes are summaries with their 50th, 90th and 99th percentiles.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * @return the registry of the components which aren't given one, shared by the whole process
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @return the metrics of the operation, created on first use. Operation names should come from a bounded
+     * set, as the metrics of an operation are never removed.
+     */
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, key -> new OperationMetrics());
+    }
+
+    /**
+     * @return the operations recorded so far, sorted by name
+     */
+    public SortedMap<String, OperationMetrics> getOperations() {
+        return new TreeMap<>(operations);
+    }
+
+    /**
+     * @return the metrics as a JSON object keyed by operation name, with latencies in microseconds
+     */
+    public static JsonObject toJson(Map<String, OperationMetrics> operations) {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            OperationMetrics metrics = entry.getValue();
+            JsonObject operation = new JsonObject();
+            operation.addProperty("calls", metrics.getCalls());
+            operation.addProperty("errors", metrics.getErrors());
+            operation.addProperty("inFlight", metrics.getInFlight());
+            operation.add("latencyMicros", toJson(metrics.getLatencyNanos(), TimeUnit.MICROSECONDS.toNanos(1)));
+            operation.add("requestSize", toJson(metrics.getRequestSizes(), 1));
+            operation.add("responseSize", toJson(metrics.getResponseSizes(), 1));
+            json.add(entry.getKey(), operation);
+        }
+        return json;
+    }
+
+    private static JsonObject toJson(Histogram histogram, long unit) {
+        JsonObject json = new JsonObject();
+        json.addProperty("count", histogram.getCount());
+        json.addProperty("mean", histogram.getMean() / unit);
+        for (double percentile : PERCENTILES) {
+            json.addProperty("p" + (int) percentile, (double) histogram.getValueAtPercentile(percentile) / unit);
+        }
+        json.addProperty("max", (double) histogram.getMax() / unit);
+        return json;
+    }
+
+    /**
+     * @param prefix the prefix of the metric names, such as {@code jdtls}
+     * @return the metrics in the Prometheus text exposition format, with an {@code operation} label and
+     * latencies in seconds
+     */
+    public static String toText(String prefix, Map<String, OperationMetrics> operations) {
+        StringBuilder text = new StringBuilder();
+        appendCounter(text, prefix + "_calls_total", "counter", "Completed calls", operations, OperationMetrics::getCalls);
+        appendCounter(text, prefix + "_errors_total", "counter", "Failed calls", operations, OperationMetrics::getErrors);
+        appendCounter(text, prefix + "_in_flight", "gauge", "Calls in progress", operations, OperationMetrics::getInFlight);
+        appendSummary(text, prefix + "_latency_seconds", "Latency of the calls", operations, 1e9, OperationMetrics::getLatencyNanos);
+        appendSummary(text, prefix + "_request_size", "Size of the requests", operations, 1, OperationMetrics::getRequestSizes);
+        appendSummary(text, prefix + "_response_size", "Size of the responses", operations, 1, OperationMetrics::getResponseSizes);
+        return text.toString();
+    }
+
+    private static void appendCounter(StringBuilder text, String name, String type, String help,
+                                      Map<String, OperationMetrics> operations, ToLongFunction<OperationMetrics> value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            text.append(name).append("{operation=\"").append(escape(entry.getKey())).append("\"} ")
+                .append(value.applyAsLong(entry.getValue())).append('\n');
+        }
+    }
+
+    private static void appendSummary(StringBuilder text, String name, String help, Map<String, OperationMetrics> operations,
+                                      double unit, Function<OperationMetrics, Histogram> histogramOf) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (Map.Entry<String, OperationMetrics> entry : operations.entrySet()) {
+            Histogram histogram = histogramOf.apply(entry.getValue());
+            String operation = escape(entry.getKey());
+            for (double percentile : PERCENTILES) {
+                text.append(name).append("{operation=\"").append(operation).append("\",quantile=\"")
+                    .append(format(percentile / 100)).append("\"} ")
+                    .append(format(histogram.getValueAtPercentile(percentile) / unit)).append('\n');
+            }
+            text.append(name).append("_sum{operation=\"").append(operation).append("\"} ")
+                .append(format(histogram.getSum() / unit)).append('\n');
+            text.append(name).append("_count{operation=\"").append(operation).append("\"} ")
+                .append(histogram.getCount()).append('\n');
+        }
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+}
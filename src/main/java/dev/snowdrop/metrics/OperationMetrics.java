@@ -0,0 +1,83 @@
+package dev.snowdrop.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of one kind of operation, such as a JSON-RPC method: how many calls completed or failed, how
+ * many are in flight, and histograms of their latency and of the size of their input and output.
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.stop(start, failed);
+ * </pre>
+ */
+public final class OperationMetrics {
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Histogram latencyNanos = new Histogram();
+    private final Histogram requestSizes = new Histogram();
+    private final Histogram responseSizes = new Histogram();
+
+    OperationMetrics() {
+    }
+
+    /**
+     * Counts a call in flight.
+     *
+     * @return the start time, to pass to {@link #stop(long, boolean)}
+     */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Counts a call started with {@link #start()} as completed, and records its latency.
+     */
+    public void stop(long start, boolean failed) {
+        latencyNanos.record(System.nanoTime() - start);
+        calls.incrementAndGet();
+        if (failed) {
+            errors.incrementAndGet();
+        }
+        inFlight.decrementAndGet();
+    }
+
+    public void recordRequestSize(long size) {
+        requestSizes.record(size);
+    }
+
+    public void recordResponseSize(long size) {
+        responseSizes.record(size);
+    }
+
+    /**
+     * @return the number of completed calls, failed ones included
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public Histogram getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public Histogram getRequestSizes() {
+        return requestSizes;
+    }
+
+    public Histogram getResponseSizes() {
+        return responseSizes;
+    }
+}
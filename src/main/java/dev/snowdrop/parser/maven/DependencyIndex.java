@@ -0,0 +1,195 @@
+package dev.snowdrop.parser.maven;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.InputLocation;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.building.ModelBuildingResult;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The artifacts declared by a pom, indexed once per built model so that {@link PomParser} finds the location of
+ * a dependency with a hash lookup instead of scanning the model. The index has a section for the effective model
+ * and one for the raw model, whose coordinates are resolved against its properties, where the BOM imports of the
+ * dependency management are still declared. Each section maps {@code groupId:artifactId}, and
+ * {@code groupId:artifactId:version} when the version is known, to the locations of the dependencies then of the
+ * managed dependencies declaring it, in the order of the pom, and records the parent.
+ * <p>
+ * The index also lists the artifacts the pom declares, as used by {@link PomParser#scanReactor}: the
+ * dependencies and managed dependencies of the effective model, the BOMs it imports, and its parent.
+ */
+public final class DependencyIndex {
+
+    private final Section effective;
+    private final Section raw;
+    private final Map<Gav, List<InputLocation>> declarations = new LinkedHashMap<>();
+
+    private DependencyIndex(Section effective, Section raw) {
+        this.effective = effective;
+        this.raw = raw;
+    }
+
+    static DependencyIndex of(String pomPath, ModelBuildingResult result) {
+        Model effectiveModel = result.getEffectiveModel();
+        Model rawModel = result.getRawModel();
+        DependencyIndex index = new DependencyIndex(
+            new Section(pomPath, effectiveModel, false),
+            new Section(pomPath, rawModel, true));
+        index.declare(effectiveModel.getDependencies(), effectiveModel, false);
+        if (effectiveModel.getDependencyManagement() != null) {
+            index.declare(effectiveModel.getDependencyManagement().getDependencies(), effectiveModel, false);
+        }
+        // The effective model replaces the imports by the dependencies they manage
+        if (rawModel.getDependencyManagement() != null) {
+            List<Dependency> imports = new ArrayList<>();
+            for (Dependency d : rawModel.getDependencyManagement().getDependencies()) {
+                if ("import".equals(d.getScope())) {
+                    imports.add(d);
+                }
+            }
+            index.declare(imports, rawModel, true);
+        }
+        Parent p = effectiveModel.getParent();
+        if (p != null && index.effective.parent != null) {
+            index.declarations.computeIfAbsent(index.effective.parent, k -> new ArrayList<>()).add(p.getLocation(""));
+        }
+        return index;
+    }
+
+    private void declare(List<Dependency> dependencies, Model model, boolean resolveProperties) {
+        if (dependencies == null) {
+            return;
+        }
+        for (Dependency d : dependencies) {
+            Gav gav = Section.gavOf(d.getGroupId(), d.getArtifactId(), d.getVersion(), model, resolveProperties);
+            if (gav != null) {
+                declarations.computeIfAbsent(gav, k -> new ArrayList<>()).add(d.getLocation(""));
+            }
+        }
+    }
+
+    /**
+     * @return the locations of each artifact the pom declares, keyed by their version when it is known
+     */
+    public Map<Gav, List<InputLocation>> getDeclarations() {
+        return Collections.unmodifiableMap(declarations);
+    }
+
+    public Section getEffective() {
+        return effective;
+    }
+
+    public Section getRaw() {
+        return raw;
+    }
+
+    /**
+     * The artifacts declared by one of the models of a pom.
+     */
+    public static final class Section {
+        private final Map<Gav, List<InputLocation>> locations = new HashMap<>();
+        private final Gav parent;
+        private final InputLocation parentLocation;
+        private final String parentPomPath;
+
+        private Section(String pomPath, Model model, boolean resolveProperties) {
+            if (model.getDependencies() != null) {
+                index(model.getDependencies(), model, resolveProperties);
+            }
+            if (model.getDependencyManagement() != null) {
+                index(model.getDependencyManagement().getDependencies(), model, resolveProperties);
+            }
+            Parent p = model.getParent();
+            if (p != null) {
+                this.parent = gavOf(p.getGroupId(), p.getArtifactId(), p.getVersion(), model, resolveProperties);
+                this.parentLocation = p.getLocation("");
+                this.parentPomPath = localParent(pomPath, p.getRelativePath());
+            } else {
+                this.parent = null;
+                this.parentLocation = null;
+                this.parentPomPath = null;
+            }
+        }
+
+        private void index(List<Dependency> dependencies, Model model, boolean resolveProperties) {
+            for (Dependency d : dependencies) {
+                Gav gav = gavOf(d.getGroupId(), d.getArtifactId(), d.getVersion(), model, resolveProperties);
+                if (gav == null) {
+                    continue;
+                }
+                InputLocation location = d.getLocation("");
+                locations.computeIfAbsent(new Gav(gav.getGroupId(), gav.getArtifactId(), ""), k -> new ArrayList<>()).add(location);
+                if (gav.hasVersion()) {
+                    locations.computeIfAbsent(gav, k -> new ArrayList<>()).add(location);
+                }
+            }
+        }
+
+        private static Gav gavOf(String groupId, String artifactId, String version, Model model, boolean resolveProperties) {
+            if (resolveProperties) {
+                groupId = PomParser.resolveProperty(groupId, model);
+                artifactId = PomParser.resolveProperty(artifactId, model);
+                version = PomParser.resolveProperty(version, model);
+            }
+            return groupId != null && artifactId != null ? new Gav(groupId, artifactId, version) : null;
+        }
+
+        /**
+         * @return the pom file of a parent found on disk, or {@code null} if it is resolved from a repository
+         */
+        private static String localParent(String pomPath, String relativePath) {
+            if (relativePath == null || relativePath.isEmpty()) {
+                return null;
+            }
+            Path parentPom = Paths.get(new File(pomPath).getParent(), relativePath);
+            if (Files.isDirectory(parentPom)) {
+                parentPom = parentPom.resolve("pom.xml");
+            }
+            return Files.isRegularFile(parentPom) ? parentPom.toString() : null;
+        }
+
+        /**
+         * @return the locations of the dependencies then of the managed dependencies declaring the artifact, in
+         * the order of the pom, which are empty if it isn't declared. A location may be {@code null} when the
+         * model was built without location tracking.
+         */
+        public List<InputLocation> find(Gav gav) {
+            return locations.getOrDefault(gav, Collections.emptyList());
+        }
+
+        public boolean hasParent() {
+            return parent != null;
+        }
+
+        /**
+         * @return whether the artifact is the parent
+         */
+        public boolean isParent(Gav gav) {
+            return parent != null
+                && parent.getGroupId().equals(gav.getGroupId())
+                && parent.getArtifactId().equals(gav.getArtifactId())
+                && (!gav.hasVersion() || gav.getVersion().equals(parent.getVersion()));
+        }
+
+        public InputLocation getParentLocation() {
+            return parentLocation;
+        }
+
+        /**
+         * @return the pom file of the parent when it is found from the relative path, otherwise {@code null}
+         */
+        public String getParentPomPath() {
+            return parentPomPath;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package dev.snowdrop.parser.maven;
+
+import java.util.Objects;
+
+/**
+ * The coordinates of an artifact looked up by {@link PomParser}. An empty version matches any version.
+ */
+public final class Gav {
+
+    private final String groupId;
+    private final String artifactId;
+    private final String version;
+
+    public Gav(String groupId, String artifactId, String version) {
+        this.groupId = Objects.requireNonNull(groupId, "groupId");
+        this.artifactId = Objects.requireNonNull(artifactId, "artifactId");
+        this.version = version != null ? version : "";
+    }
+
+    /**
+     * @param gav {@code group:artifact} or {@code group:artifact:version}
+     */
+    public static Gav parse(String gav) {
+        String[] parts = gav.split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Expected group:artifact[:version], got " + gav);
+        }
+        return new Gav(parts[0], parts[1], parts.length > 2 ? parts[2] : "");
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public boolean hasVersion() {
+        return !version.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Gav)) {
+            return false;
+        }
+        Gav gav = (Gav) o;
+        return groupId.equals(gav.groupId) && artifactId.equals(gav.artifactId) && version.equals(gav.version);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId, artifactId, version);
+    }
+
+    @Override
+    public String toString() {
+        return hasVersion() ? groupId + ":" + artifactId + ":" + version : groupId + ":" + artifactId;
+    }
+}
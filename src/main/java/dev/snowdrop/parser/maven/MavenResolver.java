@@ -0,0 +1,405 @@
+package dev.snowdrop.parser.maven;
+
+import dev.snowdrop.lsp4j.demo.logging.AsyncLogger;
+import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
+import org.eclipse.aether.DefaultRepositoryCache;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
+import org.eclipse.aether.impl.DefaultServiceLocator;
+import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
+import org.eclipse.aether.spi.connector.transport.TransporterFactory;
+import org.eclipse.aether.transport.file.FileTransporterFactory;
+import org.eclipse.aether.transport.http.HttpTransporterFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The repository system, session and remote repositories used to resolve the parents and BOMs of the models
+ * built by {@link PomParser}. Wiring the repository system is costly, so a resolver is meant to be built once
+ * and shared: it is safe to resolve from many threads at once, the session being read-only and its cache
+ * concurrent.
+ * <p>
+ * The poms resolved by {@link #resolvePom} are remembered, as well as the ones which couldn't be resolved for
+ * {@link Builder#negativeCacheTtl a while}, so that the repositories are asked for a pom at most once, even when
+ * it is asked for by many threads at once. Given a {@link Builder#cacheDirectory cache directory}, the
+ * resolutions of release versions are also recorded on disk and reused by the next resolvers with the same local
+ * repository, remote repositories and offline mode, each configuration having its own cache file. An
+ * {@link Builder#offline offline} resolver never reaches the network: it only resolves from the local repository
+ * and from {@code file://} repositories, such as a mirror directory.
+ * <pre>
+ * MavenResolver resolver = MavenResolver.builder()
+ *     .localRepository(Paths.get("/tmp/m2"))
+ *     .remoteRepository("internal", "https://repo.example.com/maven2")
+ *     .cacheDirectory(Paths.get("/tmp/m2/.poms"))
+ *     .build();
+ * </pre>
+ */
+public final class MavenResolver {
+
+    /**
+     * Maven Central, the remote repository of a builder which isn't given any
+     */
+    public static final String CENTRAL_URL = "https://repo.maven.apache.org/maven2";
+
+    /**
+     * How long a pom which couldn't be resolved isn't asked for again, by default
+     */
+    public static final Duration DEFAULT_NEGATIVE_CACHE_TTL = Duration.ofHours(1);
+
+    /**
+     * The prefix of the files of the cache directory recording the resolutions, one per configuration
+     */
+    static final String CACHE_FILE_PREFIX = "resolved-poms-";
+
+    private static final AsyncLogger LOG = AsyncLogger.getLogger(MavenResolver.class);
+
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession session;
+    private final List<RemoteRepository> repositories;
+    private final Path localRepository;
+    private final boolean offline;
+    private final Path cacheFile;
+    private final long negativeCacheTtlMillis;
+    // Completed once resolved, so that concurrent resolutions of the same pom wait for the first one
+    private final ConcurrentHashMap<String, CompletableFuture<Resolution>> poms = new ConcurrentHashMap<>();
+    private final AtomicLong repositoryRequests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private MavenResolver(Builder builder) {
+        this.localRepository = builder.localRepository;
+        this.offline = builder.offline;
+        this.repositorySystem = newRepositorySystem();
+        this.session = newSession(repositorySystem, localRepository, offline);
+        if (!builder.repositories.isEmpty()) {
+            this.repositories = List.copyOf(builder.repositories);
+        } else if (offline) {
+            this.repositories = List.of();
+        } else {
+            this.repositories = List.of(new RemoteRepository.Builder("central", "default", CENTRAL_URL).build());
+        }
+        this.negativeCacheTtlMillis = builder.negativeCacheTtl.toMillis();
+        this.cacheFile = builder.cacheDirectory != null ? builder.cacheDirectory.resolve(cacheFileName()) : null;
+        if (cacheFile != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return the resolver using {@code ~/.m2/repository} and Maven Central, created on first use
+     */
+    public static MavenResolver getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the name of the cache file of this configuration: a pom resolved, or missing, with other repositories
+     * or while offline may not be with these
+     */
+    private String cacheFileName() {
+        StringBuilder configuration = new StringBuilder()
+            .append(offline).append('\n')
+            .append(localRepository.toAbsolutePath().normalize()).append('\n');
+        for (RemoteRepository repository : repositories) {
+            configuration.append(repository.getId()).append('=').append(repository.getUrl()).append('\n');
+        }
+        return CACHE_FILE_PREFIX + UUID.nameUUIDFromBytes(configuration.toString().getBytes(StandardCharsets.UTF_8)) + ".txt";
+    }
+
+    private static RepositorySystem newRepositorySystem() {
+        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
+        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
+        locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
+        locator.addService(TransporterFactory.class, FileTransporterFactory.class);
+        return locator.getService(RepositorySystem.class);
+    }
+
+    private static RepositorySystemSession newSession(RepositorySystem system, Path localRepository, boolean offline) {
+        DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
+        session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, new LocalRepository(localRepository.toFile())));
+        if (offline) {
+            session.setOffline(true);
+            // Mirror directories are still read
+            session.setConfigProperty("aether.offline.protocols", "file");
+        }
+        // Shared by the resolutions of every thread, so that each parent is looked up once
+        session.setCache(new DefaultRepositoryCache());
+        session.setReadOnly();
+        return session;
+    }
+
+    /**
+     * Resolves a pom from the local repository or the remote repositories, unless it was already resolved or
+     * failed to be resolved recently.
+     *
+     * @return the pom file, in the local repository
+     * @throws ArtifactResolutionException if the pom can't be resolved, which is remembered
+     */
+    public File resolvePom(String groupId, String artifactId, String version) throws ArtifactResolutionException {
+        String key = groupId + ":" + artifactId + ":" + version;
+        while (true) {
+            CompletableFuture<Resolution> resolving = new CompletableFuture<>();
+            CompletableFuture<Resolution> resolved = poms.putIfAbsent(key, resolving);
+            if (resolved == null) {
+                try {
+                    resolving.complete(resolve(key, groupId, artifactId, version));
+                } catch (RuntimeException e) {
+                    // Not remembered: the next resolution tries again
+                    poms.remove(key, resolving);
+                    resolving.completeExceptionally(e);
+                    throw e;
+                }
+                resolved = resolving;
+            } else {
+                cacheHits.incrementAndGet();
+            }
+            Resolution resolution = resolved.join();
+            // Just resolved by this call: only an earlier resolution can be stale
+            if (resolved != resolving && !resolution.isValid(negativeCacheTtlMillis)) {
+                poms.remove(key, resolved);
+                continue;
+            }
+            if (resolution.file == null) {
+                throw new ArtifactResolutionException(Collections.emptyList(), resolution.failure);
+            }
+            return resolution.file;
+        }
+    }
+
+    private Resolution resolve(String key, String groupId, String artifactId, String version) {
+        repositoryRequests.incrementAndGet();
+        Resolution resolution;
+        try {
+            ArtifactRequest request = new ArtifactRequest(new DefaultArtifact(groupId, artifactId, "pom", version), repositories, null);
+            resolution = new Resolution(repositorySystem.resolveArtifact(session, request).getArtifact().getFile(), null, System.currentTimeMillis());
+        } catch (ArtifactResolutionException e) {
+            resolution = new Resolution(null, String.valueOf(e.getMessage()), System.currentTimeMillis());
+        }
+        // Snapshots may be deployed again
+        if (cacheFile != null && !version.endsWith("-SNAPSHOT")) {
+            record(key, resolution);
+        }
+        return resolution;
+    }
+
+    /**
+     * Reads the recorded resolutions. The file only grows while resolving, so it is rewritten with the resolutions
+     * still valid when it holds others.
+     */
+    private void load() {
+        if (!Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the resolved poms from " + cacheFile, e);
+        }
+        // Later lines override earlier ones
+        Map<String, Resolution> resolutions = new LinkedHashMap<>();
+        for (String line : lines) {
+            String[] fields = line.split("\t", 4);
+            // A line may be cut short by a crash while it was written
+            if (fields.length != 4 || !fields[1].matches("\\d+")) {
+                continue;
+            }
+            long resolvedAt = Long.parseLong(fields[1]);
+            Resolution resolution = fields[2].equals("+")
+                ? new Resolution(new File(fields[3]), null, resolvedAt)
+                : new Resolution(null, fields[3], resolvedAt);
+            resolutions.remove(fields[0]);
+            if (resolution.isValid(negativeCacheTtlMillis)) {
+                resolutions.put(fields[0], resolution);
+            }
+        }
+        resolutions.forEach((key, resolution) -> poms.put(key, CompletableFuture.completedFuture(resolution)));
+        if (resolutions.size() < lines.size()) {
+            compact(resolutions);
+        }
+    }
+
+    private void compact(Map<String, Resolution> resolutions) {
+        StringBuilder content = new StringBuilder();
+        resolutions.forEach((key, resolution) -> content.append(line(key, resolution)));
+        Path compacted = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(compacted, content, StandardCharsets.UTF_8);
+            Files.move(compacted, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Still read, only larger than needed
+            LOG.warn("Could not compact the resolved poms of {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private synchronized void record(String key, Resolution resolution) {
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            Files.writeString(cacheFile, line(key, resolution), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // Still resolved, only not remembered by the next resolvers
+            LOG.warn("Could not record a resolved pom in {}: {}", cacheFile, e.getMessage());
+        }
+    }
+
+    private static String line(String key, Resolution resolution) {
+        return key + "\t" + resolution.resolvedAt + "\t"
+            + (resolution.file != null ? "+\t" + resolution.file.getAbsolutePath() : "-\t" + resolution.failure.replaceAll("\\s+", " "))
+            + System.lineSeparator();
+    }
+
+    /**
+     * @return the number of poms looked up in the repositories, the others being remembered
+     */
+    public long getRepositoryRequests() {
+        return repositoryRequests.get();
+    }
+
+    /**
+     * @return the number of resolutions answered from memory or from the cache directory
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public RepositorySystem getRepositorySystem() {
+        return repositorySystem;
+    }
+
+    public RepositorySystemSession getSession() {
+        return session;
+    }
+
+    public List<RemoteRepository> getRepositories() {
+        return repositories;
+    }
+
+    public Path getLocalRepository() {
+        return localRepository;
+    }
+
+    /**
+     * A pom file, or why it couldn't be resolved.
+     */
+    private static final class Resolution {
+        private final File file;
+        private final String failure;
+        private final long resolvedAt;
+
+        Resolution(File file, String failure, long resolvedAt) {
+            this.file = file;
+            this.failure = failure;
+            this.resolvedAt = resolvedAt;
+        }
+
+        boolean isValid(long negativeCacheTtlMillis) {
+            if (file != null) {
+                // Removed from the local repository since
+                return file.isFile();
+            }
+            return System.currentTimeMillis() - resolvedAt < negativeCacheTtlMillis;
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final MavenResolver INSTANCE = builder().build();
+    }
+
+    public static final class Builder {
+        private Path localRepository = Paths.get(System.getProperty("user.home"), ".m2", "repository");
+        private final List<RemoteRepository> repositories = new ArrayList<>();
+        private boolean offline;
+        private Path cacheDirectory;
+        private Duration negativeCacheTtl = DEFAULT_NEGATIVE_CACHE_TTL;
+
+        private Builder() {
+        }
+
+        /**
+         * @param localRepository where resolved poms are stored, {@code ~/.m2/repository} by default
+         */
+        public Builder localRepository(Path localRepository) {
+            this.localRepository = localRepository;
+            return this;
+        }
+
+        /**
+         * Adds a remote repository, searched in the order they are added. Maven Central is only used when no
+         * repository is added and the resolver isn't offline.
+         *
+         * @param url an {@code https://} or {@code file://} URL
+         */
+        public Builder remoteRepository(String id, String url) {
+            repositories.add(new RemoteRepository.Builder(id, "default", url).build());
+            return this;
+        }
+
+        /**
+         * Adds a directory laid out as a Maven repository, such as a mirror, which is read even when offline.
+         */
+        public Builder fileRepository(String id, Path directory) {
+            return remoteRepository(id, directory.toUri().toString());
+        }
+
+        /**
+         * @param offline whether only the local repository and the {@code file://} repositories are read
+         */
+        public Builder offline(boolean offline) {
+            this.offline = offline;
+            return this;
+        }
+
+        /**
+         * @param cacheDirectory where the resolutions of release poms are recorded for the next resolvers, none
+         *                       by default
+         */
+        public Builder cacheDirectory(Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        /**
+         * @param negativeCacheTtl how long a pom which couldn't be resolved isn't asked for again
+         */
+        public Builder negativeCacheTtl(Duration negativeCacheTtl) {
+            this.negativeCacheTtl = negativeCacheTtl;
+            return this;
+        }
+
+        public MavenResolver build() {
+            return new MavenResolver(this);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package dev.snowdrop.parser.maven;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.ModelBuildingResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Effective models built by {@link PomParser}, keyed by the path of their pom file, so that looking up many
+ * dependencies in a project builds each model once. Entries are evicted in least-recently-used order once the
+ * cache holds too many models.
+ * <p>
+ * A model is only served while the pom files it was built from are unchanged: its own and those of the local
+ * parents it inherits from. A file whose modification time or size changed is hashed, and the model is rebuilt
+ * only when the content differs, so touching a file doesn't cost a rebuild. Parents resolved from a repository
+ * are identified by their version and not checked.
+ * <p>
+ * Cached results are shared between the lookups they are returned to and must not be modified.
+ */
+public final class ModelCache {
+
+    /**
+     * Default number of cached models
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final LinkedHashMap<Path, Entry> models = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * @param maxEntries the maximum number of cached models, 0 disables the cache
+     */
+    public ModelCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the cached model of the pom file, or {@code null} if it has to be built
+     */
+    public ModelBuildingResult get(Path pomFile) {
+        Path key = key(pomFile);
+        Entry entry;
+        synchronized (this) {
+            entry = models.get(key);
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+        }
+        // Checked outside the lock, as it may read the files
+        boolean upToDate = entry.isUpToDate();
+        synchronized (this) {
+            if (upToDate) {
+                hits++;
+                return entry.result;
+            }
+            if (models.get(key) == entry) {
+                models.remove(key);
+            }
+            invalidations++;
+            misses++;
+            return null;
+        }
+    }
+
+    public void put(Path pomFile, ModelBuildingResult result) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        Entry entry;
+        try {
+            entry = new Entry(result, sourcesOf(pomFile, result));
+        } catch (UncheckedIOException e) {
+            // Changed while being built: the next lookup builds it again
+            return;
+        }
+        synchronized (this) {
+            models.put(key(pomFile), entry);
+            Iterator<Entry> eldest = models.values().iterator();
+            while (models.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * Drops every model.
+     */
+    public synchronized void invalidate() {
+        models.clear();
+    }
+
+    private static Path key(Path pomFile) {
+        return pomFile.toAbsolutePath().normalize();
+    }
+
+    private static List<Source> sourcesOf(Path pomFile, ModelBuildingResult result) {
+        List<Source> sources = new ArrayList<>();
+        sources.add(new Source(key(pomFile)));
+        for (String modelId : result.getModelIds()) {
+            Model model = result.getRawModel(modelId);
+            File file = model != null ? model.getPomFile() : null;
+            if (file != null && !key(file.toPath()).equals(sources.get(0).path)) {
+                sources.add(new Source(key(file.toPath())));
+            }
+        }
+        return sources;
+    }
+
+    public synchronized int size() {
+        return models.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of models dropped because one of their pom files changed
+     */
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return the share of the lookups served from the cache, between 0 and 1
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private static final class Entry {
+        private final ModelBuildingResult result;
+        private final List<Source> sources;
+
+        Entry(ModelBuildingResult result, List<Source> sources) {
+            this.result = result;
+            this.sources = sources;
+        }
+
+        boolean isUpToDate() {
+            for (Source source : sources) {
+                if (!source.isUnchanged()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A pom file a model was built from, as it was when the model was built.
+     */
+    private static final class Source {
+        private final Path path;
+        private final byte[] hash;
+        private volatile long lastModified;
+        private final long size;
+
+        Source(Path path) {
+            this.path = path;
+            try {
+                this.lastModified = Files.getLastModifiedTime(path).toMillis();
+                this.size = Files.size(path);
+                this.hash = hash(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        boolean isUnchanged() {
+            try {
+                long currentLastModified = Files.getLastModifiedTime(path).toMillis();
+                long currentSize = Files.size(path);
+                if (currentLastModified == lastModified && currentSize == size) {
+                    return true;
+                }
+                if (currentSize != size || !Arrays.equals(hash, hash(path))) {
+                    return false;
+                }
+                // Touched without being changed
+                lastModified = currentLastModified;
+                return true;
+            } catch (IOException e) {
+                // Deleted or unreadable
+                return false;
+            }
+        }
+
+        private static byte[] hash(Path path) throws IOException {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(path));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is always available", e);
+            }
+        }
+    }
+}
@@ -1,100 +1,322 @@
 package dev.snowdrop.parser.maven;
 
-import org.apache.maven.model.Dependency;
+import dev.snowdrop.metrics.MetricsRegistry;
+import dev.snowdrop.metrics.OperationMetrics;
 import org.apache.maven.model.InputLocation;
 import org.apache.maven.model.Model;
-import org.apache.maven.model.Parent;
 import org.apache.maven.model.building.*;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class PomParser {
 
     private ModelBuilder modelBuilder = null;
+    private final ModelCache modelCache;
+    private final MavenResolver resolver;
+    // The index of each cached model, dropped with the model
+    private final Map<ModelBuildingResult, DependencyIndex> indexes = Collections.synchronizedMap(new WeakHashMap<>());
+    private final OperationMetrics lookupMetrics;
+    private final OperationMetrics batchLookupMetrics;
+    private final OperationMetrics reactorMetrics;
+    private final OperationMetrics buildMetrics;
 
     public PomParser() {
+        this(MetricsRegistry.getDefault());
+    }
+
+    public PomParser(MetricsRegistry metrics) {
+        this(metrics, new ModelCache(ModelCache.DEFAULT_MAX_ENTRIES));
+    }
+
+    /**
+     * @param metrics    records the dependency lookups as `pom/findDependencyLocation`, the batch lookups as
+     *                   `pom/findDependencyLocations` with the number of artifacts looked up and found, the reactor
+     *                   scans as `pom/scanReactor` with the number of modules, and the model builds as
+     *                   `pom/buildModel`, with the size of the pom files. Models served from the cache aren't builds.
+     * @param modelCache the effective models reused across lookups, which may be shared by several parsers
+     */
+    public PomParser(MetricsRegistry metrics, ModelCache modelCache) {
+        this(metrics, modelCache, MavenResolver.getDefault());
+    }
+
+    /**
+     * @param resolver the repositories the parents and imported BOMs are resolved from, which may be shared by
+     *                 several parsers
+     */
+    public PomParser(MetricsRegistry metrics, ModelCache modelCache, MavenResolver resolver) {
         this.modelBuilder = new DefaultModelBuilderFactory().newInstance();
+        this.modelCache = modelCache;
+        this.resolver = resolver;
+        this.lookupMetrics = metrics.operation("pom/findDependencyLocation");
+        this.batchLookupMetrics = metrics.operation("pom/findDependencyLocations");
+        this.reactorMetrics = metrics.operation("pom/scanReactor");
+        this.buildMetrics = metrics.operation("pom/buildModel");
+    }
+
+    public ModelCache getModelCache() {
+        return modelCache;
+    }
+
+    public MavenResolver getResolver() {
+        return resolver;
     }
 
     public Optional<InputLocation> findDependencyLocation(String pomPath, String groupId, String artifactId, String version) {
-        ModelBuildingResult result = buildModel(pomPath);
+        long start = lookupMetrics.start();
+        boolean failed = true;
+        try {
+            Optional<InputLocation> location = findDependencyLocationInModels(pomPath, groupId, artifactId, version);
+            failed = false;
+            return location;
+        } finally {
+            lookupMetrics.stop(start, failed);
+        }
+    }
+
+    /**
+     * Looks up many artifacts in a pom at once, indexing the pom and its local parents once and finding each
+     * artifact with a hash lookup. An artifact is searched as by {@link #findDependencyLocation}.
+     *
+     * @return the location of each artifact found, in the order of the artifacts looked up
+     */
+    public Map<Gav, InputLocation> findDependencyLocations(String pomPath, Collection<Gav> gavs) {
+        long start = batchLookupMetrics.start();
+        batchLookupMetrics.recordRequestSize(gavs.size());
+        boolean failed = true;
+        try {
+            DependencyIndex index = indexOf(pomPath);
+            LocalParents parents = new LocalParents(index);
+            Map<Gav, InputLocation> locations = new LinkedHashMap<>();
+            for (Gav gav : gavs) {
+                findDependencyLocation(index, parents, gav).ifPresent(location -> locations.put(gav, location));
+            }
+            batchLookupMetrics.recordResponseSize(locations.size());
+            failed = false;
+            return locations;
+        } finally {
+            batchLookupMetrics.stop(start, failed);
+        }
+    }
+
+    /**
+     * Scans a multi-module project on the common pool. See {@link #scanReactor(String, ForkJoinPool)}.
+     */
+    public ReactorScan scanReactor(String rootPomPath) {
+        return scanReactor(rootPomPath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Finds the modules of a multi-module project, following the {@code <modules>} of each pom from the root one,
+     * and lists the artifacts they declare. The models of the modules are built concurrently on the pool, as the
+     * modules are found, and the parents and BOMs resolved from a repository are shared by all the builds of the
+     * scan. Modules whose model is in the model cache aren't built again.
+     *
+     * @param rootPomPath the pom file of the root module, the modules being reported by their absolute path
+     */
+    public ReactorScan scanReactor(String rootPomPath, ForkJoinPool pool) {
+        long start = reactorMetrics.start();
+        boolean failed = true;
+        try {
+            Set<Path> visited = ConcurrentHashMap.newKeySet();
+            Path rootPom = Paths.get(rootPomPath).toAbsolutePath().normalize();
+            visited.add(rootPom);
+            List<ModuleScan> scans = pool.invoke(new ModuleTask(rootPom.toString(), new ReactorModelCache(), visited));
+
+            List<String> modules = new ArrayList<>();
+            Map<String, String> failures = new LinkedHashMap<>();
+            List<DependencyIndex> indexes = new ArrayList<>();
+            for (ModuleScan scan : scans) {
+                modules.add(scan.pomPath);
+                if (scan.index != null) {
+                    indexes.add(scan.index);
+                } else {
+                    failures.put(scan.pomPath, scan.failure);
+                }
+            }
+            ReactorScan reactor = new ReactorScan(modules, failures, indexes);
+            reactorMetrics.recordResponseSize(modules.size());
+            failed = false;
+            return reactor;
+        } finally {
+            reactorMetrics.stop(start, failed);
+        }
+    }
+
+    /**
+     * Builds the model of a module and forks the scans of its modules, returning the scans of the module tree
+     * in depth-first order.
+     */
+    private final class ModuleTask extends RecursiveTask<List<ModuleScan>> {
+        private static final long serialVersionUID = 1L;
+
+        private final String pomPath;
+        private final ReactorModelCache sharedModels;
+        private final Set<Path> visited;
+
+        ModuleTask(String pomPath, ReactorModelCache sharedModels, Set<Path> visited) {
+            this.pomPath = pomPath;
+            this.sharedModels = sharedModels;
+            this.visited = visited;
+        }
+
+        @Override
+        protected List<ModuleScan> compute() {
+            ModuleScan scan = new ModuleScan(pomPath);
+            Model model;
+            try {
+                ModelBuildingResult result = buildModel(pomPath, sharedModels);
+                scan.index = indexOf(pomPath, result);
+                model = result.getEffectiveModel();
+            } catch (Exception e) {
+                scan.failure = e.getMessage();
+                // Still follow the modules of the pom, unless it can't even be read
+                try {
+                    model = modelBuilder.buildRawModel(new File(pomPath), ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL, false).get();
+                } catch (Exception rawFailure) {
+                    scan.failure += " (modules not scanned: " + rawFailure.getMessage() + ")";
+                    model = null;
+                }
+            }
+
+            List<ModuleTask> tasks = new ArrayList<>();
+            if (model != null) {
+                Path directory = Paths.get(pomPath).getParent();
+                for (String module : model.getModules()) {
+                    Path modulePom = directory.resolve(module).normalize();
+                    if (Files.isDirectory(modulePom)) {
+                        modulePom = modulePom.resolve("pom.xml");
+                    }
+                    if (visited.add(modulePom)) {
+                        tasks.add(new ModuleTask(modulePom.toString(), sharedModels, visited));
+                    }
+                }
+            }
+            invokeAll(tasks);
 
+            List<ModuleScan> scans = new ArrayList<>();
+            scans.add(scan);
+            for (ModuleTask task : tasks) {
+                scans.addAll(task.join());
+            }
+            return scans;
+        }
+    }
+
+    private static final class ModuleScan {
+        private final String pomPath;
+        private DependencyIndex index;
+        private String failure;
+
+        ModuleScan(String pomPath) {
+            this.pomPath = pomPath;
+        }
+    }
+
+    private Optional<InputLocation> findDependencyLocationInModels(String pomPath, String groupId, String artifactId, String version) {
+        DependencyIndex index = indexOf(pomPath);
+        return findDependencyLocation(index, new LocalParents(index), new Gav(groupId, artifactId, version));
+    }
+
+    private Optional<InputLocation> findDependencyLocation(DependencyIndex index, LocalParents parents, Gav gav) {
         // First try with effective model (current behavior)
-        Optional<InputLocation> location = searchDependency(result.getEffectiveModel(), pomPath, groupId, artifactId, version, true);
+        Optional<InputLocation> location = searchDependency(index.getEffective(), parents, gav);
 
         // If not found with effective model, try with raw model to BOM's case
         if (!location.isPresent()) {
-            location = searchDependency(result.getRawModel(), pomPath, groupId, artifactId, version, false);
+            location = searchDependency(index.getRaw(), parents, gav);
         }
 
         return location;
     }
 
-    public Optional<InputLocation> searchDependency(Model model, String pomPath, String groupId, String artifactId, String version, boolean isEffectiveModel) {
-
-        //model.getBuild().getPlugins().stream().forEach(p -> {System.out.printf("Plugin gav: %s:%s:%s\n", p.getGroupId(), p.getArtifactId(), p.getVersion());});
-
-        if (model.getDependencies() != null) {
-            //System.out.println("========= Dependencies ==========");
-            //printDependencies(model.getDependencies());
-            Optional<Dependency> dep = model.getDependencies().stream()
-                .filter(d -> matchesGav(d, groupId, artifactId, version, model, isEffectiveModel))
-                .findFirst();
-
-            if (dep.isPresent()) {
-                // Found it!
-                return Optional.ofNullable(dep.get().getLocation(""));
+    private Optional<InputLocation> searchDependency(DependencyIndex.Section section, LocalParents parents, Gav gav) {
+        List<InputLocation> locations = section.find(gav);
+        if (!locations.isEmpty()) {
+            return Optional.ofNullable(locations.get(0));
+        }
+        // If the GAV has not been found within the pom, then we will search about it within its local parents
+        DependencyIndex.Section last = section;
+        DependencyIndex.Section parent;
+        for (int i = 0; (parent = parents.get(i)) != null; i++) {
+            locations = parent.find(gav);
+            if (!locations.isEmpty()) {
+                return Optional.ofNullable(locations.get(0));
             }
+            last = parent;
         }
+        // GAV is defined part of the pom parent section of the last local pom
+        return last.isParent(gav) ? Optional.ofNullable(last.getParentLocation()) : Optional.empty();
+    }
 
-        if (model.getDependencyManagement() != null) {
-            //System.out.println("========= Dependencies of DependencyManagement ==========");
-            //printDependencies(model.getDependencyManagement().getDependencies());
-            Optional<Dependency> dep = model.getDependencyManagement().getDependencies().stream()
-                .filter(d -> matchesGav(d, groupId, artifactId, version, model, isEffectiveModel))
-                .findFirst();
+    /**
+     * The effective sections of the parents of a pom found on disk, from the closest one up to the one whose parent
+     * is resolved from a repository or which has no parent. Both models of a pom share its parent. A parent is only
+     * built and indexed once an artifact isn't found below it, and then once for all the artifacts of a batch.
+     */
+    private final class LocalParents {
+        private final List<DependencyIndex.Section> sections = new ArrayList<>();
+        private DependencyIndex.Section last;
 
-            if (dep.isPresent()) {
-                // Found it!
-                return Optional.ofNullable(dep.get().getLocation(""));
-            }
+        LocalParents(DependencyIndex index) {
+            this.last = index.getEffective();
         }
 
-        Parent p = model.getParent();
-        if (p != null) {
-            // If the GAV has not been found within the parent tag, then we will search about it within the parent pom: dependencies, dependencyManagement
-            String parentRelativePath = p.getRelativePath();
-            if (parentRelativePath != "") {
-                String parentPomPath = Paths.get(new File(pomPath).getParent(), parentRelativePath).toString();
-                return searchDependency(buildModel(parentPomPath).getEffectiveModel(), parentPomPath, groupId, artifactId, version, true);
-            } else {
-                // GAV is defined part of the pom parent section
-                if (matchesGav(p, groupId, artifactId, version, model, isEffectiveModel)) {
-                    return Optional.ofNullable(p.getLocation(""));
-                } else {
-                    return Optional.empty();
-                }
+        /**
+         * @return the section of the parent {@code i + 1} levels up, or {@code null} past the last local parent
+         */
+        DependencyIndex.Section get(int i) {
+            while (sections.size() <= i && last.getParentPomPath() != null) {
+                last = indexOf(last.getParentPomPath()).getEffective();
+                sections.add(last);
             }
+            return i < sections.size() ? sections.get(i) : null;
         }
+    }
 
-        return Optional.empty();
+    private DependencyIndex indexOf(String pomPath) {
+        ModelBuildingResult result = buildModel(pomPath);
+        if (result == null) {
+            throw new IllegalStateException("Could not build the effective model of " + pomPath);
+        }
+        return indexOf(pomPath, result);
     }
 
-    private void printDependencies(List<Dependency> deps) {
-        for (Dependency d : deps) {
-            System.out.printf("Dep: %s:%s:%s\n", d.getGroupId(), d.getArtifactId(), d.getVersion());
+    /**
+     * @return the index of a built model, indexing it unless it already is. The index is built outside the lock
+     * of the map, so that models are indexed concurrently: a model indexed by two threads at once keeps the first index.
+     */
+    private DependencyIndex indexOf(String pomPath, ModelBuildingResult result) {
+        DependencyIndex index = indexes.get(result);
+        if (index == null) {
+            DependencyIndex built = DependencyIndex.of(pomPath, result);
+            index = indexes.putIfAbsent(result, built);
+            if (index == null) {
+                index = built;
+            }
         }
+        return index;
     }
 
     /**
      * Resolves property placeholders in a given value using the model's properties
      */
-    private String resolveProperty(String value, Model model) {
+    static String resolveProperty(String value, Model model) {
         if (value == null || !value.contains("${")) {
             return value;
         }
@@ -116,55 +338,25 @@ public class PomParser {
         return resolved;
     }
 
-    /**
-     * Matches a dependency GAV against the search criteria, handling both effective and raw models
-     */
-    private boolean matchesGav(Dependency dependency, String groupId, String artifactId, String version, Model model, boolean isEffectiveModel) {
-        return matchesArtifact(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion(),
-                             groupId, artifactId, version, model, isEffectiveModel);
-    }
-
-    /**
-     * Matches a parent GAV against the search criteria, handling both effective and raw models
-     */
-    private boolean matchesGav(Parent parent, String groupId, String artifactId, String version, Model model, boolean isEffectiveModel) {
-        return matchesArtifact(parent.getGroupId(), parent.getArtifactId(), parent.getVersion(),
-                             groupId, artifactId, version, model, isEffectiveModel);
+    private ModelBuildingResult buildModel(String pomPath) {
+        try {
+            return buildModel(pomPath, null);
+        } catch (Exception e) {
+            System.out.println("Could not build effective model: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
     }
 
     /**
-     * Common logic for matching artifacts (dependencies or parents) against search criteria
+     * @param sharedModels the parents and BOMs already resolved by the other builds of a reactor, or {@code null}
      */
-    private boolean matchesArtifact(String artifactGroupId, String artifactArtifactId, String artifactVersion,
-                                   String searchGroupId, String searchArtifactId, String searchVersion,
-                                   Model model, boolean isEffectiveModel) {
-        String resolvedGroupId = artifactGroupId;
-        String resolvedArtifactId = artifactArtifactId;
-        String resolvedVersion = artifactVersion;
-
-        // For raw model, resolve properties to match against the search criteria
-        if (!isEffectiveModel) {
-            resolvedGroupId = resolveProperty(resolvedGroupId, model);
-            resolvedArtifactId = resolveProperty(resolvedArtifactId, model);
-            resolvedVersion = resolveProperty(resolvedVersion, model);
-        }
-
-        // Check if groupId and artifactId match
-        if (!searchGroupId.equals(resolvedGroupId) || !searchArtifactId.equals(resolvedArtifactId)) {
-            return false;
-        }
-
-        // Check version if specified
-        boolean hasSearchVersion = (searchVersion != null && !searchVersion.isEmpty());
-        if (!hasSearchVersion) {
-            return true; // Match without version check
-        } else {
-            return searchVersion.equals(resolvedVersion);
+    private ModelBuildingResult buildModel(String pomPath, ReactorModelCache sharedModels) throws ModelBuildingException {
+        ModelBuildingResult cached = modelCache.get(Paths.get(pomPath));
+        if (cached != null) {
+            return cached;
         }
-    }
-
-    private ModelBuildingResult buildModel(String pomPath) {
-        RepositoryModelResolver repositoryModelResolver = new RepositoryModelResolver();
+        RepositoryModelResolver repositoryModelResolver = new RepositoryModelResolver(resolver);
         DefaultModelBuildingRequest req = new DefaultModelBuildingRequest();
         req.setProcessPlugins(false);
         req.setPomFile(new File(pomPath));
@@ -172,15 +364,18 @@ public class PomParser {
         req.setSystemProperties(System.getProperties());
         req.setLocationTracking(true);
         req.setModelResolver(repositoryModelResolver);
+        req.setModelCache(sharedModels);
 
         ModelBuildingResult result = null;
+        long start = buildMetrics.start();
+        buildMetrics.recordRequestSize(new File(pomPath).length());
         try {
-            return modelBuilder.build(req);
+            result = modelBuilder.build(req);
             //return modelBuilder.buildRawModel(new File(pomPath), 0, true);
-        } catch (Exception e) {
-            System.out.println("Could not build effective model: " + e.getMessage());
-            e.printStackTrace();
+        } finally {
+            buildMetrics.stop(start, result == null);
         }
+        modelCache.put(Paths.get(pomPath), result);
         return result;
     }
 
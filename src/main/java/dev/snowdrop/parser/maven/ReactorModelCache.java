@@ -0,0 +1,25 @@
+package dev.snowdrop.parser.maven;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The parents and imported BOMs resolved from a repository while building the models of a reactor, shared by
+ * the modules built concurrently so that each one is only read and resolved once. The model builder copies the
+ * models it puts and gets, so they are never modified by two builds.
+ */
+final class ReactorModelCache implements org.apache.maven.model.building.ModelCache {
+
+    private final ConcurrentHashMap<List<String>, Object> models = new ConcurrentHashMap<>();
+
+    @Override
+    public void put(String groupId, String artifactId, String version, String tag, Object data) {
+        models.put(Arrays.asList(groupId, artifactId, version, tag), data);
+    }
+
+    @Override
+    public Object get(String groupId, String artifactId, String version, String tag) {
+        return models.get(Arrays.asList(groupId, artifactId, version, tag));
+    }
+}
@@ -0,0 +1,78 @@
+package dev.snowdrop.parser.maven;
+
+import org.apache.maven.model.InputLocation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The artifacts declared by the modules of a reactor, as found by {@link PomParser#scanReactor}. Each artifact
+ * is mapped to every location declaring it, once, whether the declaration is in a module or in a parent or BOM
+ * the modules inherit from.
+ */
+public final class ReactorScan {
+
+    private final List<String> modules;
+    private final Map<String, String> failures;
+    private final Map<Gav, List<InputLocation>> locations = new LinkedHashMap<>();
+    private final Map<Gav, List<InputLocation>> locationsByArtifact = new HashMap<>();
+
+    ReactorScan(List<String> modules, Map<String, String> failures, List<DependencyIndex> indexes) {
+        this.modules = Collections.unmodifiableList(modules);
+        this.failures = Collections.unmodifiableMap(failures);
+        Map<String, Boolean> seen = new HashMap<>();
+        for (DependencyIndex index : indexes) {
+            for (Map.Entry<Gav, List<InputLocation>> declaration : index.getDeclarations().entrySet()) {
+                Gav gav = declaration.getKey();
+                Gav artifact = new Gav(gav.getGroupId(), gav.getArtifactId(), "");
+                for (InputLocation location : declaration.getValue()) {
+                    // Inherited declarations are found in every module
+                    if (location == null || seen.put(gav + "@" + keyOf(location), Boolean.TRUE) != null) {
+                        continue;
+                    }
+                    locations.computeIfAbsent(gav, k -> new ArrayList<>()).add(location);
+                    locationsByArtifact.computeIfAbsent(artifact, k -> new ArrayList<>()).add(location);
+                }
+            }
+        }
+    }
+
+    private static String keyOf(InputLocation location) {
+        String source = location.getSource() != null ? location.getSource().getLocation() : null;
+        return source + ":" + location.getLineNumber() + ":" + location.getColumnNumber();
+    }
+
+    /**
+     * @return the pom files of the modules, the root first, in the order the modules are declared
+     */
+    public List<String> getModules() {
+        return modules;
+    }
+
+    /**
+     * @return the reason why the model of a module couldn't be built, keyed by its pom file. The modules of
+     * such a module are still scanned.
+     */
+    public Map<String, String> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the locations of each declared artifact, keyed by their version when it is known
+     */
+    public Map<Gav, List<InputLocation>> getLocations() {
+        return Collections.unmodifiableMap(locations);
+    }
+
+    /**
+     * @return the locations declaring the artifact, or any version of it if the version is empty
+     */
+    public List<InputLocation> find(Gav gav) {
+        Map<Gav, List<InputLocation>> map = gav.hasVersion() ? locations : locationsByArtifact;
+        return Collections.unmodifiableList(map.getOrDefault(gav, Collections.emptyList()));
+    }
+}
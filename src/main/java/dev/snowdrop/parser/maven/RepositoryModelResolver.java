@@ -8,55 +8,39 @@ import org.apache.maven.model.building.ModelSource;
 import org.apache.maven.model.resolution.InvalidRepositoryException;
 import org.apache.maven.model.resolution.ModelResolver;
 import org.apache.maven.model.resolution.UnresolvableModelException;
-import org.apache.maven.repository.internal.MavenRepositorySystemUtils;
-import org.eclipse.aether.DefaultRepositorySystemSession;
 import org.eclipse.aether.RepositorySystem;
-import org.eclipse.aether.artifact.Artifact;
-import org.eclipse.aether.artifact.DefaultArtifact;
-import org.eclipse.aether.connector.basic.BasicRepositoryConnectorFactory;
-import org.eclipse.aether.impl.DefaultServiceLocator;
-import org.eclipse.aether.repository.LocalRepository;
+import org.eclipse.aether.RepositorySystemSession;
 import org.eclipse.aether.repository.RemoteRepository;
-import org.eclipse.aether.resolution.ArtifactRequest;
-import org.eclipse.aether.resolution.ArtifactResult;
-import org.eclipse.aether.spi.connector.RepositoryConnectorFactory;
-import org.eclipse.aether.spi.connector.transport.TransporterFactory;
-import org.eclipse.aether.transport.http.HttpTransporterFactory;
 
 import java.util.List;
 
 /**
  * A ModelResolver that uses the 'maven-resolver' library to find POMs
- * in the local .m2 repository and on Maven Central.
+ * in the repositories of a {@link MavenResolver}, by default the local .m2 repository and Maven Central.
+ * It only holds a reference to the shared resolver, so creating one per model build is cheap, and the
+ * poms it resolves are remembered by the resolver.
  */
 public class RepositoryModelResolver implements ModelResolver {
 
-    private final RepositorySystem repoSystem;
-    private final DefaultRepositorySystemSession session;
-    private final List<RemoteRepository> repositories;
+    private final MavenResolver resolver;
 
     public RepositoryModelResolver() {
-        this.repoSystem = newRepositorySystem();
-        this.session = newRepositorySystemSession(repoSystem);
-        this.repositories = List.of(
-            new RemoteRepository.Builder("central", "default", "https://repo.maven.apache.org/maven2").build()
-        );
+        this(MavenResolver.getDefault());
+    }
+
+    public RepositoryModelResolver(MavenResolver resolver) {
+        this.resolver = resolver;
     }
 
     // This is a "deep copy" constructor for the resolver
     private RepositoryModelResolver(RepositoryModelResolver original) {
-        this.repoSystem = original.repoSystem;
-        this.session = original.session;
-        this.repositories = original.repositories;
+        this.resolver = original.resolver;
     }
 
     @Override
     public ModelSource resolveModel(String groupId, String artifactId, String version) throws UnresolvableModelException {
         try {
-            Artifact pomArtifact = new DefaultArtifact(groupId, artifactId, "pom", version);
-            ArtifactRequest request = new ArtifactRequest(pomArtifact, repositories, null);
-            ArtifactResult result = repoSystem.resolveArtifact(session, request);
-            return new FileModelSource(result.getArtifact().getFile());
+            return new FileModelSource(resolver.resolvePom(groupId, artifactId, version));
         } catch (Exception e) {
             throw new UnresolvableModelException(e.getMessage(), groupId, artifactId, version, e);
         }
@@ -90,30 +74,15 @@ public class RepositoryModelResolver implements ModelResolver {
         return new RepositoryModelResolver(this);
     }
 
-    private RepositorySystem newRepositorySystem() {
-        DefaultServiceLocator locator = MavenRepositorySystemUtils.newServiceLocator();
-        locator.addService(RepositoryConnectorFactory.class, BasicRepositoryConnectorFactory.class);
-        locator.addService(TransporterFactory.class, HttpTransporterFactory.class);
-        return locator.getService(RepositorySystem.class);
-    }
-
-    private DefaultRepositorySystemSession newRepositorySystemSession(RepositorySystem system) {
-        DefaultRepositorySystemSession session = MavenRepositorySystemUtils.newSession();
-        String userHome = System.getProperty("user.home");
-        LocalRepository localRepo = new LocalRepository(userHome + "/.m2/repository");
-        session.setLocalRepositoryManager(system.newLocalRepositoryManager(session, localRepo));
-        return session;
-    }
-
     public RepositorySystem getRepoSystem() {
-        return repoSystem;
+        return resolver.getRepositorySystem();
     }
 
-    public DefaultRepositorySystemSession getSession() {
-        return session;
+    public RepositorySystemSession getSession() {
+        return resolver.getSession();
     }
 
     public List<RemoteRepository> getRepositories() {
-        return repositories;
+        return resolver.getRepositories();
     }
 }
\ No newline at end of file
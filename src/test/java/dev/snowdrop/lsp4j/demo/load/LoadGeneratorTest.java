@@ -0,0 +1,46 @@
+package dev.snowdrop.lsp4j.demo.load;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("LoadGenerator Testing")
+public class LoadGeneratorTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"inprocess", "loopback"})
+    @DisplayName("Test :: a short run completes every kind of request and reports the latencies")
+    void testShortRun(String transport) throws Exception {
+        LoadGenerator generator = new LoadGenerator(LoadGenerator.Options.parse("--transport=" + transport, "--clients=3",
+            "--rate=600", "--warmup=200ms", "--duration=1s", "--report-interval=500ms", "--mix=search=2,content=1,post=1"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generator.run(new PrintStream(output, true, StandardCharsets.UTF_8));
+
+        for (LoadGenerator.Operation operation : LoadGenerator.Operation.values()) {
+            assertTrue(generator.getCompleted(operation.getMethod()) > 0, operation.getMethod());
+            assertEquals(0, generator.getErrors(operation.getMethod()), operation.getMethod());
+        }
+        assertTrue(generator.getCompleted(LoadGenerator.DELIVERY) > 0);
+        String report = output.toString(StandardCharsets.UTF_8);
+        assertTrue(report.contains("Summary over "), report);
+        assertTrue(report.contains("GC pauses:"), report);
+    }
+
+    @Test
+    @DisplayName("Test :: options are validated")
+    void testOptions() {
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse("--clients"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse("--transport=udp"));
+        assertThrows(IllegalArgumentException.class, () -> LoadGenerator.Options.parse("--mix=search=0"));
+        assertEquals(1_500_000_000L, LoadGenerator.Options.parseDuration("1500ms"));
+    }
+}
@@ -0,0 +1,155 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Broadcaster Testing")
+public class BroadcasterTest {
+
+    private Broadcaster<String> broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        // Messages are coalesced by their first character
+        broadcaster = new Broadcaster<>(message -> message.charAt(0));
+        broadcaster.setOutboxCapacity(10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.close();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    @DisplayName("Test :: a blocked client doesn't hold back the others and only keeps its latest messages")
+    void testSlowClient() throws Exception {
+        List<String> fast = new CopyOnWriteArrayList<>();
+        List<String> slow = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        broadcaster.subscribe(fast::addAll);
+        Broadcaster<String>.Subscription slowSubscription = broadcaster.subscribe(batch -> {
+            slow.addAll(batch);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        broadcaster.broadcast("m0");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        for (int i = 1; i < 1000; i++) {
+            broadcaster.broadcast("m" + i);
+            if (i % 5 == 0) {
+                // Let the fast client keep up, so that only the blocked one drops messages
+                int sent = i + 1;
+                await(() -> fast.size() == sent);
+            }
+        }
+        await(() -> fast.size() == 1000);
+        assertEquals("m999", fast.get(999));
+        assertEquals(10, slowSubscription.getPendingCount());
+
+        release.countDown();
+        await(() -> slow.size() == 11);
+        assertEquals(List.of("m0", "m990", "m991", "m992", "m993", "m994", "m995", "m996", "m997", "m998", "m999"), slow);
+        assertEquals(989, broadcaster.getDropped());
+        assertEquals(1011, broadcaster.getDelivered());
+    }
+
+    @Test
+    @DisplayName("Test :: clients blocked for good are unsubscribed without stalling the others")
+    void testStalledClients() throws Exception {
+        broadcaster.setDeliveryTimeoutMillis(200);
+        CountDownLatch release = new CountDownLatch(1);
+        // More clients than drain threads, which don't even stop on interrupts
+        int stalled = Broadcaster.DEFAULT_DRAIN_THREADS + 1;
+        CountDownLatch blocked = new CountDownLatch(stalled);
+        for (int i = 0; i < stalled; i++) {
+            broadcaster.subscribe(batch -> {
+                blocked.countDown();
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // Ignored, like a write which can't be interrupted
+                    }
+                }
+            });
+        }
+        List<String> received = new CopyOnWriteArrayList<>();
+        broadcaster.subscribe(received::addAll);
+        try {
+            broadcaster.broadcast("m0");
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < 10; i++) {
+                broadcaster.broadcast("m" + i);
+            }
+            await(() -> received.size() == 10);
+            await(() -> broadcaster.getSubscriberCount() == 1);
+            assertEquals(stalled, broadcaster.getTimedOut());
+
+            broadcaster.broadcast("m10");
+            await(() -> received.size() == 11);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test :: pending messages are coalesced by key, or the newest ones are dropped")
+    void testOverflowPolicies() throws Exception {
+        List<String> received = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Broadcaster<String>.Subscription subscription = broadcaster.subscribe(batch -> {
+            received.addAll(batch);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        broadcaster.broadcast("start");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+
+        broadcaster.setOverflowPolicy(Broadcaster.OverflowPolicy.COALESCE);
+        for (String message : new String[]{"a1", "b1", "a2", "c1", "b2", "a3"}) {
+            broadcaster.broadcast(message);
+        }
+        assertEquals(3, subscription.getPendingCount());
+
+        broadcaster.setOverflowPolicy(Broadcaster.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 20; i++) {
+            broadcaster.broadcast("n" + i);
+        }
+        assertEquals(10, subscription.getPendingCount());
+
+        release.countDown();
+        await(() -> received.size() == 11);
+        assertEquals(List.of("start", "c1", "b2", "a3", "n0", "n1", "n2", "n3", "n4", "n5", "n6"), received);
+    }
+}
@@ -0,0 +1,600 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.server.search.MatchEngine;
+import dev.snowdrop.lsp4j.demo.shared.CloseDocumentParams;
+import dev.snowdrop.lsp4j.demo.shared.LoadTextFileParams;
+import dev.snowdrop.lsp4j.demo.shared.MetricsParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchResultsParams;
+import dev.snowdrop.lsp4j.demo.shared.WorkspaceSearchParams;
+import org.eclipse.lsp4j.jsonrpc.Endpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("JdtLsServerEndpoint Search Testing")
+public class JdtLsServerEndpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JdtLsServerEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path textFile = tempDir.resolve("search.txt");
+        Files.writeString(textFile, "first line with Token\r\nsecond TOKEN token line\n\nlast line token\n\n");
+        endpoint = new JdtLsServerEndpoint(textFile.toString());
+    }
+
+    private JsonObject search(String query, boolean caseSensitive) throws Exception {
+        JsonObject params = new JsonObject();
+        params.addProperty("query", query);
+        params.addProperty("caseSensitive", caseSensitive);
+        return (JsonObject) endpoint.request("server/searchText", params).get();
+    }
+
+    @Test
+    @DisplayName("Test :: case insensitive search reports lines, columns and context")
+    void testCaseInsensitiveSearch() throws Exception {
+        JsonObject result = search("token", false);
+
+        assertEquals(4, result.get("totalMatches").getAsInt());
+        assertEquals(4, result.get("totalLines").getAsInt());
+
+        JsonArray matches = result.getAsJsonArray("matches");
+        JsonObject first = matches.get(0).getAsJsonObject();
+        assertEquals(1, first.get("lineNumber").getAsInt());
+        assertEquals(17, first.get("columnStart").getAsInt());
+        assertEquals(21, first.get("columnEnd").getAsInt());
+        assertEquals("Token", first.get("matchedText").getAsString());
+        assertEquals("first line with Token", first.get("lineContent").getAsString());
+        assertEquals("second TOKEN token line", first.getAsJsonObject("context").get("nextLine").getAsString());
+
+        JsonObject last = matches.get(3).getAsJsonObject();
+        assertEquals(4, last.get("lineNumber").getAsInt());
+        assertEquals("", last.getAsJsonObject("context").get("previousLine").getAsString());
+        assertFalse(last.getAsJsonObject("context").has("nextLine"));
+    }
+
+    @Test
+    @DisplayName("Test :: case sensitive search only returns exact matches")
+    void testCaseSensitiveSearch() throws Exception {
+        JsonObject result = search("TOKEN", true);
+
+        assertEquals(1, result.get("totalMatches").getAsInt());
+        JsonObject match = result.getAsJsonArray("matches").get(0).getAsJsonObject();
+        assertEquals(2, match.get("lineNumber").getAsInt());
+        assertEquals(8, match.get("columnStart").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: matches never span a line terminator")
+    void testSearchDoesNotCrossLines() throws Exception {
+        JsonObject result = search("Token\r\nsecond", true);
+
+        assertEquals(0, result.get("totalMatches").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: trigram index returns the same matches as a scan")
+    void testTrigramIndexSearch() throws Exception {
+        JsonObject scanned = search("token", false);
+
+        endpoint.setTrigramIndexEnabled(true);
+        JsonObject indexed = search("token", false);
+
+        assertTrue(indexed.get("indexed").getAsBoolean());
+        assertEquals(scanned.get("matches"), indexed.get("matches"));
+        assertEquals(1, search("TOKEN", true).get("totalMatches").getAsInt());
+        assertEquals(0, search("absent", false).get("totalMatches").getAsInt());
+
+        JsonObject stats = (JsonObject) endpoint.request("server/getIndexStats", null).get();
+        assertTrue(stats.get("built").getAsBoolean());
+        assertTrue(stats.get("memoryBytes").getAsLong() > 0);
+    }
+
+    @Test
+    @DisplayName("Test :: trigram index is dropped when it exceeds its memory cap")
+    void testTrigramIndexMemoryCap() throws Exception {
+        endpoint.setTrigramIndexEnabled(true);
+        endpoint.setTrigramIndexMaxBytes(64);
+
+        JsonObject result = search("token", false);
+
+        assertFalse(result.get("indexed").getAsBoolean());
+        assertEquals(4, result.get("totalMatches").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: paged search returns every match exactly once")
+    void testPagedSearch() throws Exception {
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        params.addProperty("limit", 3);
+
+        JsonObject firstPage = (JsonObject) endpoint.request("server/searchText", params).get();
+        assertEquals(3, firstPage.getAsJsonArray("matches").size());
+        assertTrue(firstPage.get("hasMore").getAsBoolean());
+
+        params.addProperty("cursor", firstPage.get("nextCursor").getAsString());
+        JsonObject secondPage = (JsonObject) endpoint.request("server/searchText", params).get();
+        assertEquals(1, secondPage.getAsJsonArray("matches").size());
+        assertFalse(secondPage.get("hasMore").getAsBoolean());
+        assertEquals(4, secondPage.getAsJsonArray("matches").get(0).getAsJsonObject().get("lineNumber").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: paged search resumes within an edited document")
+    void testPagedSearchAfterEdit() throws Exception {
+        JsonArray changes = new JsonArray();
+        changes.add(change(0, 0, 0, 0, "x"));
+        JsonObject edit = new JsonObject();
+        edit.add("contentChanges", changes);
+        endpoint.notify("server/didChange", edit);
+        assertEquals(4, search("token", false).get("totalLines").getAsInt());
+
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        params.addProperty("limit", 2);
+        List<Integer> lines = new ArrayList<>();
+        JsonObject page;
+        do {
+            page = (JsonObject) endpoint.request("server/searchText", params).get();
+            assertFalse(page.has("error"), page.toString());
+            for (JsonElement match : page.getAsJsonArray("matches")) {
+                lines.add(match.getAsJsonObject().get("lineNumber").getAsInt());
+            }
+            if (page.has("nextCursor")) {
+                params.addProperty("cursor", page.get("nextCursor").getAsString());
+            }
+        } while (page.get("hasMore").getAsBoolean());
+        assertEquals(List.of(1, 2, 2, 4), lines);
+    }
+
+    @Test
+    @DisplayName("Test :: cursor is rejected once the document is reloaded")
+    void testPagedSearchCursorExpires() throws Exception {
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        params.addProperty("limit", 1);
+        String cursor = ((JsonObject) endpoint.request("server/searchText", params).get()).get("nextCursor").getAsString();
+
+        endpoint.loadTextFile(new LoadTextFileParams(tempDir.resolve("search.txt").toString()));
+        params.addProperty("cursor", cursor);
+
+        assertTrue(((JsonObject) endpoint.request("server/searchText", params).get()).has("error"));
+    }
+
+    @Test
+    @DisplayName("Test :: streamed search pushes batches to the connected client")
+    void testStreamedSearch() throws Exception {
+        List<SearchResultsParams> notifications = new ArrayList<>();
+        endpoint.connect(new Endpoint() {
+            @Override
+            public CompletableFuture<?> request(String method, Object parameter) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public void notify(String method, Object parameter) {
+                assertEquals("client/searchResults", method);
+                notifications.add((SearchResultsParams) parameter);
+            }
+        });
+
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        params.addProperty("partialResultToken", "search-1");
+        params.addProperty("batchSize", 2);
+        JsonObject summary = (JsonObject) endpoint.request("server/searchText", params).get();
+
+        assertEquals(4, summary.get("totalMatches").getAsInt());
+        assertFalse(summary.has("matches"));
+        int streamed = 0;
+        for (SearchResultsParams notification : notifications) {
+            assertEquals("search-1", notification.getPartialResultToken());
+            streamed += notification.getMatches().size();
+        }
+        assertEquals(4, streamed);
+        assertEquals(summary.get("batches").getAsInt(), notifications.size());
+    }
+
+    @Test
+    @DisplayName("Test :: memory-mapped documents return the same matches as in-heap ones and reject edits")
+    void testMemoryMappedSearch() throws Exception {
+        Path textFile = tempDir.resolve("mapped.txt");
+        Files.writeString(textFile, "caf\u00e9 \ud83d\ude00 Token\r\nsecond TOKEN token line\n\nlast line token\n\n");
+        endpoint.loadTextFile(new LoadTextFileParams(textFile.toString()));
+        JsonObject inHeap = search("token", false);
+
+        JsonObject params = new JsonObject();
+        params.addProperty("filePath", textFile.toString());
+        params.addProperty("memoryMapped", true);
+        endpoint.notify("server/loadTextFile", params);
+        JsonObject mapped = search("token", false);
+
+        assertEquals(4, mapped.get("totalMatches").getAsInt());
+        assertEquals(inHeap.get("totalLines"), mapped.get("totalLines"));
+        assertEquals(inHeap.get("matches"), mapped.get("matches"));
+        assertEquals(1, search("TOKEN", true).get("totalMatches").getAsInt());
+
+        // Edits are rejected rather than decoding the whole file
+        JsonArray changes = new JsonArray();
+        changes.add(change(0, 0, 0, 0, "token "));
+        JsonObject edit = new JsonObject();
+        edit.add("contentChanges", changes);
+        endpoint.notify("server/didChange", edit);
+        assertEquals(4, search("token", false).get("totalMatches").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: every match engine returns the same matches")
+    void testMatchEngines() throws Exception {
+        endpoint.setMatchEngine(MatchEngine.REGION_MATCHES);
+        JsonObject regionMatches = search("token", false);
+        JsonObject regionMatchesExact = search("TOKEN", true);
+
+        endpoint.setMatchEngine(MatchEngine.HORSPOOL);
+        assertEquals(regionMatches.get("matches"), search("token", false).get("matches"));
+        assertEquals(regionMatchesExact.get("matches"), search("TOKEN", true).get("matches"));
+        assertEquals(3, search("li", false).get("totalMatches").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: parallel chunked search returns the matches in document order")
+    void testParallelSearch() throws Exception {
+        Path textFile = tempDir.resolve("large.txt");
+        StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 5000; line++) {
+            content.append("line ").append(line).append(line % 3 == 0 ? " has a token, TOKEN" : " has none").append('\n');
+        }
+        Files.writeString(textFile, content);
+        endpoint.loadTextFile(new LoadTextFileParams(textFile.toString()));
+        JsonObject sequential = search("token", false);
+
+        endpoint.setSearchParallelism(4);
+        endpoint.setParallelSearchThreshold(0);
+        JsonObject parallel = search("token", false);
+
+        assertEquals(2 * 1667, parallel.get("totalMatches").getAsInt());
+        assertEquals(sequential.get("matches"), parallel.get("matches"));
+
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        params.addProperty("limit", 1000);
+        JsonObject page = (JsonObject) endpoint.request("server/searchText", params).get();
+        params.addProperty("cursor", page.get("nextCursor").getAsString());
+        page = (JsonObject) endpoint.request("server/searchText", params).get();
+        assertEquals(sequential.getAsJsonArray("matches").get(1000), page.getAsJsonArray("matches").get(0));
+    }
+
+    @Test
+    @DisplayName("Test :: workspace search groups the matches by document")
+    void testSearchWorkspace() throws Exception {
+        Path directory = Files.createDirectories(tempDir.resolve("workspace"));
+        Files.writeString(directory.resolve("a.txt"), "token in a\nno match\n");
+        Files.writeString(directory.resolve("b.txt"), "nothing here\n");
+        Files.writeString(Files.createDirectories(directory.resolve("nested")).resolve("c.txt"), "token token\n");
+
+        JsonObject load = new JsonObject();
+        load.addProperty("directory", directory.toString());
+        JsonObject loaded = (JsonObject) endpoint.request("server/loadWorkspace", load).get();
+        assertEquals(3, loaded.get("loaded").getAsInt());
+
+        JsonObject text = new JsonObject();
+        text.addProperty("uri", "memory:///d.txt");
+        text.addProperty("text", "one more Token\n");
+        endpoint.notify("server/openDocument", text);
+
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "token");
+        JsonObject result = (JsonObject) endpoint.request("server/searchWorkspace", params).get();
+
+        assertEquals(4, result.get("searchedDocuments").getAsInt());
+        assertEquals(4, result.get("totalMatches").getAsInt());
+        JsonArray documents = result.getAsJsonArray("documents");
+        assertEquals(3, documents.size());
+        assertEquals(directory.resolve("a.txt").toUri().toString(), documents.get(0).getAsJsonObject().get("uri").getAsString());
+        assertEquals("memory:///d.txt", documents.get(2).getAsJsonObject().get("uri").getAsString());
+
+        // Typed parameters, as deserialized by a launcher knowing the methods of JdtLsServer
+        endpoint.closeDocument(new CloseDocumentParams("memory:///d.txt"));
+        WorkspaceSearchParams typed = new WorkspaceSearchParams("token", true);
+        typed.setMaxMatchesPerDocument(1);
+        result = endpoint.searchWorkspace(typed).get();
+        assertEquals(3, result.get("searchedDocuments").getAsInt());
+        assertEquals(2, result.get("totalMatches").getAsInt());
+    }
+
+    @Test
+    @DisplayName("Test :: workspace evicts the least recently used documents")
+    void testWorkspaceEviction() throws Exception {
+        endpoint.getWorkspace().setMaxDocuments(2);
+        for (String name : new String[]{"a", "b", "c"}) {
+            JsonObject text = new JsonObject();
+            text.addProperty("uri", "memory:///" + name);
+            text.addProperty("text", name);
+            endpoint.notify("server/openDocument", text);
+            if (name.equals("b")) {
+                endpoint.getWorkspace().get("memory:///a");
+            }
+        }
+
+        assertEquals(2, endpoint.getWorkspace().size());
+        assertNotNull(endpoint.getWorkspace().get("memory:///a"));
+        assertNull(endpoint.getWorkspace().get("memory:///b"));
+
+        endpoint.getWorkspace().setMemoryBudget(0);
+        assertEquals(1, endpoint.getWorkspace().size());
+        assertEquals(2, endpoint.getWorkspace().getEvictions());
+    }
+
+    private static JsonObject change(int startLine, int startCharacter, int endLine, int endCharacter, String text) {
+        JsonObject start = new JsonObject();
+        start.addProperty("line", startLine);
+        start.addProperty("character", startCharacter);
+        JsonObject end = new JsonObject();
+        end.addProperty("line", endLine);
+        end.addProperty("character", endCharacter);
+        JsonObject range = new JsonObject();
+        range.add("start", start);
+        range.add("end", end);
+        JsonObject change = new JsonObject();
+        change.add("range", range);
+        change.addProperty("text", text);
+        return change;
+    }
+
+    @Test
+    @DisplayName("Test :: range edits update the content and the search results")
+    void testDidChange() throws Exception {
+        JsonArray changes = new JsonArray();
+        // "first line with Token" -> "first line with Needle"
+        changes.add(change(0, 16, 0, 21, "Needle"));
+        // Join the second and third lines, then insert a line in the middle of the last one
+        changes.add(change(1, 23, 2, 0, " and"));
+        changes.add(change(2, 5, 2, 5, "token\n"));
+        JsonObject params = new JsonObject();
+        params.add("contentChanges", changes);
+        endpoint.notify("server/didChange", params);
+
+        String content = ((JsonObject) endpoint.request("server/getTextContent", null).get()).get("content").getAsString();
+        // Each line keeps its own terminator
+        assertEquals("first line with Needle\r\nsecond TOKEN token line and\nlast token\nline token\n\n", content);
+
+        JsonObject result = search("token", false);
+        assertEquals(4, result.get("totalMatches").getAsInt());
+        JsonObject inserted = result.getAsJsonArray("matches").get(2).getAsJsonObject();
+        assertEquals(3, inserted.get("lineNumber").getAsInt());
+        assertEquals(6, inserted.get("columnStart").getAsInt());
+        assertEquals("last token", inserted.get("lineContent").getAsString());
+        assertEquals(1, search("needle", false).get("totalMatches").getAsInt());
+
+        // Workspace documents are changed by URI, and a change without range replaces the whole content
+        JsonObject text = new JsonObject();
+        text.addProperty("uri", "memory:///edited.txt");
+        text.addProperty("text", "token\n");
+        endpoint.notify("server/openDocument", text);
+        JsonObject textDocument = new JsonObject();
+        textDocument.addProperty("uri", "memory:///edited.txt");
+        JsonObject replace = new JsonObject();
+        replace.addProperty("text", "no match\nat all");
+        JsonArray full = new JsonArray();
+        full.add(replace);
+        params = new JsonObject();
+        params.add("textDocument", textDocument);
+        params.add("contentChanges", full);
+        endpoint.notify("server/didChange", params);
+        assertEquals("no match\nat all", endpoint.getWorkspace().get("memory:///edited.txt").getContent());
+    }
+
+    @Test
+    @DisplayName("Test :: repeated searches are served from the cache until the document changes")
+    void testSearchResultCache() throws Exception {
+        JsonObject first = search("token", false);
+        JsonArray matches = first.getAsJsonArray("matches").deepCopy();
+        // Callers get their own copy of the cached result
+        first.remove("matches");
+        JsonObject cached = search("token", false);
+        assertNotSame(first, cached);
+        assertEquals(matches, cached.getAsJsonArray("matches"));
+        assertNotEquals(matches, search("token", true).getAsJsonArray("matches"));
+
+        SearchResultCache cache = endpoint.getSearchResultCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        endpoint.loadTextFile(new LoadTextFileParams(tempDir.resolve("search.txt").toString()));
+        assertEquals(0, cache.size());
+        search("token", false);
+        assertEquals(3, cache.getMisses());
+
+        // Evicted once the results hold too many matches in total
+        cache.setMaxMatches(5);
+        search("line", false);
+        JsonObject stats = (JsonObject) endpoint.request("server/getCacheStats", null).get();
+        assertEquals(1, stats.get("entries").getAsInt());
+        assertEquals(1, stats.get("evictions").getAsInt());
+        assertEquals(4, stats.get("misses").getAsInt());
+    }
+
+    private JsonObject regexSearch(String regex, boolean caseSensitive) throws Exception {
+        JsonObject params = new JsonObject();
+        params.addProperty("query", regex);
+        params.addProperty("caseSensitive", caseSensitive);
+        params.addProperty("regex", true);
+        return (JsonObject) endpoint.request("server/searchText", params).get();
+    }
+
+    @Test
+    @DisplayName("Test :: regex search matches within lines and anchors at line bounds")
+    void testRegexSearch() throws Exception {
+        JsonObject result = regexSearch("\\btoken\\b", false);
+        assertEquals(4, result.get("totalMatches").getAsInt());
+        assertTrue(result.get("regex").getAsBoolean());
+
+        JsonArray anchored = regexSearch("^\\w+ line|line$", true).getAsJsonArray("matches");
+        assertEquals(3, anchored.size());
+        assertEquals("first line", anchored.get(0).getAsJsonObject().get("matchedText").getAsString());
+        assertEquals(2, anchored.get(1).getAsJsonObject().get("lineNumber").getAsInt());
+        assertEquals(20, anchored.get(1).getAsJsonObject().get("columnStart").getAsInt());
+        assertEquals("last line", anchored.get(2).getAsJsonObject().get("matchedText").getAsString());
+
+        // Pages resume where the previous one stopped, the pattern being compiled once
+        JsonObject params = new JsonObject();
+        params.addProperty("query", "TOKEN");
+        params.addProperty("regex", true);
+        params.addProperty("limit", 2);
+        JsonObject page = (JsonObject) endpoint.request("server/searchText", params).get();
+        params.addProperty("cursor", page.get("nextCursor").getAsString());
+        JsonObject next = (JsonObject) endpoint.request("server/searchText", params).get();
+        assertEquals(2, next.get("totalMatches").getAsInt());
+        assertFalse(next.get("hasMore").getAsBoolean());
+        assertEquals(14, next.getAsJsonArray("matches").get(0).getAsJsonObject().get("columnStart").getAsInt());
+        assertEquals(3, endpoint.getPatternCache().size());
+        assertEquals(1, endpoint.getPatternCache().getHits());
+
+        assertTrue(regexSearch("(token", false).get("error").getAsString().startsWith("Invalid regular expression"));
+    }
+
+    @Test
+    @DisplayName("Test :: catastrophic regex backtracking fails once the time budget is spent")
+    void testRegexTimeBudget() throws Exception {
+        Path textFile = tempDir.resolve("backtracking.txt");
+        Files.writeString(textFile, "a".repeat(64) + "!\n");
+        endpoint.loadTextFile(new LoadTextFileParams(textFile.toString()));
+        endpoint.setRegexTimeBudgetMillis(100);
+
+        long start = System.nanoTime();
+        JsonObject result = regexSearch("((a+)+)+b", true);
+        assertTrue(result.get("error").getAsString().contains("time budget"));
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+    }
+
+    @Test
+    @DisplayName("Test :: a slow request doesn't hold back the requests sent after it")
+    void testAsyncDispatch() throws Exception {
+        endpoint.setRequestDispatcher(RequestDispatcher.pool(2, 10));
+        endpoint.setRegexTimeBudgetMillis(3000);
+        JsonObject slow = new JsonObject();
+        slow.addProperty("query", "((a+)+)+b");
+        slow.addProperty("regex", true);
+        Path textFile = tempDir.resolve("backtracking.txt");
+        Files.writeString(textFile, "a".repeat(64) + "!\nlast token\n");
+        endpoint.loadTextFile(new LoadTextFileParams(textFile.toString()));
+
+        CompletableFuture<?> slowSearch = endpoint.request("server/searchText", slow);
+        assertEquals(1, search("token", false).get("totalMatches").getAsInt());
+        assertFalse(slowSearch.isDone());
+
+        assertTrue(((JsonObject) slowSearch.get()).get("error").getAsString().contains("time budget"));
+    }
+
+    @Test
+    @DisplayName("Test :: cancelling a request stops its search")
+    void testCancelRequest() throws Exception {
+        endpoint.setRequestDispatcher(RequestDispatcher.pool(2, 10));
+        endpoint.setRegexTimeBudgetMillis(60_000);
+        JsonObject slow = new JsonObject();
+        slow.addProperty("query", "((a+)+)+b");
+        slow.addProperty("regex", true);
+        Path textFile = tempDir.resolve("backtracking.txt");
+        Files.writeString(textFile, "a".repeat(64) + "!\n");
+        endpoint.loadTextFile(new LoadTextFileParams(textFile.toString()));
+
+        CompletableFuture<?> slowSearch = endpoint.request("server/searchText", slow);
+        RequestDispatcher dispatcher = endpoint.getRequestDispatcher();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dispatcher.getActive() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, dispatcher.getActive());
+
+        assertTrue(slowSearch.cancel(true));
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dispatcher.getActive() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        JsonObject stats = (JsonObject) endpoint.request("server/getRequestStats", null).get();
+        assertEquals(0, stats.get("active").getAsInt());
+        assertEquals(1, stats.get("cancelled").getAsLong());
+        assertEquals(0, endpoint.getSearchResultCache().size());
+    }
+
+    @Test
+    @DisplayName("Test :: posted messages are paged by sequence number and only the latest are kept")
+    void testGetMessages() throws Exception {
+        endpoint.setMessageRetention(100);
+        assertEquals(128, endpoint.getMessageRetention());
+        for (int i = 0; i < 200; i++) {
+            JsonObject message = new JsonObject();
+            message.addProperty("user", "user" + i);
+            message.addProperty("content", "message " + i);
+            endpoint.notify("server/postMessage", message);
+        }
+
+        JsonObject params = new JsonObject();
+        params.addProperty("since", 0);
+        params.addProperty("limit", 50);
+        JsonObject page = (JsonObject) endpoint.request("server/getMessages", params).get();
+        assertTrue(page.get("truncated").getAsBoolean());
+        assertEquals(72, page.get("oldestSequence").getAsLong());
+        JsonArray messages = page.getAsJsonArray("messages");
+        assertEquals(50, messages.size());
+        assertEquals(72, messages.get(0).getAsJsonObject().get("sequence").getAsLong());
+        assertEquals("message 72", messages.get(0).getAsJsonObject().get("content").getAsString());
+
+        params.addProperty("since", page.get("nextSequence").getAsLong());
+        params.addProperty("limit", 1000);
+        page = (JsonObject) endpoint.request("server/getMessages", params).get();
+        assertFalse(page.get("truncated").getAsBoolean());
+        messages = page.getAsJsonArray("messages");
+        assertEquals(78, messages.size());
+        assertEquals("message 199", messages.get(77).getAsJsonObject().get("content").getAsString());
+        assertEquals(200, page.get("nextSequence").getAsLong());
+    }
+
+    @Test
+    @DisplayName("Test :: server/metrics reports the calls, errors, latencies and payload sizes per method")
+    void testMetrics() throws Exception {
+        search("token", false);
+        search("token", true);
+        endpoint.request("server/searchText", new JsonObject()).get();
+        JsonObject message = new JsonObject();
+        message.addProperty("user", "user");
+        message.addProperty("content", "hello");
+        endpoint.notify("server/postMessage", message);
+
+        JsonObject operations = ((JsonObject) endpoint.request("server/metrics", null).get()).getAsJsonObject("operations");
+        JsonObject searchText = operations.getAsJsonObject("server/searchText");
+        assertEquals(3, searchText.get("calls").getAsLong());
+        assertEquals(1, searchText.get("errors").getAsLong());
+        assertEquals(0, searchText.get("inFlight").getAsInt());
+        assertEquals(3, searchText.getAsJsonObject("latencyMicros").get("count").getAsLong());
+        assertTrue(searchText.getAsJsonObject("latencyMicros").get("p99").getAsDouble() > 0);
+        assertTrue(searchText.getAsJsonObject("responseSize").get("max").getAsDouble() > 100);
+        assertEquals(1, operations.getAsJsonObject("server/postMessage").get("calls").getAsLong());
+        // The metrics request is recorded once it completes
+        assertEquals(1, ((JsonObject) endpoint.request("server/metrics", null).get()).getAsJsonObject("operations")
+            .getAsJsonObject("server/metrics").get("calls").getAsLong());
+
+        String text = endpoint.metrics(new MetricsParams("text")).get().get("text").getAsString();
+        assertTrue(text.contains("jdtls_calls_total{operation=\"server/searchText\"} 3\n"), text);
+        assertTrue(text.contains("jdtls_latency_seconds{operation=\"server/searchText\",quantile=\"0.5\"}"), text);
+    }
+}
@@ -0,0 +1,71 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("MessageStore Testing")
+public class MessageStoreTest {
+
+    @Test
+    @DisplayName("Test :: concurrent readers see increasing sequences while writers overwrite the oldest messages")
+    void testConcurrentAppends() throws Exception {
+        MessageStore store = new MessageStore(1024);
+        int writers = 4;
+        int messagesPerWriter = 50_000;
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> failures = new ArrayList<>();
+
+        Thread reader = new Thread(() -> {
+            long since = 0;
+            while (!done.get()) {
+                MessageStore.Page page = store.read(since, 100);
+                long previous = -1;
+                for (MessageStore.Entry entry : page.getEntries()) {
+                    if (entry.getSequence() <= previous || entry.getSequence() < since) {
+                        synchronized (failures) {
+                            failures.add("Sequence " + entry.getSequence() + " after " + previous + " from " + since);
+                        }
+                    }
+                    previous = entry.getSequence();
+                }
+                since = page.getNextSequence();
+            }
+        });
+        reader.start();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            String user = "writer" + w;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < messagesPerWriter; i++) {
+                    store.append(new UserMessage(user, "message " + i));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals((long) writers * messagesPerWriter, store.getNextSequence());
+        assertEquals(1024, store.size());
+        MessageStore.Page page = store.read(0, 2000);
+        assertTrue(page.isTruncated());
+        assertEquals(1024, page.getEntries().size());
+        assertEquals(store.getNextSequence() - 1024, page.getEntries().get(0).getSequence());
+        assertEquals(store.getNextSequence(), page.getNextSequence());
+    }
+}
@@ -0,0 +1,215 @@
+package dev.snowdrop.lsp4j.demo.server;
+
+import com.google.gson.JsonObject;
+import dev.snowdrop.lsp4j.demo.shared.MessagesParams;
+import dev.snowdrop.lsp4j.demo.shared.SearchParams;
+import dev.snowdrop.lsp4j.demo.shared.UserMessage;
+import org.eclipse.lsp4j.jsonrpc.Endpoint;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("SocketServer Testing")
+public class SocketServerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JdtLsServerEndpoint endpoint;
+    private SocketServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path textFile = tempDir.resolve("search.txt");
+        Files.writeString(textFile, "first line with Token\nsecond TOKEN token line\n" + "filler line\n".repeat(100_000));
+        endpoint = new JdtLsServerEndpoint(textFile.toString());
+        server = new SocketServer(endpoint);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+    }
+
+    /**
+     * Connects a client, whose launcher knows the result types of the requests from {@link JdtLsServer}
+     */
+    private static Launcher<JdtLsServer> launch(InputStream input, OutputStream output, Endpoint client) {
+        Launcher<JdtLsServer> launcher = new Launcher.Builder<JdtLsServer>()
+            .setLocalService(client)
+            .setRemoteInterface(JdtLsServer.class)
+            .setInput(input)
+            .setOutput(output)
+            .create();
+        launcher.startListening();
+        return launcher;
+    }
+
+    private static Endpoint connect(InputStream input, OutputStream output, Endpoint client) {
+        return launch(input, output, client).getRemoteEndpoint();
+    }
+
+    private static JsonObject searchParams(String query) {
+        JsonObject params = new JsonObject();
+        params.addProperty("query", query);
+        return params;
+    }
+
+    @Test
+    @DisplayName("Test :: concurrent TCP clients get their own responses")
+    void testTcpClients() throws Exception {
+        InetSocketAddress address = server.bindTcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+
+        List<Socket> sockets = new ArrayList<>();
+        List<CompletableFuture<?>> searches = new ArrayList<>();
+        try {
+            String[] queries = {"token", "first", "filler"};
+            for (String query : queries) {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                sockets.add(socket);
+                Endpoint remote = connect(socket.getInputStream(), socket.getOutputStream(), new RecordingClient());
+                searches.add(remote.request("server/searchText", searchParams(query)));
+            }
+
+            int[] expected = {3, 1, 100_000};
+            for (int i = 0; i < queries.length; i++) {
+                JsonObject result = (JsonObject) searches.get(i).get(30, TimeUnit.SECONDS);
+                assertEquals(queries[i], result.get("query").getAsString());
+                assertEquals(expected[i], result.get("totalMatches").getAsInt());
+            }
+            assertEquals(3, endpoint.getSessionCount());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (endpoint.getSessionCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, endpoint.getSessionCount());
+    }
+
+    @Test
+    @DisplayName("Test :: streamed results go to the client of the Unix domain socket session")
+    void testUnixDomainSocket() throws Exception {
+        Path socketFile = tempDir.resolve("jdtls.sock");
+        server.bindUnix(socketFile);
+        server.start();
+
+        RecordingClient streaming = new RecordingClient();
+        RecordingClient idle = new RecordingClient();
+        try (SocketChannel first = SocketServer.connectUnix(socketFile);
+             SocketChannel second = SocketServer.connectUnix(socketFile)) {
+            Endpoint remote = connect(new SocketServer.ChannelInputStream(first), new SocketServer.ChannelOutputStream(first), streaming);
+            Endpoint other = connect(new SocketServer.ChannelInputStream(second), new SocketServer.ChannelOutputStream(second), idle);
+
+            JsonObject params = searchParams("filler");
+            params.addProperty("partialResultToken", "unix");
+            params.addProperty("batchSize", 10_000);
+            JsonObject summary = (JsonObject) remote.request("server/searchText", params).get(30, TimeUnit.SECONDS);
+            assertEquals(100_000, summary.get("totalMatches").getAsInt());
+
+            // The whole content travels in a single message
+            JsonObject content = (JsonObject) other.request("server/getTextContent", null).get(30, TimeUnit.SECONDS);
+            assertEquals(Files.size(tempDir.resolve("search.txt")), content.get("length").getAsLong());
+        }
+
+        int streamed = 0;
+        for (JsonObject notification : streaming.notifications) {
+            streamed += notification.getAsJsonArray("matches").size();
+        }
+        assertEquals(100_000, streamed);
+        assertTrue(idle.notifications.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test :: posted messages are broadcast to every connected client through the typed interfaces")
+    void testBroadcast() throws Exception {
+        InetSocketAddress address = server.bindTcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+
+        List<Socket> sockets = new ArrayList<>();
+        List<RecordingClient> clients = new ArrayList<>();
+        try {
+            JdtLsServer poster = null;
+            for (int i = 0; i < 3; i++) {
+                Socket socket = new Socket(address.getAddress(), address.getPort());
+                sockets.add(socket);
+                RecordingClient client = new RecordingClient();
+                clients.add(client);
+                poster = launch(socket.getInputStream(), socket.getOutputStream(), client).getRemoteProxy();
+            }
+            awaitCondition(() -> endpoint.getSessionCount() == 3);
+
+            for (int i = 0; i < 100; i++) {
+                poster.postMessage(new UserMessage("user" + i % 3, "message " + i));
+            }
+            for (RecordingClient client : clients) {
+                awaitCondition(() -> client.notifications.size() == 100);
+                assertEquals("message 0", client.notifications.get(0).get("content").getAsString());
+                assertEquals("message 99", client.notifications.get(99).get("content").getAsString());
+            }
+
+            // Typed parameters and results
+            JsonObject page = poster.getMessages(new MessagesParams(90, 100)).get(30, TimeUnit.SECONDS);
+            assertEquals(10, page.getAsJsonArray("messages").size());
+            JsonObject search = poster.searchText(new SearchParams("TOKEN", true)).get(30, TimeUnit.SECONDS);
+            assertEquals(1, search.get("totalMatches").getAsInt());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+        awaitCondition(() -> endpoint.getBroadcaster().getSubscriberCount() == 0);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Keeps the notifications pushed by the server.
+     */
+    private static final class RecordingClient implements Endpoint {
+        private final List<JsonObject> notifications = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<?> request(String method, Object parameter) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void notify(String method, Object parameter) {
+            notifications.add((JsonObject) parameter);
+        }
+    }
+}
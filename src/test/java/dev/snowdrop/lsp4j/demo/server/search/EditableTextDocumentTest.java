@@ -0,0 +1,80 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("EditableTextDocument Testing")
+public class EditableTextDocumentTest {
+
+    private static List<Integer> matchLines(SearchableDocument document, String query) {
+        List<Integer> lines = new ArrayList<>();
+        document.search(query, false, 0, (line, offset, column, length) -> lines.add(line));
+        return lines;
+    }
+
+    @Test
+    @DisplayName("Test :: edits spanning several blocks match the same edits on a list of lines")
+    void testEditsAcrossBlocks() {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            expected.add("line " + i);
+        }
+        EditableTextDocument document = EditableTextDocument.of(String.join("\n", expected), 1, MatchEngine.HORSPOOL);
+        assertTrue(document.getBlockCount() > 1);
+
+        Random random = new Random(42);
+        for (int edit = 0; edit < 200; edit++) {
+            int startLine = random.nextInt(expected.size());
+            int endLine = Math.min(expected.size() - 1, startLine + random.nextInt(1500));
+            String inserted = random.nextBoolean() ? "" : "needle " + edit + "\nmore " + edit;
+
+            String joined = expected.get(startLine).substring(0, 2) + inserted + expected.get(endLine).substring(3);
+            List<String> replacement = Arrays.asList(joined.split("\n", -1));
+            expected.subList(startLine, endLine + 1).clear();
+            expected.addAll(startLine, replacement);
+
+            document = document.applyEdit(startLine, 2, endLine, 3, inserted, edit + 2);
+        }
+
+        assertEquals(expected.size(), document.getLineCount());
+        assertEquals(String.join("\n", expected), document.getContent());
+        assertEquals(document.getContent().length(), document.length());
+
+        List<Integer> needles = new ArrayList<>();
+        for (int line = 0; line < expected.size(); line++) {
+            if (expected.get(line).contains("needle")) {
+                needles.add(line);
+            }
+        }
+        assertFalse(needles.isEmpty());
+        assertEquals(needles, matchLines(document, "NEEDLE"));
+    }
+
+    @Test
+    @DisplayName("Test :: edits keep the line terminators and line count of the untouched lines")
+    void testLineTerminators() {
+        String content = "first\r\nsecond\nthird\n\n";
+        EditableTextDocument document = EditableTextDocument.of(content, 1, MatchEngine.HORSPOOL);
+        assertEquals(new TextDocument(content).getLineCount(), document.getLineCount());
+
+        document = document.applyEdit(1, 0, 1, 0, "the ", 2);
+        assertEquals("first\r\nthe second\nthird\n\n", document.getContent());
+        assertEquals(document.getContent().length(), document.length());
+        assertEquals(3, document.getLineCount());
+
+        // The last edited line keeps its terminator, the inserted ones have their own
+        document = document.applyEdit(0, 5, 1, 3, "\r\nand", 3);
+        assertEquals("first\r\nand second\nthird\n\n", document.getContent());
+        assertTrue(document.isValidOffset(document.lineOffset(2) | 5));
+        assertFalse(document.isValidOffset(document.lineOffset(2) | 6));
+    }
+}
@@ -0,0 +1,49 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MatchEngine Testing")
+public class MatchEngineTest {
+
+    private static final String TEXT = "aaab AAAB \u00c9t\u00e9 \u0100\u0101 abab-ABAB ababab \u0141\u0142";
+
+    /**
+     * Reference implementation: lowercasing copies, like the search did originally
+     */
+    private static int expectedIndexOf(String query, boolean caseSensitive, int from) {
+        return caseSensitive ? TEXT.indexOf(query, from) : TEXT.toLowerCase().indexOf(query.toLowerCase(), from);
+    }
+
+    private static void assertSameMatches(String query, boolean caseSensitive) {
+        for (MatchEngine engine : MatchEngine.values()) {
+            LiteralMatcher matcher = engine.compile(query, caseSensitive);
+            for (int from = 0; from <= TEXT.length(); from++) {
+                assertEquals(expectedIndexOf(query, caseSensitive, from), matcher.indexOf(TEXT, from, TEXT.length()),
+                    engine + " '" + query + "' from " + from);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Test :: engines find the same occurrences as String.indexOf")
+    void testEnginesMatchIndexOf() {
+        for (String query : new String[]{"a", "aab", "AAAB", "abab", "bab", "\u00e9t\u00c9", "\u0101\u0100", "\u0142", "zz", "b A"}) {
+            assertSameMatches(query, true);
+            assertSameMatches(query, false);
+        }
+    }
+
+    @Test
+    @DisplayName("Test :: engines respect the end of the searched region")
+    void testEnginesRespectRegionEnd() {
+        for (MatchEngine engine : MatchEngine.values()) {
+            LiteralMatcher matcher = engine.compile("aaab", false);
+            assertEquals(-1, matcher.indexOf(TEXT, 0, 3), engine.name());
+            assertEquals(0, matcher.indexOf(TEXT, 0, 4), engine.name());
+            assertEquals(5, matcher.indexOf(TEXT, 1, 9), engine.name());
+        }
+    }
+}
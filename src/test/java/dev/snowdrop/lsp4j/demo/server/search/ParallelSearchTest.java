@@ -0,0 +1,126 @@
+package dev.snowdrop.lsp4j.demo.server.search;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("ParallelSearch Testing")
+public class ParallelSearchTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterAll
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    private static TextDocument document(int lines) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("line ").append(i).append(" token\n");
+        }
+        return new TextDocument(content.toString());
+    }
+
+    @Test
+    @DisplayName("Test :: matches are reported in document order, from the given offset")
+    void testDocumentOrder() {
+        TextDocument document = document(20000);
+        long fromOffset = document.lineOffset(123);
+
+        List<Integer> expected = new ArrayList<>();
+        document.search("TOKEN", false, fromOffset, (line, offset, column, length) -> expected.add(line));
+        List<Integer> lines = new ArrayList<>();
+        new ParallelSearch(pool, 0).search(document, "TOKEN", false, fromOffset, (line, offset, column, length) -> lines.add(line));
+
+        assertEquals(20000 - 123, lines.size());
+        assertEquals(expected, lines);
+    }
+
+    @Test
+    @DisplayName("Test :: the chunks stop once the visitor has got the matches it takes")
+    void testMaxMatches() {
+        CountingDocument document = new CountingDocument(document(100000));
+        List<Integer> lines = new ArrayList<>();
+        new ParallelSearch(pool, 0).search(document, "token", true, 0, 10, (line, offset, column, length) -> {
+            lines.add(line);
+            return lines.size() < 10;
+        });
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), lines);
+        // Each chunk of the window holds at most as many matches as the visitor still takes
+        assertTrue(document.matches.get() <= 10 * (pool.getParallelism() + 1), "matches found: " + document.matches.get());
+    }
+
+    /**
+     * Counts the matches found by the searches of a document.
+     */
+    private static final class CountingDocument implements SearchableDocument {
+        private final SearchableDocument document;
+        private final AtomicInteger matches = new AtomicInteger();
+
+        CountingDocument(SearchableDocument document) {
+            this.document = document;
+        }
+
+        @Override
+        public long getVersion() {
+            return document.getVersion();
+        }
+
+        @Override
+        public long length() {
+            return document.length();
+        }
+
+        @Override
+        public int getLineCount() {
+            return document.getLineCount();
+        }
+
+        @Override
+        public String lineText(int line) {
+            return document.lineText(line);
+        }
+
+        @Override
+        public long lineOffset(int line) {
+            return document.lineOffset(line);
+        }
+
+        @Override
+        public int lineOf(long offset) {
+            return document.lineOf(offset);
+        }
+
+        @Override
+        public String getContent() {
+            return document.getContent();
+        }
+
+        @Override
+        public boolean search(String query, boolean caseSensitive, long fromOffset, int toLine, MatchVisitor visitor) {
+            return document.search(query, caseSensitive, fromOffset, toLine, new MatchVisitor() {
+                @Override
+                public boolean isCancelled() {
+                    return visitor.isCancelled();
+                }
+
+                @Override
+                public boolean onMatch(int line, long offset, int column, int length) {
+                    matches.incrementAndGet();
+                    return visitor.onMatch(line, offset, column, length);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.snowdrop.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Histogram Testing")
+public class HistogramTest {
+
+    @Test
+    @DisplayName("Test :: buckets cover every value and percentiles stay within the bucket precision")
+    void testPercentiles() {
+        for (long value : new long[]{0, 1, 31, 32, 33, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int index = Histogram.indexOf(value);
+            assertTrue(Histogram.highestValueOf(index) >= value, "bucket of " + value);
+            assertTrue(index == 0 || Histogram.highestValueOf(index - 1) < value, "bucket of " + value);
+        }
+
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean(), 0.001);
+        assertEquals(50_000, histogram.getValueAtPercentile(50), 50_000 / Histogram.SUB_BUCKETS);
+        assertEquals(99_000, histogram.getValueAtPercentile(99), 99_000 / Histogram.SUB_BUCKETS);
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    @DisplayName("Test :: registry exposes the operations as JSON and Prometheus text")
+    void testExposition() {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationMetrics metrics = registry.operation("server/searchText");
+        long start = metrics.start();
+        assertEquals(1, metrics.getInFlight());
+        metrics.recordRequestSize(42);
+        metrics.stop(start, true);
+        assertEquals(0, metrics.getInFlight());
+
+        String text = MetricsRegistry.toText("jdtls", registry.getOperations());
+        assertTrue(text.contains("# TYPE jdtls_latency_seconds summary\n"), text);
+        assertTrue(text.contains("jdtls_calls_total{operation=\"server/searchText\"} 1\n"), text);
+        assertTrue(text.contains("jdtls_errors_total{operation=\"server/searchText\"} 1\n"), text);
+        assertTrue(text.contains("jdtls_request_size{operation=\"server/searchText\",quantile=\"0.99\"} 42\n"), text);
+        assertEquals(1, MetricsRegistry.toJson(registry.getOperations()).getAsJsonObject("server/searchText")
+            .getAsJsonObject("latencyMicros").get("count").getAsInt());
+    }
+}
@@ -0,0 +1,75 @@
+package dev.snowdrop.parser.maven;
+
+import dev.snowdrop.metrics.MetricsRegistry;
+import org.apache.maven.model.InputLocation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("PomParser Batch GAV Testing")
+public class DependencyLocationsTest {
+
+    private static final String QUARKUS_PARENT = "src/test/resources/quarkus-parent-child/pom.xml";
+    private static final String SPRING_BOOT = "src/test/resources/spring-boot/pom.xml";
+
+    @Test
+    @DisplayName("Test :: finding dependencies, BOM imports and the parent in one batch")
+    void testFindDependencyLocations() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        PomParser pomParser = new PomParser(metrics);
+        Gav asciiTable = Gav.parse("com.github.freva:ascii-table:1.8.0");
+        Gav quarkusBom = Gav.parse("io.quarkus.platform:quarkus-bom:3.29.0");
+        Gav missing = Gav.parse("org.example:missing");
+        Gav wrongVersion = Gav.parse("com.github.freva:ascii-table:0.0.1");
+
+        Map<Gav, InputLocation> locations = pomParser.findDependencyLocations(QUARKUS_PARENT,
+            List.of(missing, quarkusBom, asciiTable, wrongVersion));
+        assertEquals(List.of(quarkusBom, asciiTable), List.copyOf(locations.keySet()));
+        assertEquals(43, locations.get(quarkusBom).getLineNumber());
+        assertEquals(101, locations.get(asciiTable).getLineNumber());
+
+        Gav parent = Gav.parse("org.springframework.boot:spring-boot-starter-parent");
+        assertEquals(5, pomParser.findDependencyLocations(SPRING_BOOT, List.of(parent)).get(parent).getLineNumber());
+
+        assertEquals(2, metrics.operation("pom/findDependencyLocations").getCalls());
+        assertEquals(3, metrics.operation("pom/findDependencyLocations").getResponseSizes().getSum());
+    }
+
+    @Test
+    @DisplayName("Test :: batch lookups find the same locations as single lookups")
+    void testBatchMatchesSingleLookups() {
+        PomParser pomParser = new PomParser(new MetricsRegistry());
+        Map<Gav, Integer> lines = new LinkedHashMap<>();
+        lines.put(Gav.parse("com.github.freva:ascii-table"), 101);
+        lines.put(Gav.parse("com.github.freva:ascii-table:1.8.0"), 101);
+        lines.put(Gav.parse("io.quarkus:quarkus-junit5"), 107);
+        lines.put(Gav.parse("org.eclipse.lsp4j:org.eclipse.lsp4j"), 67);
+        lines.put(Gav.parse("org.projectlombok:lombok"), 58);
+        lines.put(Gav.parse("io.quarkus.platform:quarkus-bom"), 43);
+        lines.put(Gav.parse("org.openrewrite.recipe:rewrite-recipe-bom:3.18.0"), 51);
+        Gav missing = Gav.parse("org.example:missing:1.0");
+        List<Gav> gavs = new ArrayList<>(lines.keySet());
+        gavs.add(missing);
+
+        Map<Gav, InputLocation> locations = pomParser.findDependencyLocations(QUARKUS_PARENT, gavs);
+        assertEquals(lines.keySet(), locations.keySet());
+        for (Map.Entry<Gav, Integer> line : lines.entrySet()) {
+            Gav gav = line.getKey();
+            assertEquals(line.getValue(), locations.get(gav).getLineNumber(), gav.toString());
+            Optional<InputLocation> location = pomParser.findDependencyLocation(QUARKUS_PARENT,
+                gav.getGroupId(), gav.getArtifactId(), gav.getVersion());
+            assertTrue(location.isPresent(), gav.toString());
+            assertEquals(line.getValue(), location.get().getLineNumber(), gav.toString());
+        }
+        assertFalse(pomParser.findDependencyLocation(QUARKUS_PARENT, "org.example", "missing", "1.0").isPresent());
+    }
+}
@@ -0,0 +1,236 @@
+package dev.snowdrop.parser.maven;
+
+import dev.snowdrop.metrics.MetricsRegistry;
+import org.apache.maven.model.InputLocation;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("Shared Maven Resolver Testing")
+public class MavenResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String REMOTE_PARENT_POM = String.join("\n",
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+        "    <modelVersion>4.0.0</modelVersion>",
+        "    <groupId>dev.snowdrop</groupId>",
+        "    <artifactId>remote-parent</artifactId>",
+        "    <version>1.0.0</version>",
+        "    <packaging>pom</packaging>",
+        "    <dependencies>",
+        "        <dependency>",
+        "            <groupId>com.github.freva</groupId>",
+        "            <artifactId>ascii-table</artifactId>",
+        "            <version>1.8.0</version>",
+        "        </dependency>",
+        "    </dependencies>",
+        "</project>");
+
+    private static final String CHILD_POM = String.join("\n",
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+        "    <modelVersion>4.0.0</modelVersion>",
+        "    <parent>",
+        "        <groupId>dev.snowdrop</groupId>",
+        "        <artifactId>remote-parent</artifactId>",
+        "        <version>1.0.0</version>",
+        "        <relativePath/>",
+        "    </parent>",
+        "    <artifactId>child</artifactId>",
+        "</project>");
+
+    private Path writeRepository(String name) throws Exception {
+        Path repository = tempDir.resolve(name);
+        Path parentDir = repository.resolve("dev/snowdrop/remote-parent/1.0.0");
+        Files.createDirectories(parentDir);
+        Files.writeString(parentDir.resolve("remote-parent-1.0.0.pom"), REMOTE_PARENT_POM);
+        byte[] sha1 = MessageDigest.getInstance("SHA-1").digest(REMOTE_PARENT_POM.getBytes(StandardCharsets.UTF_8));
+        Files.writeString(parentDir.resolve("remote-parent-1.0.0.pom.sha1"), String.format("%040x", new BigInteger(1, sha1)));
+        return repository;
+    }
+
+    private Path writeChild(String name) throws Exception {
+        Path childPom = tempDir.resolve(name).resolve("pom.xml");
+        Files.createDirectories(childPom.getParent());
+        Files.writeString(childPom, CHILD_POM);
+        return childPom;
+    }
+
+    @Test
+    @DisplayName("Test :: parents are resolved concurrently through one shared resolver")
+    void testSharedResolver() throws Exception {
+        Path remote = writeRepository("remote");
+        Path childPom = writeChild("child");
+
+        Path localRepository = tempDir.resolve("local");
+        MavenResolver resolver = MavenResolver.builder()
+            .localRepository(localRepository)
+            .remoteRepository("test", remote.toUri().toString())
+            .build();
+        assertSame(resolver.getSession(), new RepositoryModelResolver(resolver).getSession());
+
+        // Without a model cache, every lookup resolves the parent again
+        PomParser pomParser = new PomParser(new MetricsRegistry(), new ModelCache(0), resolver);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<InputLocation>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                lookups.add(executor.submit(() ->
+                    pomParser.findDependencyLocation(childPom.toString(), "com.github.freva", "ascii-table", "1.8.0")));
+            }
+            for (Future<Optional<InputLocation>> lookup : lookups) {
+                Optional<InputLocation> location = lookup.get();
+                assertTrue(location.isPresent(), "Should find gav");
+                assertEquals(8, location.get().getLineNumber());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(Files.exists(localRepository.resolve("dev/snowdrop/remote-parent/1.0.0/remote-parent-1.0.0.pom")));
+    }
+
+    @Test
+    @DisplayName("Test :: offline resolutions are remembered in memory and on disk")
+    void testOfflineResolver() throws Exception {
+        Path mirror = writeRepository("mirror");
+        Path childPom = writeChild("offline-child");
+        Path localRepository = tempDir.resolve("offline-local");
+        Path cacheDirectory = tempDir.resolve("offline-cache");
+
+        MavenResolver resolver = MavenResolver.builder()
+            .offline(true)
+            .localRepository(localRepository)
+            .fileRepository("mirror", mirror)
+            .cacheDirectory(cacheDirectory)
+            .build();
+        PomParser pomParser = new PomParser(new MetricsRegistry(), new ModelCache(0), resolver);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(pomParser.findDependencyLocation(childPom.toString(), "com.github.freva", "ascii-table", "").isPresent());
+        }
+        for (int i = 0; i < 5; i++) {
+            assertThrows(ArtifactResolutionException.class, () -> resolver.resolvePom("dev.snowdrop", "missing", "1.0.0"));
+        }
+        assertEquals(2, resolver.getRepositoryRequests());
+        assertEquals(8, resolver.getCacheHits());
+
+        // A new resolver reads the resolutions recorded by the first one
+        MavenResolver restarted = MavenResolver.builder()
+            .offline(true)
+            .localRepository(localRepository)
+            .fileRepository("mirror", mirror)
+            .cacheDirectory(cacheDirectory)
+            .build();
+        PomParser restartedParser = new PomParser(new MetricsRegistry(), new ModelCache(0), restarted);
+        assertTrue(restartedParser.findDependencyLocation(childPom.toString(), "com.github.freva", "ascii-table", "").isPresent());
+        assertThrows(ArtifactResolutionException.class, () -> restarted.resolvePom("dev.snowdrop", "missing", "1.0.0"));
+        assertEquals(0, restarted.getRepositoryRequests());
+
+        // Without negative caching, a missing pom is looked up again
+        MavenResolver uncached = MavenResolver.builder()
+            .offline(true)
+            .localRepository(localRepository)
+            .fileRepository("mirror", mirror)
+            .negativeCacheTtl(Duration.ZERO)
+            .build();
+        assertThrows(ArtifactResolutionException.class, () -> uncached.resolvePom("dev.snowdrop", "missing", "1.0.0"));
+        assertThrows(ArtifactResolutionException.class, () -> uncached.resolvePom("dev.snowdrop", "missing", "1.0.0"));
+        assertEquals(2, uncached.getRepositoryRequests());
+    }
+
+    @Test
+    @DisplayName("Test :: resolvers configured differently don't share their recorded resolutions")
+    void testCacheFilePerConfiguration() throws Exception {
+        Path mirror = writeRepository("config-mirror");
+        Path cacheDirectory = tempDir.resolve("config-cache");
+
+        // Missing from the local repository while offline, without the mirror
+        MavenResolver offline = MavenResolver.builder()
+            .offline(true)
+            .localRepository(tempDir.resolve("config-local"))
+            .cacheDirectory(cacheDirectory)
+            .build();
+        assertThrows(ArtifactResolutionException.class, () -> offline.resolvePom("dev.snowdrop", "remote-parent", "1.0.0"));
+
+        MavenResolver mirrored = MavenResolver.builder()
+            .localRepository(tempDir.resolve("config-local"))
+            .fileRepository("mirror", mirror)
+            .cacheDirectory(cacheDirectory)
+            .build();
+        assertTrue(mirrored.resolvePom("dev.snowdrop", "remote-parent", "1.0.0").isFile());
+        assertEquals(1, mirrored.getRepositoryRequests());
+
+        // Another local repository doesn't hold the pom resolved into the first one
+        MavenResolver otherLocal = MavenResolver.builder()
+            .localRepository(tempDir.resolve("config-other-local"))
+            .fileRepository("mirror", mirror)
+            .cacheDirectory(cacheDirectory)
+            .build();
+        assertTrue(otherLocal.resolvePom("dev.snowdrop", "remote-parent", "1.0.0").toPath().startsWith(tempDir.resolve("config-other-local")));
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Test :: the cache file is compacted when read")
+    void testCacheFileCompaction() throws Exception {
+        Path mirror = writeRepository("compact-mirror");
+        Path cacheDirectory = tempDir.resolve("compact-cache");
+        MavenResolver.Builder builder = MavenResolver.builder()
+            .offline(true)
+            .localRepository(tempDir.resolve("compact-local"))
+            .fileRepository("mirror", mirror)
+            .cacheDirectory(cacheDirectory)
+            .negativeCacheTtl(Duration.ZERO);
+
+        MavenResolver resolver = builder.build();
+        assertTrue(resolver.resolvePom("dev.snowdrop", "remote-parent", "1.0.0").isFile());
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ArtifactResolutionException.class, () -> resolver.resolvePom("dev.snowdrop", "missing", "1.0.0"));
+        }
+        Path cacheFile;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            cacheFile = files.findFirst().orElseThrow();
+        }
+        assertEquals(4, Files.readAllLines(cacheFile).size());
+
+        // The failures have expired: only the resolved pom is kept
+        MavenResolver restarted = builder.build();
+        assertEquals(1, Files.readAllLines(cacheFile).size());
+        assertTrue(restarted.resolvePom("dev.snowdrop", "remote-parent", "1.0.0").isFile());
+        assertEquals(0, restarted.getRepositoryRequests());
+    }
+
+    @Test
+    @DisplayName("Test :: offline resolvers don't reach http repositories")
+    void testOfflineHttpRepository() throws Exception {
+        MavenResolver resolver = MavenResolver.builder()
+            .offline(true)
+            .localRepository(tempDir.resolve("http-local"))
+            .remoteRepository("central", MavenResolver.CENTRAL_URL)
+            .build();
+        ArtifactResolutionException e = assertThrows(ArtifactResolutionException.class,
+            () -> resolver.resolvePom("org.springframework.boot", "spring-boot-starter-parent", "3.5.3"));
+        assertTrue(e.getMessage().contains("offline"), e.getMessage());
+    }
+}
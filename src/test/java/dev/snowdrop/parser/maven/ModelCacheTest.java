@@ -0,0 +1,112 @@
+package dev.snowdrop.parser.maven;
+
+import dev.snowdrop.metrics.MetricsRegistry;
+import org.apache.maven.model.InputLocation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("PomParser Model Cache Testing")
+public class ModelCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String PARENT_POM = String.join("\n",
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+        "    <modelVersion>4.0.0</modelVersion>",
+        "    <groupId>dev.snowdrop</groupId>",
+        "    <artifactId>parent</artifactId>",
+        "    <version>1.0.0</version>",
+        "    <packaging>pom</packaging>",
+        "    <dependencies>",
+        "        <dependency>",
+        "            <groupId>com.github.freva</groupId>",
+        "            <artifactId>ascii-table</artifactId>",
+        "            <version>1.8.0</version>",
+        "        </dependency>",
+        "    </dependencies>",
+        "</project>");
+
+    private static final String CHILD_POM = String.join("\n",
+        "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+        "    <modelVersion>4.0.0</modelVersion>",
+        "    <parent>",
+        "        <groupId>dev.snowdrop</groupId>",
+        "        <artifactId>parent</artifactId>",
+        "        <version>1.0.0</version>",
+        "        <relativePath>../pom.xml</relativePath>",
+        "    </parent>",
+        "    <artifactId>child</artifactId>",
+        "</project>");
+
+    private Path writeProject(String name) throws Exception {
+        Path project = tempDir.resolve(name);
+        Files.createDirectories(project.resolve("child"));
+        Files.writeString(project.resolve("pom.xml"), PARENT_POM);
+        Files.writeString(project.resolve("child/pom.xml"), CHILD_POM);
+        return project;
+    }
+
+    @Test
+    @DisplayName("Test :: effective models are reused until the pom or a local parent changes")
+    void testModelCache() throws Exception {
+        Path project = writeProject("reuse");
+        Path parentPom = project.resolve("pom.xml");
+        Path childPom = project.resolve("child/pom.xml");
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        PomParser pomParser = new PomParser(metrics, new ModelCache(ModelCache.DEFAULT_MAX_ENTRIES));
+        ModelCache cache = pomParser.getModelCache();
+        for (int i = 0; i < 20; i++) {
+            InputLocation location = findAsciiTable(pomParser, childPom);
+            assertEquals(8, location.getLineNumber());
+            assertEquals(parentPom.toString(), location.getSource().getLocation());
+        }
+        assertEquals(1, metrics.operation("pom/buildModel").getCalls());
+        assertEquals(19, cache.getHits());
+        assertEquals(0.95, cache.getHitRate(), 0.001);
+
+        // Touched but unchanged: the content hash still matches
+        Files.setLastModifiedTime(parentPom, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        assertEquals(8, findAsciiTable(pomParser, childPom).getLineNumber());
+        assertEquals(1, metrics.operation("pom/buildModel").getCalls());
+
+        // The inherited dependency moves down a line in the parent
+        Files.writeString(parentPom, PARENT_POM.replaceFirst("\n", "\n\n"));
+        assertEquals(9, findAsciiTable(pomParser, childPom).getLineNumber());
+        assertEquals(2, metrics.operation("pom/buildModel").getCalls());
+        assertEquals(1, cache.getInvalidations());
+    }
+
+    @Test
+    @DisplayName("Test :: least recently used models are evicted")
+    void testEviction() throws Exception {
+        Path project = writeProject("eviction");
+        Path parentPom = project.resolve("pom.xml");
+        Path childPom = project.resolve("child/pom.xml");
+        ModelCache cache = new ModelCache(1);
+        PomParser pomParser = new PomParser(new MetricsRegistry(), cache);
+        findAsciiTable(pomParser, parentPom);
+        findAsciiTable(pomParser, childPom);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get(parentPom));
+        assertNotNull(cache.get(childPom));
+    }
+
+    private static InputLocation findAsciiTable(PomParser pomParser, Path pom) {
+        Optional<InputLocation> location = pomParser.findDependencyLocation(pom.toString(), "com.github.freva", "ascii-table", "");
+        assertTrue(location.isPresent(), "Should find gav");
+        return location.get();
+    }
+}
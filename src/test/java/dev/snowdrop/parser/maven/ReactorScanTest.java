@@ -0,0 +1,108 @@
+package dev.snowdrop.parser.maven;
+
+import dev.snowdrop.metrics.MetricsRegistry;
+import org.apache.maven.model.InputLocation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("PomParser Reactor Testing")
+public class ReactorScanTest {
+
+    private static final Path PROJECT = Paths.get("src/test/resources/quarkus-parent-child").toAbsolutePath();
+
+    @Test
+    @DisplayName("Test :: scanning the modules of a reactor concurrently")
+    void testScanReactor() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        PomParser pomParser = new PomParser(metrics, new ModelCache(ModelCache.DEFAULT_MAX_ENTRIES));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ReactorScan scan;
+        try {
+            scan = pomParser.scanReactor(PROJECT.resolve("pom.xml").toString(), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(List.of(
+            PROJECT.resolve("pom.xml").toString(),
+            PROJECT.resolve("child/pom.xml").toString(),
+            PROJECT.resolve("service/pom.xml").toString(),
+            PROJECT.resolve("service/api/pom.xml").toString()), scan.getModules());
+        // The child declares a dependency without version which isn't managed
+        assertEquals(List.of(PROJECT.resolve("child/pom.xml").toString()), List.copyOf(scan.getFailures().keySet()));
+        assertEquals(1, metrics.operation("pom/scanReactor").getCalls());
+
+        // Inherited by the service and the api, found once in the parent
+        assertLocations(scan, "com.github.freva:ascii-table:1.8.0", "pom.xml", 101);
+        assertLocations(scan, "org.projectlombok:lombok", "pom.xml", 58, "service/api/pom.xml", 17);
+        assertLocations(scan, "io.quarkus.platform:quarkus-bom:3.29.0", "pom.xml", 43);
+        assertLocations(scan, "org.eclipse.lsp4j:org.eclipse.lsp4j.jsonrpc", "pom.xml", 72, "service/pom.xml", 22);
+        assertLocations(scan, "com.opencsv:opencsv:5.12.0", "service/api/pom.xml", 21);
+        assertLocations(scan, "dev.snowdrop:parent:1.0.0-SNAPSHOT", "service/pom.xml", 6);
+        assertLocations(scan, "dev.snowdrop:service", "service/api/pom.xml", 6);
+        assertTrue(scan.find(Gav.parse("org.example:missing")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test :: a sequential scan finds the same locations")
+    void testSequentialScan() {
+        String rootPom = PROJECT.resolve("pom.xml").toString();
+        ReactorScan parallel = new PomParser(new MetricsRegistry()).scanReactor(rootPom);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ReactorScan sequential = new PomParser(new MetricsRegistry()).scanReactor(rootPom, pool);
+            assertEquals(parallel.getModules(), sequential.getModules());
+            assertEquals(parallel.getLocations().keySet(), sequential.getLocations().keySet());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Test :: modules which can't be read are reported without failing the scan")
+    void testUnreadableModules(@TempDir Path root) throws Exception {
+        Files.writeString(root.resolve("pom.xml"), String.join("\n",
+            "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">",
+            "    <modelVersion>4.0.0</modelVersion>",
+            "    <groupId>dev.snowdrop</groupId>",
+            "    <artifactId>broken-reactor</artifactId>",
+            "    <version>1.0.0</version>",
+            "    <packaging>pom</packaging>",
+            "    <modules>",
+            "        <module>broken</module>",
+            "        <module>missing</module>",
+            "        <module>directory</module>",
+            "    </modules>",
+            "</project>"));
+        Files.writeString(Files.createDirectories(root.resolve("broken")).resolve("pom.xml"), "<project><modules>");
+        // Not even a file
+        Files.createDirectories(root.resolve("directory/pom.xml"));
+
+        ReactorScan scan = new PomParser(new MetricsRegistry()).scanReactor(root.resolve("pom.xml").toString());
+        assertEquals(4, scan.getModules().size());
+        assertEquals(Set.of(root.resolve("broken/pom.xml").toString(), root.resolve("missing").toString(),
+            root.resolve("directory/pom.xml").toString()), scan.getFailures().keySet());
+    }
+
+    private static void assertLocations(ReactorScan scan, String gav, Object... expected) {
+        List<InputLocation> locations = scan.find(Gav.parse(gav));
+        assertEquals(expected.length / 2, locations.size(), gav);
+        for (int i = 0; i < locations.size(); i++) {
+            InputLocation location = locations.get(i);
+            assertEquals(PROJECT.resolve((String) expected[2 * i]).toString(), location.getSource().getLocation(), gav);
+            assertEquals(expected[2 * i + 1], location.getLineNumber(), gav);
+        }
+    }
+}